@@ -0,0 +1,96 @@
+package com.base.benchmarks;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import org.apache.commons.lang3.Validate;
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.apache.tomcat.jdbc.pool.PoolProperties;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import com.base.orm.HibernateComponent;
+import com.base.orm.ModulePersistenceRegistry;
+
+/** Builds {@link HibernateComponent} instances over an in memory H2 database,
+ * outside of any Spring context, so benchmarks only measure the code under
+ * test.
+ */
+public final class BenchmarkDatabase {
+
+  /** The properties shared by every benchmark database, never null. */
+  private final Map<String, Object> properties = new HashMap<>();
+
+  /** The tomcat jdbc pool, never null. */
+  private final DataSource dataSource;
+
+  /** Creates a new in memory database.
+   *
+   * @param name the database name, it must be unique among the databases
+   * living in the same JVM. Cannot be null nor empty.
+   *
+   * @param schemaAction the hibernate.hbm2ddl.auto value, cannot be null.
+   */
+  public BenchmarkDatabase(final String name, final String schemaAction) {
+    Validate.notEmpty(name, "The database name cannot be empty.");
+    Validate.notNull(schemaAction, "The schema action cannot be null.");
+
+    String url = "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1";
+    properties.put("hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+    properties.put("hibernate.hbm2ddl.auto", schemaAction);
+    properties.put("hibernate.id.new_generator_mappings", "false");
+    properties.put("datasource.url", url);
+
+    PoolProperties pool = new PoolProperties();
+    pool.setUrl(url);
+    pool.setDriverClassName("org.h2.Driver");
+    pool.setUsername("sa");
+    pool.setPassword("");
+    dataSource = new DataSource(pool);
+  }
+
+  /** Overrides or adds a property to the environment of the components
+   * created by this database.
+   *
+   * @param name the property name, cannot be null.
+   * @param value the property value, cannot be null.
+   *
+   * @return this instance.
+   */
+  public BenchmarkDatabase with(final String name, final Object value) {
+    properties.put(name, value);
+    return this;
+  }
+
+  /** Creates a new {@link HibernateComponent} for the given modules.
+   *
+   * @param registries the module registries, cannot be null nor empty.
+   *
+   * @return a new {@link HibernateComponent}, never null.
+   */
+  public HibernateComponent createComponent(
+      final Set<ModulePersistenceRegistry> registries) {
+    ConfigurableEnvironment environment = new StandardEnvironment();
+    environment.getPropertySources().addFirst(new MapPropertySource(
+        "benchmark", Collections.unmodifiableMap(properties)));
+    return new HibernateComponent(environment, dataSource, registries);
+  }
+
+  /** Creates a new {@link HibernateComponent} for a single module.
+   *
+   * @param registry the module registry, cannot be null.
+   *
+   * @return a new {@link HibernateComponent}, never null.
+   */
+  public HibernateComponent createComponent(
+      final ModulePersistenceRegistry registry) {
+    return createComponent(Collections.singleton(registry));
+  }
+
+  /** Closes the connection pool. */
+  public void close() {
+    dataSource.close(true);
+  }
+}
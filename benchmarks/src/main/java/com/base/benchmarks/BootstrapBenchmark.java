@@ -0,0 +1,92 @@
+package com.base.benchmarks;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.base.orm.HibernateComponent;
+import com.base.orm.ModulePersistenceRegistry;
+
+/** Measures the HibernateComponent bootstrap time as the number of registered
+ * modules and entities grows.
+ * <br>
+ * The schema is not touched, so this only covers the metadata and the
+ * SessionFactory build.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BootstrapBenchmark {
+
+  /** The number of registered modules. */
+  @Param({"1", "10", "50"})
+  public int modules;
+
+  /** The number of entities in each module. */
+  @Param({"10"})
+  public int entitiesPerModule;
+
+  /** The database. */
+  private BenchmarkDatabase database;
+
+  /** The registries of the generated modules. */
+  private Set<ModulePersistenceRegistry> registries;
+
+  /** Generates the modules and their entities. */
+  @Setup
+  public void setUp() {
+    database = new BenchmarkDatabase("bootstrap" + modules + "_"
+        + entitiesPerModule, "none");
+    registries = new HashSet<>();
+
+    EntityClassGenerator generator = new EntityClassGenerator();
+    for (int i = 0; i < modules; i++) {
+      ModulePersistenceRegistry registry;
+      registry = new ModulePersistenceRegistry("m" + i);
+      for (int j = 0; j < entitiesPerModule; j++) {
+        registry.add(generator.generate("entities" + j));
+      }
+      registries.add(registry);
+    }
+  }
+
+  /** Releases the database. */
+  @TearDown
+  public void tearDown() {
+    database.close();
+  }
+
+  /** Builds a new HibernateComponent and releases its SessionFactory. */
+  @Benchmark
+  public void bootstrap() {
+    HibernateComponent hibernate = database.createComponent(registries);
+    hibernate.getSessionFactory().close();
+  }
+
+  /** Builds the first HibernateComponent of a fresh JVM, like an application
+   * startup does, with Hibernate classes not yet loaded nor compiled.
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @Warmup(iterations = 0)
+  @Measurement(iterations = 1)
+  @Fork(5)
+  public void coldBootstrap() {
+    bootstrap();
+  }
+}
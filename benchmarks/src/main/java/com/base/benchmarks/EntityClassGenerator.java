@@ -0,0 +1,75 @@
+package com.base.benchmarks;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import javassist.CannotCompileException;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtField;
+import javassist.CtNewConstructor;
+import javassist.NotFoundException;
+import javassist.bytecode.AnnotationsAttribute;
+import javassist.bytecode.ConstPool;
+import javassist.bytecode.annotation.Annotation;
+import javassist.bytecode.annotation.StringMemberValue;
+
+/** Generates trivial <code>@Entity</code> classes, so benchmarks can register
+ * as many modules and entities as they need.
+ * <br>
+ * Each generated class has a generated Long id and a String name.
+ */
+public final class EntityClassGenerator {
+
+  /** The package of the generated classes. */
+  private static final String PACKAGE = "com.base.benchmarks.generated.";
+
+  /** Keeps generated class names unique inside the JVM. */
+  private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+  /** The javassist class pool, never null. */
+  private final ClassPool pool = ClassPool.getDefault();
+
+  /** Generates a new entity class mapped to the given table.
+   *
+   * @param table the table name, without the module prefix. Cannot be null.
+   *
+   * @return the generated class, never null.
+   */
+  public Class<?> generate(final String table) {
+    try {
+      CtClass entity = pool.makeClass(PACKAGE + "Entity"
+          + SEQUENCE.incrementAndGet());
+      ConstPool constants = entity.getClassFile().getConstPool();
+
+      Annotation tableAnnotation = new Annotation("javax.persistence.Table",
+          constants);
+      tableAnnotation.addMemberValue("name",
+          new StringMemberValue(table, constants));
+      entity.getClassFile().addAttribute(annotations(constants,
+          new Annotation("javax.persistence.Entity", constants),
+          tableAnnotation));
+
+      CtField id = new CtField(pool.get("java.lang.Long"), "id", entity);
+      id.getFieldInfo().addAttribute(annotations(constants,
+          new Annotation("javax.persistence.Id", constants),
+          new Annotation("javax.persistence.GeneratedValue", constants)));
+      entity.addField(id);
+      entity.addField(new CtField(pool.get("java.lang.String"), "name",
+          entity));
+      entity.addConstructor(CtNewConstructor.defaultConstructor(entity));
+
+      return entity.toClass(getClass().getClassLoader(), null);
+    } catch (CannotCompileException | NotFoundException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private AnnotationsAttribute annotations(final ConstPool constants,
+      final Annotation... annotations) {
+    AnnotationsAttribute attribute = new AnnotationsAttribute(constants,
+        AnnotationsAttribute.visibleTag);
+    for (Annotation annotation : annotations) {
+      attribute.addAnnotation(annotation);
+    }
+    return attribute;
+  }
+}
@@ -0,0 +1,121 @@
+package com.base.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.base.orm.HibernateComponent;
+import com.base.orm.ModulePersistenceRegistry;
+import com.test.entities.Person;
+import com.test.entities.Place;
+import com.test.entities.PlaceFactory;
+import com.test.entities.PlaceService;
+
+/** Measures entity hydration through the CustomTuplizer, for an entity built
+ * by an EntityFactory (Place) and for one built by its default constructor
+ * (Person).
+ * <br>
+ * With the 'handwritten' instantiation Place uses the PlaceFactory and Person
+ * is created through reflection. With the 'generated' instantiation both use
+ * the factories generated from their constructors, Place getting its
+ * PlaceService from the module dependencies.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HydrationBenchmark {
+
+  /** The number of rows of each entity to load. */
+  @Param({"1000", "10000"})
+  public int rows;
+
+  /** How the entities without a default constructor are instantiated. */
+  @Param({"handwritten", "generated"})
+  public String instantiation;
+
+  /** The database. */
+  private BenchmarkDatabase database;
+
+  /** The session factory under test. */
+  private SessionFactory sessionFactory;
+
+  /** Creates the schema and loads the rows. */
+  @Setup
+  public void setUp() {
+    boolean generated = instantiation.equals("generated");
+    database = new BenchmarkDatabase("hydration" + rows + instantiation,
+        "create").with("orm.entity.generated_factories", generated);
+    PlaceService service = new PlaceService("benchmark");
+    ModulePersistenceRegistry registry = new ModulePersistenceRegistry("m1");
+    registry.add(Person.class);
+    if (generated) {
+      registry.add(Place.class);
+      registry.addDependency(PlaceService.class, service);
+    } else {
+      registry.add(Place.class, new PlaceFactory());
+    }
+    HibernateComponent hibernate = database.createComponent(registry);
+    sessionFactory = hibernate.getSessionFactory();
+
+    try (Session session = sessionFactory.openSession()) {
+      Transaction tx = session.beginTransaction();
+      for (int i = 0; i < rows; i++) {
+        session.save(new Person("p" + i + "@mail.com", "person " + i));
+        session.save(new Place("code " + i, service));
+        if (i % 100 == 0) {
+          session.flush();
+          session.clear();
+        }
+      }
+      tx.commit();
+    }
+  }
+
+  /** Releases the database. */
+  @TearDown
+  public void tearDown() {
+    sessionFactory.close();
+    database.close();
+  }
+
+  /** Loads every Place, each one created by the PlaceFactory.
+   *
+   * @return the loaded entities.
+   */
+  @Benchmark
+  public List<?> withFactory() {
+    return load(Place.class);
+  }
+
+  /** Loads every Person, each one created by its default constructor.
+   *
+   * @return the loaded entities.
+   */
+  @Benchmark
+  public List<?> withoutFactory() {
+    return load(Person.class);
+  }
+
+  private List<?> load(final Class<?> entity) {
+    try (Session session = sessionFactory.openSession()) {
+      return session.createQuery("from " + entity.getName()).list();
+    }
+  }
+}
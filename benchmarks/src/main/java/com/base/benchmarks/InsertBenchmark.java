@@ -0,0 +1,96 @@
+package com.base.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.base.orm.HibernateComponent;
+import com.base.orm.IdStrategy;
+import com.base.orm.ModulePersistenceRegistry;
+import com.test.entities.Pet;
+
+/** Measures the insert throughput of each IdStrategy, with the jdbc batch
+ * size of orm.properties.
+ * <br>
+ * With the NATIVE strategy each row is inserted on its own to read its
+ * identity, the pooled strategies let hibernate batch the inserts. The
+ * database runs in memory, so the gap only covers the statement overhead, it
+ * grows with the network round trip of a real database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InsertBenchmark {
+
+  /** The id strategy of the module. */
+  @Param({"NATIVE", "POOLED_SEQUENCE", "TABLE"})
+  public IdStrategy strategy;
+
+  /** The number of rows inserted in each transaction. */
+  @Param({"1000"})
+  public int rows;
+
+  /** The number of statements in each jdbc batch. */
+  @Param({"50"})
+  public int batchSize;
+
+  /** The database. */
+  private BenchmarkDatabase database;
+
+  /** The session factory under test. */
+  private SessionFactory sessionFactory;
+
+  /** Creates the schema. */
+  @Setup
+  public void setUp() {
+    database = new BenchmarkDatabase("insert" + strategy, "create")
+        .with("hibernate.jdbc.batch_size", batchSize)
+        .with("hibernate.order_inserts", "true");
+    ModulePersistenceRegistry registry = new ModulePersistenceRegistry("m2");
+    registry.add(Pet.class);
+    registry.setIdStrategy(strategy);
+    HibernateComponent hibernate = database.createComponent(registry);
+    sessionFactory = hibernate.getSessionFactory();
+  }
+
+  /** Releases the database. */
+  @TearDown
+  public void tearDown() {
+    sessionFactory.close();
+    database.close();
+  }
+
+  /** Inserts {@link #rows} pets in a single transaction, clearing the
+   * session after each batch.
+   */
+  @Benchmark
+  public void insert() {
+    try (Session session = sessionFactory.openSession()) {
+      Transaction tx = session.beginTransaction();
+      for (int i = 0; i < rows; i++) {
+        session.save(new Pet("pet " + i));
+        if (i % batchSize == batchSize - 1) {
+          session.flush();
+          session.clear();
+        }
+      }
+      tx.commit();
+    }
+  }
+}
@@ -0,0 +1,91 @@
+package com.base.benchmarks;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.base.orm.DatabaseUtility;
+import com.base.orm.HibernateComponent;
+import com.base.orm.ModulePersistenceRegistry;
+import com.test.entities.Person;
+
+/** Measures DatabaseUtility.runSqlCommands throughput against an in memory
+ * H2 database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RunSqlCommandsBenchmark {
+
+  /** The number of insert statements run on each invocation. */
+  @Param({"1000", "10000"})
+  public int statements;
+
+  /** The database. */
+  private BenchmarkDatabase database;
+
+  /** The hibernate component the utility works on. */
+  private HibernateComponent hibernate;
+
+  /** The utility under test. */
+  private DatabaseUtility utility;
+
+  /** The statements to run. */
+  private String[] commands;
+
+  /** Creates the schema and the statements. */
+  @Setup
+  public void setUp() {
+    database = new BenchmarkDatabase("commands" + statements, "create");
+    ModulePersistenceRegistry registry = new ModulePersistenceRegistry("m1");
+    registry.add(Person.class);
+    hibernate = database.createComponent(registry);
+    utility = new DatabaseUtility(hibernate);
+
+    commands = new String[statements];
+    for (int i = 0; i < statements; i++) {
+      commands[i] = "insert into m1_persons (e_mail, name) values ('p" + i
+          + "@mail.com', 'person " + i + "')";
+    }
+  }
+
+  /** Empties the table so it does not grow across iterations. */
+  @TearDown(Level.Iteration)
+  public void cleanUp() {
+    utility.delete(Person.class);
+  }
+
+  /** Releases the database. */
+  @TearDown
+  public void tearDown() {
+    hibernate.getSessionFactory().close();
+    database.close();
+  }
+
+  /** Runs all the statements. */
+  @Benchmark
+  public void runSqlCommands() {
+    utility.runSqlCommands(commands);
+  }
+
+  /** Runs all the statements in batches of 100, committing every 1000. */
+  @Benchmark
+  public void runSqlCommandsChunked() {
+    utility.runSqlCommands(Arrays.stream(commands), 100, 1000);
+  }
+}
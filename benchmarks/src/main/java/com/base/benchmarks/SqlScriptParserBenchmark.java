@@ -0,0 +1,83 @@
+package com.base.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.base.orm.SqlScriptParser;
+
+/** Measures the parsing of large sql scripts. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SqlScriptParserBenchmark {
+
+  /** The number of statements in the script. */
+  @Param({"10000", "100000"})
+  public int statements;
+
+  /** The generated script. */
+  private File script;
+
+  /** Writes the script, with statements spanning several lines.
+   *
+   * @throws IOException if the script cannot be written.
+   */
+  @Setup
+  public void setUp() throws IOException {
+    script = File.createTempFile("benchmark", ".sql");
+    try (PrintWriter writer = new PrintWriter(script,
+        StandardCharsets.UTF_8.name())) {
+      for (int i = 0; i < statements; i++) {
+        writer.println("insert into m1_persons (e_mail, name)");
+        writer.println("  values ('p" + i + "@mail.com', 'person " + i
+            + "');");
+        writer.println();
+      }
+    }
+  }
+
+  /** Deletes the script. */
+  @TearDown
+  public void tearDown() {
+    script.delete();
+  }
+
+  /** Parses the whole script into an array.
+   *
+   * @return the parsed statements.
+   */
+  @Benchmark
+  public String[] parse() {
+    return new SqlScriptParser().parse(script);
+  }
+
+  /** Reads the script lazily, one statement at a time.
+   *
+   * @return the number of statements read.
+   */
+  @Benchmark
+  public long stream() {
+    try (Stream<String> sentences = new SqlScriptParser().stream(script)) {
+      return sentences.count();
+    }
+  }
+}
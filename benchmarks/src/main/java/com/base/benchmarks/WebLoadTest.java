@@ -0,0 +1,286 @@
+package com.base.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.boot.context.embedded.EmbeddedServletContainer;
+import org.springframework.boot.context.embedded.jetty
+    .JettyEmbeddedServletContainerFactory;
+
+import com.base.web.ConnectorCustomizer;
+import com.base.web.ConnectorProperties;
+
+/** A local load test of the jetty connector profiles.
+ *
+ * It starts a jetty server per profile, like JettyBootConfiguration does,
+ * with a servlet that returns a fixed text payload, and hits it from a
+ * number of keep alive clients. It prints the requests per second and the
+ * latency percentiles of each profile. Run it with:
+ * <pre>
+ *   java -cp benchmarks/target/benchmarks.jar \
+ *     com.base.benchmarks.WebLoadTest [seconds] [clients] [payload bytes]
+ * </pre>
+ * Clients and server share the machine, so compare the profiles with each
+ * other, not with production numbers.
+ */
+public final class WebLoadTest {
+
+  /** The default measured seconds of each profile. */
+  private static final int DEFAULT_SECONDS = 10;
+
+  /** The default number of concurrent clients. */
+  private static final int DEFAULT_CLIENTS = 64;
+
+  /** The default size of the response payload, in bytes. */
+  private static final int DEFAULT_PAYLOAD = 16 * 1024;
+
+  /** The warm up seconds of each profile. */
+  private static final int WARM_UP_SECONDS = 3;
+
+  /** The percentiles reported. */
+  private static final double[] PERCENTILES = {50, 99};
+
+  /** The percentile of all the samples. */
+  private static final double ALL = 100;
+
+  /** The number of nanoseconds in a millisecond, as a double. */
+  private static final double NANOS_PER_MILLI = 1e6;
+
+  /** The accept queue of the throughput profiles. */
+  private static final int ACCEPT_QUEUE = 1024;
+
+  /** The output buffer of the throughput profiles, in bytes. */
+  private static final int OUTPUT_BUFFER = 64 * 1024;
+
+  /** The greatest pooled buffer of the throughput profiles, in bytes. */
+  private static final int MAX_POOLED_BUFFER = 256 * 1024;
+
+  /** The smallest compressed response of the gzip profile, in bytes. */
+  private static final int GZIP_MIN_SIZE = 2048;
+
+  /** The size of the client read buffer, in bytes. */
+  private static final int READ_BUFFER = 8192;
+
+  /** Utility class, not instantiated. */
+  private WebLoadTest() {
+  }
+
+  /** Runs the load test.
+   *
+   * @param args the optional seconds, clients and payload bytes.
+   *
+   * @throws Exception if the server fails.
+   */
+  public static void main(final String[] args) throws Exception {
+    int seconds = args.length > 0 ? Integer.parseInt(args[0])
+        : DEFAULT_SECONDS;
+    int clients = args.length > 1 ? Integer.parseInt(args[1])
+        : DEFAULT_CLIENTS;
+    int payload = args.length > 2 ? Integer.parseInt(args[2])
+        : DEFAULT_PAYLOAD;
+    // the jdk only keeps 5 idle connections per host by default.
+    System.setProperty("http.maxConnections", String.valueOf(clients));
+
+    System.out.printf("%d clients, %d byte responses, %d s per profile%n",
+        clients, payload, seconds);
+    System.out.printf("%-16s %10s %10s %10s%n", "profile", "req/s",
+        "p50 ms", "p99 ms");
+    for (Map.Entry<String, ConnectorProperties> profile
+        : profiles().entrySet()) {
+      run(profile.getKey(), profile.getValue(), seconds, clients, payload);
+    }
+  }
+
+  /** Builds the compared profiles.
+   *
+   * @return the profiles by name, never null.
+   */
+  private static Map<String, ConnectorProperties> profiles() {
+    Map<String, ConnectorProperties> profiles = new LinkedHashMap<>();
+    profiles.put("jetty-defaults", new ConnectorProperties());
+
+    ConnectorProperties throughput = throughput();
+    profiles.put("throughput", throughput);
+
+    ConnectorProperties gzip = throughput();
+    gzip.getCompression().setEnabled(true);
+    gzip.getCompression().setMinResponseSize(GZIP_MIN_SIZE);
+    gzip.getCompression().setMimeTypes(new String[] {"text/plain",
+      "application/json"});
+    profiles.put("throughput-gzip", gzip);
+    return profiles;
+  }
+
+  /** Builds a profile with one acceptor, a selector per two processors,
+   * and bigger queues and buffers than the jetty defaults.
+   *
+   * @return the profile, never null.
+   */
+  private static ConnectorProperties throughput() {
+    ConnectorProperties properties = new ConnectorProperties();
+    properties.setAcceptors(1);
+    properties.setSelectors(Math.max(1,
+        Runtime.getRuntime().availableProcessors() / 2));
+    properties.setAcceptQueueSize(ACCEPT_QUEUE);
+    properties.setOutputBufferSize(OUTPUT_BUFFER);
+    properties.setBufferPoolMaxSize(MAX_POOLED_BUFFER);
+    return properties;
+  }
+
+  /** Loads a server with a profile and prints the results.
+   *
+   * @param name the profile name, cannot be null.
+   * @param profile the profile, cannot be null.
+   * @param seconds the measured seconds.
+   * @param clients the number of concurrent clients.
+   * @param payload the size of the response payload, in bytes.
+   *
+   * @throws Exception if the server fails.
+   */
+  private static void run(final String name, final ConnectorProperties profile,
+      final int seconds, final int clients, final int payload)
+      throws Exception {
+    JettyEmbeddedServletContainerFactory factory =
+        new JettyEmbeddedServletContainerFactory(0);
+    factory.addServerCustomizers(new ConnectorCustomizer(profile));
+    byte[] body = payload(payload);
+    EmbeddedServletContainer container = factory.getEmbeddedServletContainer(
+        context -> context.addServlet("payload", new PayloadServlet(body))
+            .addMapping("/*"));
+    container.start();
+    try {
+      URL url = new URL("http://localhost:" + container.getPort() + "/");
+      load(url, clients, TimeUnit.SECONDS.toNanos(WARM_UP_SECONDS));
+      long start = System.nanoTime();
+      long[] latencies = load(url, clients,
+          TimeUnit.SECONDS.toNanos(seconds));
+      double elapsed = (System.nanoTime() - start)
+          / (double) TimeUnit.SECONDS.toNanos(1);
+      Arrays.sort(latencies);
+      System.out.printf("%-16s %10.0f %10.2f %10.2f%n", name,
+          latencies.length / elapsed,
+          percentile(latencies, PERCENTILES[0]),
+          percentile(latencies, PERCENTILES[1]));
+    } finally {
+      container.stop();
+    }
+  }
+
+  /** Sends requests from several clients for some time.
+   *
+   * @param url the requested url, cannot be null.
+   * @param clients the number of concurrent clients.
+   * @param nanos how long the clients send requests.
+   *
+   * @return the latency of each request, in nanoseconds, never null.
+   *
+   * @throws Exception if a request fails.
+   */
+  private static long[] load(final URL url, final int clients,
+      final long nanos) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(clients);
+    long end = System.nanoTime() + nanos;
+    List<Future<List<Long>>> results = new ArrayList<>();
+    for (int i = 0; i < clients; i++) {
+      results.add(executor.submit(() -> {
+        List<Long> latencies = new ArrayList<>();
+        byte[] buffer = new byte[READ_BUFFER];
+        while (System.nanoTime() < end) {
+          long start = System.nanoTime();
+          HttpURLConnection connection =
+              (HttpURLConnection) url.openConnection();
+          connection.setRequestProperty("Accept-Encoding", "gzip");
+          try (InputStream in = connection.getInputStream()) {
+            while (in.read(buffer) != -1) {
+              // drains the response so the connection is reused.
+              continue;
+            }
+          }
+          latencies.add(System.nanoTime() - start);
+        }
+        return latencies;
+      }));
+    }
+    List<Long> all = new ArrayList<>();
+    for (Future<List<Long>> result : results) {
+      all.addAll(result.get());
+    }
+    executor.shutdown();
+    return all.stream().mapToLong(Long::longValue).toArray();
+  }
+
+  /** Returns a percentile of sorted latencies.
+   *
+   * @param sorted the latencies in nanoseconds, sorted, cannot be null.
+   * @param percentile the percentile, between 0 and 100.
+   *
+   * @return the latency in milliseconds, 0 if there are none.
+   */
+  private static double percentile(final long[] sorted,
+      final double percentile) {
+    if (sorted.length == 0) {
+      return 0;
+    }
+    int index = (int) Math.ceil(sorted.length * percentile / ALL) - 1;
+    return sorted[Math.max(index, 0)] / NANOS_PER_MILLI;
+  }
+
+  /** Builds a json like text payload.
+   *
+   * @param size the payload size, in bytes.
+   *
+   * @return the payload, never null.
+   */
+  private static byte[] payload(final int size) {
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; text.length() < size; i++) {
+      text.append("{\"id\":").append(i)
+          .append(",\"name\":\"person ").append(i).append("\"},");
+    }
+    return text.substring(0, size).getBytes(StandardCharsets.UTF_8);
+  }
+
+  /** Writes a fixed payload. */
+  private static final class PayloadServlet extends HttpServlet {
+
+    /** The serial version. */
+    private static final long serialVersionUID = 1L;
+
+    /** The payload, never null. */
+    private final byte[] body;
+
+    /** Constructor, creates a new servlet.
+     *
+     * @param theBody the payload, cannot be null.
+     */
+    private PayloadServlet(final byte[] theBody) {
+      body = theBody;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void doGet(final HttpServletRequest request,
+        final HttpServletResponse response) throws IOException {
+      response.setContentType("text/plain");
+      response.setContentLength(body.length);
+      try (OutputStream out = response.getOutputStream()) {
+        out.write(body);
+      }
+    }
+  }
+}
@@ -0,0 +1,162 @@
+package com.base.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/** A lock free histogram of latencies that does not allocate on record.
+ *
+ * Like HdrHistogram, each power of two nanoseconds is split in {@link
+ * #SUB_BUCKETS} linear sub buckets. Percentiles are reported as the upper
+ * bound of their bucket, so they overestimate the actual value by less than
+ * 1 / {@link #SUB_BUCKETS}.
+ * <br>
+ * It is shared by the orm metrics, that report the query and connection
+ * borrow latencies, and the web metrics, that report the request latencies.
+ */
+public final class LatencyHistogram {
+
+  /** The bits of the sub bucket of a sample. */
+  private static final int SUB_BUCKET_BITS = 3;
+
+  /** The number of sub buckets per power of two. */
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+  /** The number of buckets, enough for any positive long. */
+  private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS)
+      * SUB_BUCKETS;
+
+  /** The percentile of all the samples. */
+  private static final double ALL = 100;
+
+  /** The number of samples in each bucket, never null. */
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+  /** The greatest sample, in nanoseconds, never null. */
+  private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+  /** The sum of the samples, in nanoseconds, never null. */
+  private final LongAdder sum = new LongAdder();
+
+  /** Records a sample.
+   *
+   * @param nanos the latency in nanoseconds, negative values count as 0.
+   */
+  public void record(final long nanos) {
+    long sample = Math.max(nanos, 0);
+    buckets.incrementAndGet(index(sample));
+    max.accumulate(sample);
+    sum.add(sample);
+  }
+
+  /** Records a sample.
+   *
+   * @param duration the latency.
+   * @param unit the unit of the latency, cannot be null.
+   */
+  public void record(final long duration, final TimeUnit unit) {
+    record(unit.toNanos(duration));
+  }
+
+  /** Returns the number of samples.
+   *
+   * @return the count.
+   */
+  public long getCount() {
+    long count = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      count += buckets.get(i);
+    }
+    return count;
+  }
+
+  /** Returns the sum of the samples.
+   *
+   * @return the sum in nanoseconds.
+   */
+  public long getSum() {
+    return sum.sum();
+  }
+
+  /** Returns the greatest sample.
+   *
+   * @return the max latency in nanoseconds, 0 if there are no samples.
+   */
+  public long getMax() {
+    return max.get();
+  }
+
+  /** Returns an upper bound of a percentile of the samples.
+   *
+   * @param percentile the percentile, between 0 and 100.
+   *
+   * @return the latency in nanoseconds, 0 if there are no samples.
+   */
+  public long getPercentile(final double percentile) {
+    return getPercentile(percentile, this);
+  }
+
+  /** Returns an upper bound of a percentile of the samples of several
+   * histograms taken together.
+   *
+   * @param percentile the percentile, between 0 and 100.
+   * @param histograms the histograms, cannot be null.
+   *
+   * @return the latency in nanoseconds, 0 if there are no samples.
+   */
+  public static long getPercentile(final double percentile,
+      final LatencyHistogram... histograms) {
+    long[] counts = new long[BUCKETS];
+    long count = 0;
+    long greatest = 0;
+    for (LatencyHistogram histogram : histograms) {
+      for (int i = 0; i < BUCKETS; i++) {
+        long bucket = histogram.buckets.get(i);
+        counts[i] += bucket;
+        count += bucket;
+      }
+      greatest = Math.max(greatest, histogram.getMax());
+    }
+    long rank = (long) Math.ceil(count * percentile / ALL);
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += counts[i];
+      if (seen >= rank && seen > 0) {
+        return Math.min(upperBound(i), greatest);
+      }
+    }
+    return 0;
+  }
+
+  /** Finds the bucket of a sample.
+   *
+   * @param sample the sample, 0 or more.
+   *
+   * @return the bucket index.
+   */
+  private static int index(final long sample) {
+    if (sample < SUB_BUCKETS) {
+      return (int) sample;
+    }
+    int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(sample);
+    int shift = exponent - SUB_BUCKET_BITS;
+    return (shift + 1) * SUB_BUCKETS
+        + (int) ((sample >>> shift) & (SUB_BUCKETS - 1));
+  }
+
+  /** Returns the greatest sample of a bucket.
+   *
+   * @param index the bucket index.
+   *
+   * @return the upper bound in nanoseconds.
+   */
+  private static long upperBound(final int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    int shift = index / SUB_BUCKETS - 1;
+    long mantissa = SUB_BUCKETS + index % SUB_BUCKETS;
+    return ((mantissa + 1) << shift) - 1;
+  }
+}
@@ -0,0 +1,68 @@
+package com.base.metrics;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+  @Test
+  public void getPercentile_bucketUpperBound() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 0; i < 99; i++) {
+      histogram.record(100);
+    }
+    histogram.record(1, TimeUnit.MILLISECONDS);
+
+    assertThat(histogram.getCount(), is(100L));
+    assertThat(histogram.getSum(), is(99 * 100L + 1000000L));
+    // 100 is in the [96, 103] sub bucket of [64, 127].
+    assertThat(histogram.getPercentile(50), is(103L));
+    assertThat(histogram.getPercentile(99), is(103L));
+    assertThat(histogram.getPercentile(100), is(1000000L));
+    assertThat(histogram.getMax(), is(1000000L));
+  }
+
+  @Test
+  public void getPercentile_subBuckets() {
+    LatencyHistogram first = new LatencyHistogram();
+    LatencyHistogram second = new LatencyHistogram();
+    for (long nanos = 1; nanos <= 1000000; nanos += 97) {
+      first.record(nanos);
+      second.record(nanos * 3);
+    }
+
+    for (double percentile : new double[] {50, 90, 99}) {
+      long actual = exact(percentile);
+      long reported = LatencyHistogram.getPercentile(percentile, first,
+          second);
+      assertThat(reported >= actual, is(true));
+      assertThat(reported - actual <= actual / 8, is(true));
+    }
+  }
+
+  @Test
+  public void getPercentile_empty() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(0);
+
+    assertThat(new LatencyHistogram().getPercentile(99), is(0L));
+    assertThat(histogram.getPercentile(99), is(0L));
+  }
+
+  private static long exact(final double percentile) {
+    List<Long> samples = new ArrayList<>();
+    for (long nanos = 1; nanos <= 1000000; nanos += 97) {
+      samples.add(nanos);
+      samples.add(nanos * 3);
+    }
+    Collections.sort(samples);
+    int rank = (int) Math.ceil(samples.size() * percentile / 100);
+    return samples.get(rank - 1);
+  }
+}
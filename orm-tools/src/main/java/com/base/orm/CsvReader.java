@@ -0,0 +1,117 @@
+package com.base.orm;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.lang3.Validate;
+
+/** Reads comma separated values, one record at a time.
+ *
+ * It follows RFC 4180: fields may be enclosed in double quotes, a quoted field
+ * may contain commas, line breaks and double quotes written twice. Records
+ * end in LF or CRLF.
+ */
+final class CsvReader implements Closeable {
+
+  /** The field separator. */
+  private static final char SEPARATOR = ',';
+
+  /** The field delimiter. */
+  private static final char QUOTE = '"';
+
+  /** Marks that no character was read ahead of time. */
+  private static final int NONE = -2;
+
+  /** The source of characters, never null. */
+  private final BufferedReader reader;
+
+  /** A character read ahead of time, or NONE if there is none. */
+  private int pending = NONE;
+
+  /** Constructor, creates a new reader.
+   *
+   * @param theReader the reader to read from, it is closed with this instance.
+   * Cannot be null.
+   */
+  CsvReader(final Reader theReader) {
+    Validate.notNull(theReader, "The reader cannot be null.");
+    reader = new BufferedReader(theReader);
+  }
+
+  /** Reads the next record.
+   *
+   * @return the fields of the record, or null at the end of the input. Empty
+   * lines result in a record with a single empty field.
+   *
+   * @throws IOException if the input cannot be read or a quoted field is not
+   * closed.
+   */
+  String[] next() throws IOException {
+    int c = read();
+    if (c == -1) {
+      return null;
+    }
+    List<String> fields = new ArrayList<>();
+    StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+    while (true) {
+      if (quoted) {
+        if (c == -1) {
+          throw new IOException("Unterminated quoted field in csv input");
+        }
+        if (c == QUOTE) {
+          int following = read();
+          if (following == QUOTE) {
+            field.append(QUOTE);
+          } else {
+            quoted = false;
+            pending = following;
+          }
+        } else {
+          field.append((char) c);
+        }
+      } else if (c == QUOTE) {
+        quoted = true;
+      } else if (c == SEPARATOR) {
+        fields.add(field.toString());
+        field.setLength(0);
+      } else if (c == '\r' || c == '\n' || c == -1) {
+        if (c == '\r') {
+          int following = read();
+          if (following != '\n') {
+            pending = following;
+          }
+        }
+        fields.add(field.toString());
+        return fields.toArray(new String[fields.size()]);
+      } else {
+        field.append((char) c);
+      }
+      c = read();
+    }
+  }
+
+  /** Reads a character, honoring the one read ahead of time.
+   *
+   * @return the character, or -1 at the end of the input.
+   *
+   * @throws IOException if the input cannot be read.
+   */
+  private int read() throws IOException {
+    if (pending != NONE) {
+      int c = pending;
+      pending = NONE;
+      return c;
+    }
+    return reader.read();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void close() throws IOException {
+    reader.close();
+  }
+}
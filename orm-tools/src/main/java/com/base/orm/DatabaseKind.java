@@ -0,0 +1,39 @@
+package com.base.orm;
+
+import org.apache.commons.lang3.Validate;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.dialect.MySQLDialect;
+
+/** The database engines DatabaseUtility knows how to take shortcuts with.
+ *
+ * Anything that is not recognized is handled with plain, portable jdbc.
+ */
+enum DatabaseKind {
+
+  /** The H2 database. */
+  H2,
+
+  /** MySQL and its variants, like MariaDB. */
+  MYSQL,
+
+  /** Any other database. */
+  OTHER;
+
+  /** Resolves the kind of database a dialect talks to.
+   *
+   * @param dialect the hibernate dialect, cannot be null.
+   *
+   * @return the database kind, never null.
+   */
+  static DatabaseKind of(final Dialect dialect) {
+    Validate.notNull(dialect, "The dialect cannot be null.");
+    if (dialect instanceof H2Dialect) {
+      return H2;
+    }
+    if (dialect instanceof MySQLDialect) {
+      return MYSQL;
+    }
+    return OTHER;
+  }
+}
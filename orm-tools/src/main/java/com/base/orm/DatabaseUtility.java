@@ -1,27 +1,57 @@
 package com.base.orm;
 
 import java.io.File;
-import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
-import org.apache.commons.io.filefilter.RegexFileFilter;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 import org.apache.commons.lang3.StringEscapeUtils;
 import org.apache.commons.lang3.Validate;
-import org.hibernate.Session;
-import org.hibernate.Transaction;
 import org.hibernate.boot.Metadata;
+import org.hibernate.mapping.Column;
+import org.hibernate.mapping.Join;
+import org.hibernate.mapping.PersistentClass;
+import org.hibernate.mapping.Property;
+import org.hibernate.mapping.Selectable;
+import org.hibernate.mapping.Table;
 import org.hibernate.tool.hbm2ddl.SchemaExport;
 import org.hibernate.tool.schema.TargetType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /** Utility to manage databases in test environments.
+ *
+ * It only covers the database of the {@link HibernateComponent} it is built
+ * with: the tables of the modules with their own data source, see {@link
+ * ModuleHibernateComponents}, live in another database. To manage them, build
+ * a utility for each component, like
+ * <code>new DatabaseUtility(components.get("module"))</code>.
  */
 public class DatabaseUtility {
   /** The logger. */
@@ -33,14 +63,26 @@ public class DatabaseUtility {
   /** The dialect place holder. */
   private static final String DIALECT_PLACE_HOLDER = "{dialect}";
 
+  /** The number of statements sent to the database in each batch, unless
+   * specified. */
+  private static final int DEFAULT_BATCH_SIZE = 500;
+
+  /** The maximum number of tables wiped, copied or restored at the same
+   * time. */
+  private static final int TABLE_PARALLELISM =
+      Runtime.getRuntime().availableProcessors();
+
+  /** The valid snapshot names. */
+  private static final Pattern SNAPSHOT_NAME = Pattern.compile("\\w+");
+
   /** The {@link HibernateComponent} instance, never null after
    * initialization. */
   private HibernateComponent hibernateComponent;
 
   /** Constructor with mandatory parameters.
    *
-   * @param theHibernateComponent the {@link HibernateComponent} instance,
-   * cannot be null.
+   * @param theHibernateComponent the {@link HibernateComponent} of the
+   * managed database, usually the shared one. Cannot be null.
    */
   public DatabaseUtility(final HibernateComponent theHibernateComponent) {
     Validate.notNull(theHibernateComponent, "The HibernateComponent is null");
@@ -65,6 +107,217 @@ public class DatabaseUtility {
     runSqlCommands(statements.toArray(new String[statements.size()]));
   }
 
+  /** Removes all the rows of the tables of every module.
+   *
+   * @see #wipe(String)
+   */
+  public void wipe() {
+    wipe(collectTables(module -> true));
+  }
+
+  /** Removes all the rows of the tables of a module.
+   *
+   * The tables are emptied in waves that follow their foreign keys, as
+   * computed by {@link ForeignKeyOrder}, and the tables of a wave are emptied
+   * in parallel, each one in its own connection. H2 and MySQL truncate the
+   * tables, disabling the foreign key checks while doing it. Other databases
+   * delete the rows, so they cannot wipe tables in a reference cycle.
+   * <br>
+   * The tables referenced from other modules must be wiped along with the
+   * ones that reference them.
+   *
+   * @param module the module name, cannot be null nor empty.
+   */
+  public void wipe(final String module) {
+    Validate.notEmpty(module, "The module cannot be empty");
+
+    Set<Table> tables = collectTables(module::equals);
+    Validate.notEmpty(tables, "Unknown module %s", module);
+    wipe(tables);
+  }
+
+  /** Copies the rows of the tables of every module into shadow tables, to
+   * bring them back later with {@link #restore(String)}.
+   *
+   * Each table is copied to snap_&lt;name&gt;_&lt;table&gt; with create table
+   * as select, in parallel, replacing the previous snapshot with the same
+   * name. The copy is not consistent if other connections modify the
+   * tables while it runs. Snapshots live in the database until {@link
+   * #dropSnapshot(String)}, so they are shared by all the DatabaseUtility
+   * instances.
+   *
+   * @param name the snapshot name, made of letters, digits and underscores.
+   * Cannot be null.
+   */
+  public void snapshot(final String name) {
+    validateSnapshotName(name);
+
+    Set<Table> tables = collectTables(module -> true);
+    dropSnapshot(name);
+    runInWaves(Collections.singletonList(new ArrayList<>(tables)),
+        table -> execute("create table " + snapshotTable(name, table)
+            + " as select * from " + table.getName()));
+  }
+
+  /** Brings back the rows of the tables of every module as they were when
+   * the snapshot was taken.
+   *
+   * The tables are wiped, see {@link #wipe()}, and then filled from the
+   * shadow tables in waves, referenced tables first. The tables in a foreign
+   * key cycle cannot be restored unless the cycle is broken by a nullable
+   * column.
+   *
+   * @param name the name given to {@link #snapshot(String)}, cannot be null.
+   */
+  public void restore(final String name) {
+    validateSnapshotName(name);
+
+    Set<Table> tables = collectTables(module -> true);
+    List<List<Table>> waves = new ArrayList<>(
+        new ForeignKeyOrder(tables).getWaves());
+    wipe(tables);
+    Collections.reverse(waves);
+    runInWaves(waves, table -> {
+      List<String> columns = new ArrayList<>();
+      table.getColumnIterator().forEachRemaining(
+          column -> columns.add(((Column) column).getName()));
+      String columnList = String.join(", ", columns);
+      execute("insert into " + table.getName() + " (" + columnList + ")"
+          + " select " + columnList + " from " + snapshotTable(name, table));
+    });
+    hibernateComponent.evictCaches();
+  }
+
+  /** Drops the shadow tables of a snapshot, if they exist.
+   *
+   * @param name the name given to {@link #snapshot(String)}, cannot be null.
+   */
+  public void dropSnapshot(final String name) {
+    validateSnapshotName(name);
+
+    runInWaves(Collections.singletonList(
+        new ArrayList<>(collectTables(module -> true))),
+        table -> execute("drop table if exists "
+            + snapshotTable(name, table)));
+  }
+
+  /** Verifies that a snapshot name can be part of a table name.
+   *
+   * @param name the snapshot name.
+   */
+  private static void validateSnapshotName(final String name) {
+    Validate.isTrue(name != null && SNAPSHOT_NAME.matcher(name).matches(),
+        "Invalid snapshot name %s", name);
+  }
+
+  /** Builds the name of the shadow table of a table.
+   *
+   * @param name the snapshot name, cannot be null.
+   * @param table the table, cannot be null.
+   *
+   * @return the shadow table name, never null.
+   */
+  private static String snapshotTable(final String name, final Table table) {
+    return "snap_" + name + "_" + table.getName();
+  }
+
+  /** Collects the tables of the entities and collections of some modules.
+   *
+   * @param modules selects the modules, cannot be null.
+   *
+   * @return the physical tables, never null.
+   */
+  private Set<Table> collectTables(final Predicate<String> modules) {
+    Metadata metadata = hibernateComponent.getMetadata();
+    Set<Table> tables = new LinkedHashSet<>();
+    metadata.getEntityBindings().stream()
+        .filter(binding -> modules.test(
+            hibernateComponent.getModule(binding.getMappedClass())))
+        .forEach(binding -> {
+          tables.add(binding.getTable());
+          binding.getJoinIterator().forEachRemaining(
+              join -> tables.add(((Join) join).getTable()));
+        });
+    metadata.getCollectionBindings().stream()
+        .filter(collection -> collection.getCollectionTable() != null)
+        .filter(collection -> modules.test(hibernateComponent.getModule(
+            collection.getOwner().getMappedClass())))
+        .forEach(collection -> tables.add(collection.getCollectionTable()));
+    tables.removeIf(table -> !table.isPhysicalTable());
+    return tables;
+  }
+
+  /** Removes all the rows of the given tables.
+   *
+   * @param tables the tables, cannot be null.
+   */
+  private void wipe(final Set<Table> tables) {
+    DatabaseKind kind = getDatabaseKind();
+    runInWaves(new ForeignKeyOrder(tables).getWaves(),
+        table -> wipe(kind, table.getName()));
+    hibernateComponent.evictCaches();
+  }
+
+  /** Runs an action on each table, wave after wave, in parallel for the
+   * tables of a wave.
+   *
+   * @param waves the tables, cannot be null.
+   * @param action the action to run on each table, cannot be null.
+   */
+  private static void runInWaves(final List<List<Table>> waves,
+      final Consumer<Table> action) {
+    ExecutorService executor = newExecutor(TABLE_PARALLELISM,
+        "database-tables");
+    try {
+      for (List<Table> wave : waves) {
+        List<CompletableFuture<Void>> running = new ArrayList<>();
+        wave.forEach(table -> running.add(CompletableFuture.runAsync(
+            () -> action.accept(table), executor)));
+        joinAll(running);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /** Removes all the rows of a table, in its own connection.
+   *
+   * @param kind the database kind, cannot be null.
+   * @param table the table name, cannot be null.
+   */
+  private void wipe(final DatabaseKind kind, final String table) {
+    log.debug("Wiping table {}", table);
+    try (Connection connection = hibernateComponent.getDataSource()
+            .getConnection();
+        Statement statement = connection.createStatement()) {
+      switch (kind) {
+        case H2:
+          statement.execute("alter table " + table
+              + " set referential_integrity false");
+          try {
+            statement.execute("truncate table " + table);
+          } finally {
+            statement.execute("alter table " + table
+                + " set referential_integrity true nocheck");
+          }
+          break;
+        case MYSQL:
+          statement.execute("set foreign_key_checks = 0");
+          try {
+            statement.execute("truncate table " + table);
+          } finally {
+            statement.execute("set foreign_key_checks = 1");
+          }
+          break;
+        default:
+          statement.execute("delete from " + table);
+      }
+    } catch (SQLException e) {
+      log.error(e.getMessage());
+      throw new RuntimeException(e);
+    }
+  }
+
   /** Regenerate the schema defined in the {@link #hibernateComponent}
    *  attribute.
    */
@@ -75,6 +328,7 @@ public class DatabaseUtility {
         .setHaltOnError(true)
         .create(EnumSet.of(TargetType.DATABASE),
             hibernateComponent.getMetadata());
+    hibernateComponent.evictCaches();
   }
 
   /** Generates an initialization script.
@@ -129,26 +383,43 @@ public class DatabaseUtility {
     }
   }
 
-  /** Runs a set of sql sentences stored in a file.
+  /** Runs a set of sql sentences stored in a file, or in all the *.sql files
+   * of a directory.
    *
-   * Sentences in the file are delimited by a line ending in ;.
+   * The scripts of a directory run one after the other, in the order defined
+   * by {@link SqlScriptPlan}.
    *
-   * @param fileName the String with the file name.
+   * @param fileName the String with the file or directory name.
    */
   public void runSqlScript(final String fileName) {
+    runSqlScript(fileName, 1);
+  }
+
+  /** Runs a set of sql sentences stored in a file, or in all the *.sql files
+   * of a directory, running independent scripts concurrently.
+   *
+   * Scripts are grouped by their numeric prefix. Groups run in order, and the
+   * scripts in a group run concurrently, each one in its own connection,
+   * unless a script declares that it depends on another one. See {@link
+   * SqlScriptPlan} for the details.
+   * <br>
+   * Each script is committed on its own. If a script fails, the ones that
+   * depend on it and the following groups are not run.
+   *
+   * @param fileName the String with the file or directory name.
+   * @param parallelism the maximum number of scripts to run at the same
+   * time, greater than 0.
+   */
+  public void runSqlScript(final String fileName, final int parallelism) {
     Validate.notEmpty(fileName, "Script File Name is null or empty");
+    Validate.isTrue(parallelism > 0, "The parallelism must be positive");
 
     log.trace("Entering runSqlSentences('" + fileName + "')");
-    Validate.notNull(fileName, "The file name cannot be null.");
 
     File file = new File(fileName);
     if (file.exists()) {
       if (file.isDirectory()) {
-        FilenameFilter filter = new RegexFileFilter(".*\\.sql");
-        File[] sqlScripts = file.listFiles(filter);
-        Arrays.stream(sqlScripts)
-            .sorted()
-            .forEach(this::runSqlScript);
+        runSqlScripts(new SqlScriptPlan(file), parallelism);
       } else {
         runSqlScript(file);
       }
@@ -160,43 +431,422 @@ public class DatabaseUtility {
     log.trace("Leaving runSqlSentences");
   }
 
+  /** Runs the scripts of a plan, group after group.
+   *
+   * @param plan the plan to run, cannot be null.
+   * @param parallelism the maximum number of scripts to run at the same time.
+   */
+  private void runSqlScripts(final SqlScriptPlan plan,
+      final int parallelism) {
+    ExecutorService executor = newExecutor(parallelism, "sql-script-runner");
+    try {
+      for (List<File> group : plan.getGroups()) {
+        Map<File, CompletableFuture<Void>> running = new HashMap<>();
+        for (File script : group) {
+          List<CompletableFuture<Void>> dependencies = new ArrayList<>();
+          plan.getDependencies(script).stream()
+              .filter(running::containsKey)
+              .forEach(dependency -> dependencies.add(running.get(dependency)));
+          running.put(script, CompletableFuture.allOf(dependencies
+              .toArray(new CompletableFuture<?>[dependencies.size()]))
+              .thenRunAsync(() -> {
+                log.debug("Running script {}", script.getName());
+                runSqlScript(script);
+              }, executor));
+        }
+        joinAll(running.values());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /** Creates a pool of daemon threads.
+   *
+   * @param threads the number of threads, greater than 0.
+   * @param name the name of the threads, cannot be null.
+   *
+   * @return a new executor, never null. It must be shut down.
+   */
+  private static ExecutorService newExecutor(final int threads,
+      final String name) {
+    return Executors.newFixedThreadPool(threads, runnable -> {
+      Thread thread = new Thread(runnable, name);
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /** Waits for some tasks to complete.
+   *
+   * @param tasks the tasks, cannot be null.
+   *
+   * @throws RuntimeException the exception thrown by a failed task.
+   */
+  private static void joinAll(final Collection<CompletableFuture<Void>> tasks) {
+    try {
+      CompletableFuture.allOf(tasks
+          .toArray(new CompletableFuture<?>[tasks.size()])).join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
   /** Runs a set of sql sentences stored in a file.
    *
-   * Sentences in the file are delimited by a line ending in ;.
+   * The file is read lazily while the sentences are run in batches of {@link
+   * #DEFAULT_BATCH_SIZE}, in a single transaction.
    *
-   * @param file the String with the file name.
+   * @param file the script file, cannot be null.
+   *
+   * @see SqlScriptParser#stream(File) for the script syntax.
    */
   public void runSqlScript(final File file) {
+    runSqlScript(file, DEFAULT_BATCH_SIZE, 0);
+  }
+
+  /** Runs a set of sql sentences stored in a file, in chunked batches.
+   *
+   * The file is parsed in a separate thread while the sentences are run, so
+   * the memory used does not depend on the size of the script.
+   *
+   * @param file the script file, cannot be null.
+   * @param batchSize the number of sentences sent to the database in each
+   * batch, greater than 0.
+   * @param commitInterval the number of sentences run between commits, 0 to
+   * commit only at the end.
+   *
+   * @return the final progress, never null.
+   *
+   * @see SqlScriptParser#stream(File) for the script syntax.
+   */
+  public SqlExecutionProgress runSqlScript(final File file,
+      final int batchSize, final int commitInterval) {
     Validate.notNull(file, "Script File is null");
 
     SqlScriptParser parser = new SqlScriptParser();
-    runSqlCommands(parser.parse(file));
+    try (Stream<String> sentences = parser.stream(file)) {
+      return runSqlCommands(sentences, batchSize, commitInterval);
+    }
   }
 
   /** executes the given statements.
+   *
+   * The statements are run in batches of {@link #DEFAULT_BATCH_SIZE}, in a
+   * single transaction.
    *
    * @param commands the statements to run, cannot be null.
    */
   public void runSqlCommands(final String... commands) {
     Validate.notEmpty(commands, "No commands to run");
 
-    try (Session session = hibernateComponent.getSessionFactory()
-        .openSession()) {
-      Transaction tx = session.beginTransaction();
-      try (Connection connection = hibernateComponent.getDataSource()
-          .getConnection()) {
-        try (Statement statement = connection.createStatement()) {
-          for (String sentence : commands) {
-            statement.addBatch(StringEscapeUtils.unescapeJava(sentence));
+    runSqlCommands(Arrays.stream(commands), DEFAULT_BATCH_SIZE, 0);
+  }
+
+  /** Executes the given statements in chunked batches.
+   *
+   * @param commands the statements to run, cannot be null. It is consumed in a
+   * separate thread, but not closed.
+   * @param batchSize the number of statements sent to the database in each
+   * batch, greater than 0.
+   * @param commitInterval the number of statements run between commits, 0 to
+   * commit only at the end.
+   *
+   * @return the final progress, never null.
+   *
+   * @see SqlBatchExecutor
+   */
+  public SqlExecutionProgress runSqlCommands(final Stream<String> commands,
+      final int batchSize, final int commitInterval) {
+    Validate.notNull(commands, "No commands to run");
+
+    SqlBatchExecutor executor = new SqlBatchExecutor(
+        hibernateComponent.getDataSource(), batchSize, commitInterval,
+        progress -> log.trace("Running sql commands: {}", progress));
+    try {
+      return executor.execute(commands.map(StringEscapeUtils::unescapeJava));
+    } finally {
+      // the commands may have changed anything behind the second level cache
+      hibernateComponent.evictCaches();
+    }
+  }
+
+  /** Loads the rows of a csv file into the table of an entity.
+   *
+   * The first line of the file names the columns, either by their column
+   * name or by the name of the property mapped to them, ignoring case. The
+   * columns not in the file take their default value, so the identifier must
+   * be present unless the database generates it.
+   * <br>
+   * The rows are loaded with the fastest mechanism of the database: CSVREAD
+   * in H2 and LOAD DATA LOCAL INFILE in MySQL (the connection must allow
+   * it, with allowLoadLocalInfile=true). If that fails, or with any other
+   * database, the rows are inserted with batches of {@link
+   * #DEFAULT_BATCH_SIZE} prepared statements in a single transaction. Empty
+   * fields are inserted as null whatever the mechanism.
+   *
+   * @param entity the entity, it must be a persistent class. Cannot be null.
+   * @param csv the UTF-8 csv file, as described in {@link CsvReader}. Cannot
+   * be null.
+   *
+   * @return the number of imported rows.
+   */
+  public long bulkImport(final Class<?> entity, final Path csv) {
+    Validate.notNull(entity, "The entity to import cannot be null");
+    Validate.notNull(csv, "The csv file cannot be null");
+
+    try {
+      return importRows(entity, csv);
+    } finally {
+      hibernateComponent.evictCaches();
+    }
+  }
+
+  /** Loads the rows of a csv file into the table of an entity, see {@link
+   * #bulkImport(Class, Path)}.
+   *
+   * @param entity the entity, it must be a persistent class. Cannot be null.
+   * @param csv the csv file, cannot be null.
+   *
+   * @return the number of imported rows.
+   */
+  private long importRows(final Class<?> entity, final Path csv) {
+
+    PersistentClass binding = hibernateComponent.getMetadata()
+        .getEntityBinding(entity.getName());
+    Validate.notNull(binding, "%s is not a persistent class", entity);
+    String table = binding.getTable().getName();
+    List<String> columnNames = resolveColumns(binding, csv);
+    String columns = String.join(", ", columnNames);
+
+    DatabaseKind kind = getDatabaseKind();
+    try {
+      if (kind == DatabaseKind.H2) {
+        return executeUpdate("insert into " + table + " (" + columns + ")"
+            + " select * from csvread('" + escapeLiteral(csv) + "', null,"
+            + " 'UTF-8')");
+      }
+      if (kind == DatabaseKind.MYSQL) {
+        return executeUpdate(loadData(table, columnNames, csv));
+      }
+    } catch (SQLException e) {
+      log.warn("Unable to bulk load {}, falling back to batched inserts: {}",
+          csv, e.getMessage());
+    }
+    return importBatched(table, columns, csv);
+  }
+
+  /** Builds the MySQL statement that loads a csv file into a table.
+   *
+   * LOAD DATA stores the empty fields as the empty string, or 0 in numeric
+   * columns, so each field is read into a user variable and stored as null
+   * when it is empty, like the batched inserts do.
+   *
+   * @param table the table name, cannot be null.
+   * @param columns the column names, in the order of the file, cannot be
+   * null.
+   * @param csv the csv file, cannot be null.
+   *
+   * @return the LOAD DATA LOCAL INFILE statement, never null.
+   */
+  static String loadData(final String table, final List<String> columns,
+      final Path csv) {
+    List<String> fields = new ArrayList<>();
+    List<String> assignments = new ArrayList<>();
+    for (int i = 0; i < columns.size(); i++) {
+      fields.add("@f" + i);
+      assignments.add(columns.get(i) + " = nullif(@f" + i + ", '')");
+    }
+    return "load data local infile '" + escapeLiteral(csv)
+        + "' into table " + table + " character set utf8"
+        + " fields terminated by ',' optionally enclosed by '\"'"
+        + " escaped by '' lines terminated by '" + lineTerminator(csv)
+        + "' ignore 1 lines (" + String.join(", ", fields) + ") set "
+        + String.join(", ", assignments);
+  }
+
+  /** Maps the header of a csv file to the columns of the entity table.
+   *
+   * @param binding the entity mapping, cannot be null.
+   * @param csv the csv file, cannot be null.
+   *
+   * @return the column names, in the order of the file, never empty.
+   */
+  private List<String> resolveColumns(final PersistentClass binding,
+      final Path csv) {
+    Map<String, String> names = new HashMap<>();
+    Iterator<?> columns = binding.getTable().getColumnIterator();
+    while (columns.hasNext()) {
+      String column = ((Column) columns.next()).getName();
+      names.put(column.toLowerCase(Locale.ROOT), column);
+    }
+    List<Property> properties = new ArrayList<>();
+    if (binding.getIdentifierProperty() != null) {
+      properties.add(binding.getIdentifierProperty());
+    }
+    binding.getPropertyClosureIterator()
+        .forEachRemaining(property -> properties.add((Property) property));
+    for (Property property : properties) {
+      Iterator<?> selectables = property.getColumnIterator();
+      if (property.getColumnSpan() == 1) {
+        Selectable selectable = (Selectable) selectables.next();
+        if (selectable instanceof Column) {
+          names.putIfAbsent(property.getName().toLowerCase(Locale.ROOT),
+              ((Column) selectable).getName());
+        }
+      }
+    }
+
+    String[] header;
+    try (CsvReader reader = new CsvReader(
+        Files.newBufferedReader(csv, StandardCharsets.UTF_8))) {
+      header = reader.next();
+    } catch (IOException e) {
+      log.error(e.getMessage());
+      throw new RuntimeException(e);
+    }
+    Validate.isTrue(header != null, "The csv file %s is empty", csv);
+
+    List<String> result = new ArrayList<>();
+    for (String name : header) {
+      String column = names.get(name.trim().toLowerCase(Locale.ROOT));
+      Validate.isTrue(column != null, "Unknown column %s in %s", name, csv);
+      result.add(column);
+    }
+    return result;
+  }
+
+  /** Inserts the rows of a csv file with batched prepared statements.
+   *
+   * @param table the table name, cannot be null.
+   * @param columns the comma separated column names, in the order of the
+   * file, cannot be null.
+   * @param csv the csv file, cannot be null.
+   *
+   * @return the number of inserted rows.
+   */
+  private long importBatched(final String table, final String columns,
+      final Path csv) {
+    String[] names = columns.split(", ");
+    String sql = "insert into " + table + " (" + columns + ") values ("
+        + String.join(", ", Collections.nCopies(names.length, "?")) + ")";
+    try (CsvReader reader = new CsvReader(
+            Files.newBufferedReader(csv, StandardCharsets.UTF_8));
+        Connection connection = hibernateComponent.getDataSource()
+            .getConnection()) {
+      reader.next();
+      boolean autoCommit = connection.getAutoCommit();
+      connection.setAutoCommit(false);
+      try (PreparedStatement statement = connection.prepareStatement(sql)) {
+        long rows = 0;
+        for (String[] fields = reader.next(); fields != null;
+            fields = reader.next()) {
+          if (fields.length == 1 && fields[0].isEmpty()) {
+            continue;
+          }
+          Validate.isTrue(fields.length == names.length,
+              "Row %s of %s has %s fields, expected %s", rows + 2, csv,
+              fields.length, names.length);
+          for (int i = 0; i < fields.length; i++) {
+            statement.setString(i + 1,
+                fields[i].isEmpty() ? null : fields[i]);
+          }
+          statement.addBatch();
+          rows++;
+          if (rows % DEFAULT_BATCH_SIZE == 0) {
+            statement.executeBatch();
           }
-          statement.executeBatch();
         }
-      } catch (SQLException ioe) {
-        tx.rollback();
-        log.error(ioe.getMessage());
-        throw new RuntimeException(ioe);
+        statement.executeBatch();
+        connection.commit();
+        return rows;
+      } catch (SQLException | RuntimeException e) {
+        connection.rollback();
+        throw e;
+      } finally {
+        connection.setAutoCommit(autoCommit);
       }
-      tx.commit();
+    } catch (SQLException | IOException e) {
+      log.error(e.getMessage());
+      throw new RuntimeException(e);
+    }
+  }
+
+  /** Resolves the kind of the database from the configured dialect.
+   *
+   * @return the database kind, never null.
+   */
+  private DatabaseKind getDatabaseKind() {
+    return DatabaseKind.of(hibernateComponent.getMetadata().getDatabase()
+        .getJdbcEnvironment().getDialect());
+  }
+
+  /** Executes a single statement in its own connection, wrapping any
+   * failure in a RuntimeException.
+   *
+   * @param sql the statement, cannot be null.
+   */
+  private void execute(final String sql) {
+    try {
+      executeUpdate(sql);
+    } catch (SQLException e) {
+      log.error(e.getMessage());
+      throw new RuntimeException(e);
+    }
+  }
+
+  /** Executes a single statement in its own connection.
+   *
+   * @param sql the statement, cannot be null.
+   *
+   * @return the number of affected rows.
+   *
+   * @throws SQLException if the statement fails.
+   */
+  private long executeUpdate(final String sql) throws SQLException {
+    log.debug("Executing {}", sql);
+    try (Connection connection = hibernateComponent.getDataSource()
+            .getConnection();
+        Statement statement = connection.createStatement()) {
+      return statement.executeUpdate(sql);
+    }
+  }
+
+  /** Writes a file path as the content of a sql string literal.
+   *
+   * @param file the file, cannot be null.
+   *
+   * @return the absolute path of the file, with forward slashes and quotes
+   * escaped, never null.
+   */
+  private static String escapeLiteral(final Path file) {
+    return file.toAbsolutePath().toString().replace('\\', '/')
+        .replace("'", "''");
+  }
+
+  /** Finds out how the lines of a file end.
+   *
+   * @param file the file, cannot be null.
+   *
+   * @return the escaped line terminator as written in a MySQL string
+   * literal, never null.
+   */
+  private static String lineTerminator(final Path file) {
+    try (InputStream input = Files.newInputStream(file)) {
+      int previous = -1;
+      for (int c = input.read(); c != -1; c = input.read()) {
+        if (c == '\n') {
+          return previous == '\r' ? "\\r\\n" : "\\n";
+        }
+        previous = c;
+      }
+      return "\\n";
+    } catch (IOException e) {
+      log.error(e.getMessage());
+      throw new RuntimeException(e);
     }
   }
 
@@ -0,0 +1,83 @@
+package com.base.orm;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.commons.lang3.Validate;
+import org.hibernate.mapping.ForeignKey;
+import org.hibernate.mapping.Table;
+
+/** Sorts a set of tables following their foreign keys.
+ *
+ * The tables are split in waves: no table of a wave references a table of the
+ * same wave or of a later one, so the rows of the tables of a wave can be
+ * removed at the same time once the previous waves are empty. Reading the
+ * waves backwards gives the order to fill the tables.
+ * <br>
+ * Only the foreign keys between the given tables are considered. Tables that
+ * reference themselves are fine, but tables in a longer reference cycle are
+ * all placed in the last wave, so removing their rows needs the foreign keys
+ * disabled.
+ */
+final class ForeignKeyOrder {
+
+  /** The waves, from the tables that nobody references to the most
+   * referenced ones, never null. */
+  private final List<List<Table>> waves;
+
+  /** Constructor, sorts the given tables.
+   *
+   * @param tables the tables to sort, cannot be null.
+   */
+  ForeignKeyOrder(final Collection<Table> tables) {
+    Validate.notNull(tables, "The tables cannot be null.");
+
+    Set<Table> pending = new LinkedHashSet<>(tables);
+    Map<Table, Set<Table>> referenced = new HashMap<>();
+    Map<Table, Integer> referencing = new HashMap<>();
+    pending.forEach(table -> referencing.put(table, 0));
+    for (Table table : pending) {
+      Set<Table> parents = new HashSet<>();
+      Iterator<?> keys = table.getForeignKeyIterator();
+      while (keys.hasNext()) {
+        Table parent = ((ForeignKey) keys.next()).getReferencedTable();
+        if (parent != table && pending.contains(parent)
+            && parents.add(parent)) {
+          referencing.merge(parent, 1, Integer::sum);
+        }
+      }
+      referenced.put(table, parents);
+    }
+
+    List<List<Table>> result = new ArrayList<>();
+    while (!pending.isEmpty()) {
+      List<Table> wave = new ArrayList<>();
+      pending.stream()
+          .filter(table -> referencing.get(table) == 0)
+          .forEach(wave::add);
+      if (wave.isEmpty()) {
+        wave.addAll(pending);
+      }
+      wave.forEach(table -> referenced.get(table)
+          .forEach(parent -> referencing.merge(parent, -1, Integer::sum)));
+      pending.removeAll(wave);
+      result.add(Collections.unmodifiableList(wave));
+    }
+    waves = Collections.unmodifiableList(result);
+  }
+
+  /** Returns the tables in the order their rows can be removed.
+   *
+   * @return the waves of tables, never null.
+   */
+  List<List<Table>> getWaves() {
+    return waves;
+  }
+}
@@ -0,0 +1,260 @@
+package com.base.orm;
+
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import javax.sql.DataSource;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Runs a sequence of sql statements in chunked JDBC batches.
+ * <br>
+ * The statements are pulled from their source in a separate thread, that
+ * groups them in batches and hands them to the executing thread through a
+ * bounded queue. This way reading and parsing a script overlaps with the
+ * database work, without keeping more than a few batches in memory.
+ * <br>
+ * Statements run in a single connection. The transaction is committed every
+ * {@link #commitInterval} statements and at the end. If a statement fails,
+ * the uncommitted work is rolled back and a {@link SqlExecutionException}
+ * with the index of the failed statement is thrown.
+ */
+public class SqlBatchExecutor {
+
+  /** The class logger. */
+  private static Logger log = LoggerFactory.getLogger(SqlBatchExecutor.class);
+
+  /** The number of batches the reading thread can get ahead. */
+  private static final int QUEUE_CAPACITY = 4;
+
+  /** Marks the end of the statements in the queue. */
+  private static final List<String> END = Collections.emptyList();
+
+  /** The data source to get the connection from, never null. */
+  private final DataSource dataSource;
+
+  /** The number of statements sent to the database in each batch, greater
+   * than 0. */
+  private final int batchSize;
+
+  /** The number of statements executed between commits, 0 to commit only at
+   * the end. */
+  private final int commitInterval;
+
+  /** Receives the progress after each executed batch, never null. */
+  private final Consumer<SqlExecutionProgress> listener;
+
+  /** Constructor with mandatory parameters.
+   *
+   * @param theDataSource the data source to run the statements in, cannot be
+   * null.
+   * @param theBatchSize the number of statements sent to the database in each
+   * batch, greater than 0.
+   * @param theCommitInterval the number of statements executed between
+   * commits, 0 to commit only at the end.
+   */
+  public SqlBatchExecutor(final DataSource theDataSource,
+      final int theBatchSize, final int theCommitInterval) {
+    this(theDataSource, theBatchSize, theCommitInterval, progress -> { });
+  }
+
+  /** Constructor with a progress listener.
+   *
+   * @param theDataSource the data source to run the statements in, cannot be
+   * null.
+   * @param theBatchSize the number of statements sent to the database in each
+   * batch, greater than 0.
+   * @param theCommitInterval the number of statements executed between
+   * commits, 0 to commit only at the end.
+   * @param theListener receives the progress after each executed batch, cannot
+   * be null. It is called from the executing thread.
+   */
+  public SqlBatchExecutor(final DataSource theDataSource,
+      final int theBatchSize, final int theCommitInterval,
+      final Consumer<SqlExecutionProgress> theListener) {
+    Validate.notNull(theDataSource, "No DataSource instance.");
+    Validate.isTrue(theBatchSize > 0, "The batch size must be positive.");
+    Validate.isTrue(theCommitInterval >= 0,
+        "The commit interval cannot be negative.");
+    Validate.notNull(theListener, "No progress listener.");
+
+    dataSource = theDataSource;
+    batchSize = theBatchSize;
+    commitInterval = theCommitInterval;
+    listener = theListener;
+  }
+
+  /** Executes the given statements.
+   *
+   * @param statements the statements to run, cannot be null. It is consumed
+   * but not closed.
+   *
+   * @return the final progress, never null.
+   */
+  public SqlExecutionProgress execute(final Stream<String> statements) {
+    Validate.notNull(statements, "No statements to run.");
+
+    BlockingQueue<List<String>> queue;
+    queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    AtomicReference<Throwable> readError = new AtomicReference<>();
+
+    ExecutorService reader = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "sql-batch-reader");
+      thread.setDaemon(true);
+      return thread;
+    });
+    try {
+      reader.execute(() -> read(statements.iterator(), queue, readError));
+      return run(queue, readError);
+    } finally {
+      reader.shutdownNow();
+    }
+  }
+
+  /** Groups the statements in batches and puts them in the queue, followed
+   * by {@link #END}. Runs in the reading thread.
+   */
+  private void read(final Iterator<String> statements,
+      final BlockingQueue<List<String>> queue,
+      final AtomicReference<Throwable> error) {
+    try {
+      try {
+        List<String> batch = new ArrayList<>(batchSize);
+        while (statements.hasNext()) {
+          batch.add(statements.next());
+          if (batch.size() == batchSize) {
+            queue.put(batch);
+            batch = new ArrayList<>(batchSize);
+          }
+        }
+        if (!batch.isEmpty()) {
+          queue.put(batch);
+        }
+      } catch (InterruptedException e) {
+        // The executing thread gave up, nobody is waiting for more batches.
+        Thread.currentThread().interrupt();
+        return;
+      } catch (RuntimeException | Error e) {
+        error.set(e);
+      }
+      queue.put(END);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /** Executes the batches in the queue until {@link #END} is found. Runs in
+   * the calling thread.
+   */
+  private SqlExecutionProgress run(final BlockingQueue<List<String>> queue,
+      final AtomicReference<Throwable> readError) {
+    long start = System.nanoTime();
+    long executed = 0;
+
+    try (Connection connection = dataSource.getConnection()) {
+      boolean autoCommit = connection.getAutoCommit();
+      connection.setAutoCommit(false);
+      try (Statement statement = connection.createStatement()) {
+        long uncommitted = 0;
+        List<String> batch = queue.take();
+        while (batch != END) {
+          executeBatch(statement, batch, executed);
+          executed += batch.size();
+          uncommitted += batch.size();
+
+          SqlExecutionProgress progress;
+          progress = new SqlExecutionProgress(executed,
+              System.nanoTime() - start);
+          if (commitInterval > 0 && uncommitted >= commitInterval) {
+            connection.commit();
+            uncommitted = 0;
+            log.debug("Committed {}", progress);
+          }
+          listener.accept(progress);
+          batch = queue.take();
+        }
+
+        if (readError.get() != null) {
+          throw new RuntimeException("Error reading the statements",
+              readError.get());
+        }
+        connection.commit();
+      } catch (SQLException | RuntimeException | InterruptedException e) {
+        connection.rollback();
+        throw e;
+      } finally {
+        connection.setAutoCommit(autoCommit);
+      }
+    } catch (SQLException e) {
+      log.error(e.getMessage());
+      throw new RuntimeException(e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted running statements", e);
+    }
+
+    SqlExecutionProgress result;
+    result = new SqlExecutionProgress(executed, System.nanoTime() - start);
+    log.info("Executed {}", result);
+    return result;
+  }
+
+  /** Executes a batch, translating failures to {@link SqlExecutionException}.
+   *
+   * @param statement the JDBC statement, cannot be null.
+   * @param batch the statements in the batch, cannot be null.
+   * @param first the index of the first statement of the batch.
+   */
+  private void executeBatch(final Statement statement,
+      final List<String> batch, final long first) throws SQLException {
+    for (String sentence : batch) {
+      statement.addBatch(sentence);
+    }
+    try {
+      statement.executeBatch();
+    } catch (BatchUpdateException e) {
+      int failed = failedOffset(e.getUpdateCounts(), batch.size());
+      log.error("Statement {} failed: {}", first + failed, e.getMessage());
+      throw new SqlExecutionException(first + failed, batch.get(failed), e);
+    } catch (SQLException e) {
+      log.error("Batch starting at statement {} failed: {}", first,
+          e.getMessage());
+      throw new SqlExecutionException(first, batch.get(0), e);
+    } finally {
+      statement.clearBatch();
+    }
+  }
+
+  /** Finds the failed statement in a batch from the update counts reported
+   * by the driver.
+   *
+   * Drivers either stop at the first failure, returning the counts of the
+   * statements that succeeded, or go on and mark the failures with {@link
+   * Statement#EXECUTE_FAILED}.
+   *
+   * @return the offset of the failed statement in its batch.
+   */
+  private int failedOffset(final int[] updateCounts, final int size) {
+    int offset = updateCounts.length;
+    for (int i = 0; i < updateCounts.length; i++) {
+      if (updateCounts[i] == Statement.EXECUTE_FAILED) {
+        offset = i;
+        break;
+      }
+    }
+    return Math.min(offset, size - 1);
+  }
+}
@@ -0,0 +1,34 @@
+package com.base.orm;
+
+/** Thrown when a statement run by a {@link SqlBatchExecutor} fails.
+ */
+public class SqlExecutionException extends RuntimeException {
+
+  /** The serial version. */
+  private static final long serialVersionUID = 1L;
+
+  /** The 0 based index of the failed statement in the executed sequence. */
+  private final long statementIndex;
+
+  /** Constructor with mandatory parameters.
+   *
+   * @param index the 0 based index of the failed statement.
+   * @param statement the failed statement, cannot be null.
+   * @param cause the cause of the failure, cannot be null.
+   */
+  public SqlExecutionException(final long index, final String statement,
+      final Throwable cause) {
+    super("Statement " + index + " failed: " + statement + ". "
+        + cause.getMessage(), cause);
+    statementIndex = index;
+  }
+
+  /** Returns the index of the failed statement.
+   *
+   * @return the 0 based index of the failed statement in the executed
+   * sequence.
+   */
+  public long getStatementIndex() {
+    return statementIndex;
+  }
+}
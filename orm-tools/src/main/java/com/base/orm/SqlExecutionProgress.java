@@ -0,0 +1,61 @@
+package com.base.orm;
+
+import java.util.concurrent.TimeUnit;
+
+/** A snapshot of the progress of a {@link SqlBatchExecutor} run.
+ */
+public class SqlExecutionProgress {
+
+  /** The number of statements executed so far. */
+  private final long executedStatements;
+
+  /** The time elapsed since the execution started, in nanoseconds. */
+  private final long elapsedNanos;
+
+  /** Constructor with mandatory parameters.
+   *
+   * @param executed the number of statements executed so far.
+   * @param elapsed the time elapsed since the execution started, in
+   * nanoseconds.
+   */
+  public SqlExecutionProgress(final long executed, final long elapsed) {
+    executedStatements = executed;
+    elapsedNanos = elapsed;
+  }
+
+  /** Returns the number of statements executed so far.
+   *
+   * @return the number of executed statements, 0 or greater.
+   */
+  public long getExecutedStatements() {
+    return executedStatements;
+  }
+
+  /** Returns the time elapsed since the execution started.
+   *
+   * @return the elapsed time in milliseconds.
+   */
+  public long getElapsedMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+  }
+
+  /** Returns the execution rate.
+   *
+   * @return the number of statements executed per second, 0 if no time has
+   * elapsed.
+   */
+  public double getStatementsPerSecond() {
+    if (elapsedNanos == 0) {
+      return 0;
+    }
+    return executedStatements * (double) TimeUnit.SECONDS.toNanos(1)
+        / elapsedNanos;
+  }
+
+  /** {@inheritDoc}.*/
+  @Override
+  public String toString() {
+    return String.format("%d statements in %d ms (%.1f statements/s)",
+        executedStatements, getElapsedMillis(), getStatementsPerSecond());
+  }
+}
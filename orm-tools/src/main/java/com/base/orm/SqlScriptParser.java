@@ -1,10 +1,24 @@
 package com.base.orm;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Scanner;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
 import org.slf4j.Logger;
@@ -12,9 +26,12 @@ import org.slf4j.LoggerFactory;
 
 /** Parses a text files consisting of sql sentences separated by ';'.
  *
- * This parses is very naive, it considers a line ending in ; as a sentence
- * separator. If the ; is followed by white space, it is not considered the end
- * of the line.
+ * The {@link #parse(File)} methods are very naive, they consider a line ending
+ * in ; as a sentence separator. If the ; is followed by white space, it is not
+ * considered the end of the line.
+ * <br>
+ * The {@link #stream(File)} methods read the file lazily, in constant memory,
+ * and understand quoted strings and comments.
  */
 public class SqlScriptParser {
 
@@ -22,6 +39,9 @@ public class SqlScriptParser {
    */
   private static Logger log = LoggerFactory.getLogger(SqlScriptParser.class);
 
+  /** The size of the buffers used to read the file in streaming mode. */
+  private static final int BUFFER_SIZE = 64 * 1024;
+
   /** Translate the file with the script Name into an Array of sentences to
    * execute.
    *
@@ -47,6 +67,47 @@ public class SqlScriptParser {
     return readSentences(scanner);
   }
 
+  /** Reads the sentences of the script with the given name lazily.
+   *
+   * @param scriptName the file name with the script, cannot be null nor empty.
+   *
+   * @return a Stream of sentences, never null. It must be closed to release
+   * the file.
+   *
+   * @see #stream(File)
+   */
+  public Stream<String> stream(final String scriptName) {
+    Validate.notNull(scriptName, "The sql file name to parse cannot be null.");
+    return stream(new File(scriptName));
+  }
+
+  /** Reads the sentences of the given script lazily.
+   *
+   * The file is read through a fixed size buffer as the stream is consumed,
+   * so the memory used does not depend on the size of the script.
+   * <br>
+   * Sentences are separated by ';'. A ';' inside a quoted string or
+   * identifier ('', "" or ``), or inside a -- or a block comment, does not end
+   * the sentence. Inside quotes a backslash escapes the following character.
+   * <br>
+   * The returned sentences do not include the ';' separator. Sentences made
+   * only of white space and comments are skipped.
+   *
+   * @param scriptFile the file to parse, it cannot be null.
+   *
+   * @return a Stream of sentences, never null. It must be closed to release
+   * the file.
+   */
+  public Stream<String> stream(final File scriptFile) {
+    Validate.notNull(scriptFile, "The sql file to parse cannot be null.");
+    log.trace("Streaming script file {}", scriptFile.getName());
+
+    SentenceReader reader = new SentenceReader(scriptFile);
+    Spliterator<String> spliterator = Spliterators.spliteratorUnknownSize(
+        reader, Spliterator.ORDERED | Spliterator.NONNULL);
+    return StreamSupport.stream(spliterator, false).onClose(reader::close);
+  }
+
   /** Creates a Scanner for the given File.
    *
    * @param scriptFile a File instance, cannot be null.
@@ -97,4 +158,262 @@ public class SqlScriptParser {
 
     return result.toArray(new String[result.size()]);
   }
-}
\ No newline at end of file
+
+  /** The states of the {@link SentenceReader}. */
+  private enum State {
+    /** Plain sql text. */
+    SQL,
+    /** Inside a '' quoted string. */
+    SINGLE_QUOTE,
+    /** Inside a "" quoted identifier. */
+    DOUBLE_QUOTE,
+    /** Inside a `` quoted identifier. */
+    BACK_QUOTE,
+    /** Inside a -- comment. */
+    LINE_COMMENT,
+    /** Inside a block comment. */
+    BLOCK_COMMENT
+  }
+
+  /** Reads the sentences of a file one at a time, through a reusable buffer.
+   */
+  private static final class SentenceReader implements Iterator<String>,
+      Closeable {
+
+    /** The channel to read the file from, never null. */
+    private final FileChannel channel;
+
+    /** The buffer the file is read into, never null. */
+    private final ByteBuffer bytes = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    /** The buffer bytes are decoded into, never null. */
+    private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+
+    /** The decoder of the file contents, never null. */
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
+
+    /** The sentence being read, never null. */
+    private final StringBuilder sentence = new StringBuilder();
+
+    /** The current state. */
+    private State state = State.SQL;
+
+    /** The previous character in the current state, 0 if none. */
+    private char previous;
+
+    /** Whether the previous character was a backslash inside quotes. */
+    private boolean escaped;
+
+    /** Whether the sentence has something other than white space and
+     * comments. */
+    private boolean hasContent;
+
+    /** Whether the whole file has been read. */
+    private boolean endOfFile;
+
+    /** The next sentence to return, null if it has not been read yet. */
+    private String next;
+
+    /** Opens the given file.
+     *
+     * @param file the file to read, cannot be null.
+     */
+    private SentenceReader(final File file) {
+      try {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+      } catch (IOException ioe) {
+        log.error(ioe.getMessage());
+        throw new RuntimeException(ioe);
+      }
+      chars.flip();
+    }
+
+    /** {@inheritDoc}.*/
+    @Override
+    public boolean hasNext() {
+      if (next == null) {
+        next = readSentence();
+      }
+      return next != null;
+    }
+
+    /** {@inheritDoc}.*/
+    @Override
+    public String next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      String result = next;
+      next = null;
+      return result;
+    }
+
+    /** Closes the file. */
+    @Override
+    public void close() {
+      try {
+        channel.close();
+      } catch (IOException ioe) {
+        log.error(ioe.getMessage());
+        throw new RuntimeException(ioe);
+      }
+    }
+
+    /** Reads the next sentence.
+     *
+     * @return the next sentence, or null if the end of the file was reached.
+     */
+    private String readSentence() {
+      while (chars.hasRemaining() || fill()) {
+        while (chars.hasRemaining()) {
+          char c = chars.get();
+          if (state == State.SQL && c == ';') {
+            String result = takeSentence();
+            if (result != null) {
+              return result;
+            }
+          } else {
+            sentence.append(c);
+            accept(c);
+          }
+        }
+      }
+      return takeSentence();
+    }
+
+    /** Moves the reader to its next state given the read character.
+     *
+     * @param c the character just read.
+     */
+    private void accept(final char c) {
+      switch (state) {
+        case SQL:
+          acceptSql(c);
+          break;
+        case SINGLE_QUOTE:
+          acceptQuoted(c, '\'');
+          break;
+        case DOUBLE_QUOTE:
+          acceptQuoted(c, '"');
+          break;
+        case BACK_QUOTE:
+          acceptQuoted(c, '`');
+          break;
+        case LINE_COMMENT:
+          if (c == '\n') {
+            state = State.SQL;
+          }
+          break;
+        case BLOCK_COMMENT:
+          if (previous == '*' && c == '/') {
+            state = State.SQL;
+            previous = 0;
+          } else {
+            previous = c;
+          }
+          break;
+        default:
+          throw new IllegalStateException("Unknown state " + state);
+      }
+    }
+
+    /** Processes a character of plain sql text.
+     *
+     * @param c the character just read.
+     */
+    private void acceptSql(final char c) {
+      if (previous == '-' && c == '-') {
+        state = State.LINE_COMMENT;
+        previous = 0;
+        return;
+      }
+      if (previous == '/' && c == '*') {
+        state = State.BLOCK_COMMENT;
+        previous = 0;
+        return;
+      }
+      // The previous character did not start a comment, so it was sql.
+      if (previous == '-' || previous == '/') {
+        hasContent = true;
+      }
+
+      if (c == '\'') {
+        state = State.SINGLE_QUOTE;
+      } else if (c == '"') {
+        state = State.DOUBLE_QUOTE;
+      } else if (c == '`') {
+        state = State.BACK_QUOTE;
+      }
+
+      if (!Character.isWhitespace(c) && c != '-' && c != '/') {
+        hasContent = true;
+      }
+      previous = c;
+    }
+
+    /** Processes a character inside quotes.
+     *
+     * @param c the character just read.
+     * @param quote the character that closes the quotes.
+     */
+    private void acceptQuoted(final char c, final char quote) {
+      if (escaped) {
+        escaped = false;
+      } else if (c == '\\') {
+        escaped = true;
+      } else if (c == quote) {
+        state = State.SQL;
+        previous = 0;
+      }
+    }
+
+    /** Returns the sentence read so far and starts a new one.
+     *
+     * @return the sentence, or null if it was only white space and comments.
+     */
+    private String takeSentence() {
+      boolean content = hasContent || previous == '-' || previous == '/';
+      String result = null;
+      if (content) {
+        result = sentence.toString().trim();
+      }
+      sentence.setLength(0);
+      state = State.SQL;
+      previous = 0;
+      escaped = false;
+      hasContent = false;
+      return result;
+    }
+
+    /** Reads and decodes the next chunk of the file into {@link #chars}.
+     *
+     * @return false if there is nothing else to read.
+     */
+    private boolean fill() {
+      if (endOfFile) {
+        return false;
+      }
+      try {
+        chars.clear();
+        while (chars.position() == 0 && !endOfFile) {
+          int read = channel.read(bytes);
+          endOfFile = read == -1;
+          bytes.flip();
+          CoderResult result = decoder.decode(bytes, chars, endOfFile);
+          if (result.isError()) {
+            result.throwException();
+          }
+          bytes.compact();
+          if (endOfFile) {
+            decoder.flush(chars);
+          }
+        }
+        chars.flip();
+        return chars.hasRemaining();
+      } catch (IOException ioe) {
+        log.error(ioe.getMessage());
+        throw new RuntimeException(ioe);
+      }
+    }
+  }
+}
@@ -0,0 +1,205 @@
+package com.base.orm;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.commons.io.filefilter.RegexFileFilter;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+
+/** The order in which the sql scripts of a directory must run.
+ * <br>
+ * Scripts are sorted by name and grouped by their numeric prefix, e.g. all
+ * the 010_*.sql files form one group. Groups run one after the other, and the
+ * scripts in a group may run concurrently. A script without a numeric prefix
+ * is a group on its own.
+ * <br>
+ * A script can also declare, in the comments at its top, other scripts that
+ * must run before it:
+ * <pre>
+ * -- depends: 010_places.sql, 010_persons.sql
+ * </pre>
+ * Dependencies must be in the same group or in a previous one.
+ */
+final class SqlScriptPlan {
+
+  /** Matches the numeric prefix of a script name. */
+  private static final Pattern PREFIX = Pattern.compile("^(\\d+)[_-].*");
+
+  /** Matches a dependency declaration. */
+  private static final Pattern DEPENDS = Pattern.compile(
+      "^--\\s*depends\\s*:(.*)$", Pattern.CASE_INSENSITIVE);
+
+  /** The groups of scripts, in execution order. The scripts in each group
+   * come after the ones they depend on. Never null. */
+  private final List<List<File>> groups = new ArrayList<>();
+
+  /** The declared dependencies of each script, never null. */
+  private final Map<File, Set<File>> dependencies = new HashMap<>();
+
+  /** Creates the plan of the *.sql files of the given directory.
+   *
+   * @param directory the directory with the scripts, cannot be null.
+   */
+  SqlScriptPlan(final File directory) {
+    Validate.isTrue(directory.isDirectory(), "Not a directory: " + directory);
+
+    FilenameFilter filter = new RegexFileFilter(".*\\.sql");
+    File[] scripts = directory.listFiles(filter);
+    Arrays.sort(scripts);
+
+    Map<String, File> byName = new HashMap<>();
+    for (File script : scripts) {
+      byName.put(script.getName(), script);
+    }
+    for (File script : scripts) {
+      dependencies.put(script, readDependencies(script, byName));
+    }
+
+    String groupKey = null;
+    List<File> group = null;
+    for (File script : scripts) {
+      String key = groupKey(script);
+      if (group == null || !key.equals(groupKey)) {
+        group = new ArrayList<>();
+        groups.add(group);
+        groupKey = key;
+      }
+      group.add(script);
+    }
+
+    Set<File> previous = new HashSet<>();
+    for (int i = 0; i < groups.size(); i++) {
+      List<File> sorted = sort(groups.get(i), previous);
+      groups.set(i, Collections.unmodifiableList(sorted));
+      previous.addAll(sorted);
+    }
+  }
+
+  /** Returns the groups of scripts in execution order.
+   *
+   * @return the list of groups, never null. Each group lists its scripts
+   * after the ones they depend on.
+   */
+  List<List<File>> getGroups() {
+    return Collections.unmodifiableList(groups);
+  }
+
+  /** Returns the scripts that must run before the given one.
+   *
+   * @param script one of the scripts of the plan, cannot be null.
+   *
+   * @return the set of scripts, never null.
+   */
+  Set<File> getDependencies(final File script) {
+    return Collections.unmodifiableSet(dependencies.get(script));
+  }
+
+  /** Returns the key that groups the given script.
+   *
+   * @return the numeric prefix of the script, or its name if it has none.
+   */
+  private String groupKey(final File script) {
+    Matcher matcher = PREFIX.matcher(script.getName());
+    if (matcher.matches()) {
+      return matcher.group(1);
+    }
+    return script.getName();
+  }
+
+  /** Sorts a group so that each script comes after its dependencies.
+   *
+   * @param group the scripts of the group, sorted by name.
+   * @param previous the scripts of the previous groups.
+   *
+   * @return the sorted group.
+   */
+  private List<File> sort(final List<File> group, final Set<File> previous) {
+    Set<File> sorted = new LinkedHashSet<>();
+    for (File script : group) {
+      visit(script, new HashSet<>(group), previous, sorted,
+          new LinkedHashSet<>());
+    }
+    return new ArrayList<>(sorted);
+  }
+
+  /** Depth first visit of the dependencies of a script inside its group.
+   */
+  private void visit(final File script, final Set<File> group,
+      final Set<File> previous, final Set<File> sorted,
+      final Set<File> path) {
+    if (sorted.contains(script)) {
+      return;
+    }
+    if (!path.add(script)) {
+      throw new IllegalStateException("Circular dependency among scripts "
+          + path);
+    }
+    for (File dependency : dependencies.get(script)) {
+      if (group.contains(dependency)) {
+        visit(dependency, group, previous, sorted, path);
+      } else if (!previous.contains(dependency)) {
+        throw new IllegalStateException("Script " + script.getName()
+            + " depends on " + dependency.getName()
+            + ", that belongs to a later group");
+      }
+    }
+    path.remove(script);
+    sorted.add(script);
+  }
+
+  /** Reads the dependencies declared in the leading comments of a script.
+   *
+   * @param script the script, cannot be null.
+   * @param byName the scripts in the directory by file name.
+   *
+   * @return the declared dependencies, never null.
+   */
+  private Set<File> readDependencies(final File script,
+      final Map<String, File> byName) {
+    Set<File> result = new HashSet<>();
+    try (BufferedReader reader = Files.newBufferedReader(script.toPath(),
+        StandardCharsets.UTF_8)) {
+      String line = reader.readLine();
+      while (line != null && isHeader(line.trim())) {
+        Matcher matcher = DEPENDS.matcher(line.trim());
+        if (matcher.matches()) {
+          for (String name : matcher.group(1).split("[,\\s]+")) {
+            if (!name.isEmpty()) {
+              File dependency = byName.get(name);
+              Validate.isTrue(dependency != null, "Script %s depends on %s,"
+                  + " that does not exist", script.getName(), name);
+              result.add(dependency);
+            }
+          }
+        }
+        line = reader.readLine();
+      }
+    } catch (IOException ioe) {
+      throw new RuntimeException(ioe);
+    }
+    return result;
+  }
+
+  /** Checks if a line belongs to the leading comments of a script.
+   *
+   * @return true if the line is blank or a -- comment.
+   */
+  private boolean isHeader(final String line) {
+    return StringUtils.isEmpty(line) || line.startsWith("--");
+  }
+}
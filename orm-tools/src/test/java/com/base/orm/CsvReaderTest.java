@@ -0,0 +1,38 @@
+package com.base.orm;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.io.StringReader;
+import org.junit.Test;
+
+public class CsvReaderTest {
+
+  @Test
+  public void next_plainFields() throws IOException {
+    try (CsvReader reader = new CsvReader(new StringReader("a,b\r\n1,\n"))) {
+      assertThat(reader.next(), is(new String[] {"a", "b"}));
+      assertThat(reader.next(), is(new String[] {"1", ""}));
+      assertThat(reader.next(), is(nullValue()));
+    }
+  }
+
+  @Test
+  public void next_quotedFields() throws IOException {
+    try (CsvReader reader = new CsvReader(new StringReader(
+        "\"a,b\",\"say \"\"hi\"\"\",\"two\nlines\""))) {
+      assertThat(reader.next(),
+          is(new String[] {"a,b", "say \"hi\"", "two\nlines"}));
+      assertThat(reader.next(), is(nullValue()));
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void next_unterminatedQuote() throws IOException {
+    try (CsvReader reader = new CsvReader(new StringReader("\"a,b"))) {
+      reader.next();
+    }
+  }
+}
@@ -1,10 +1,22 @@
 package com.base.orm;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -15,6 +27,7 @@ import com.test.entities.EntityRepository;
 import com.test.entities.Module2Repository;
 import com.test.entities.Person;
 import com.test.entities.Place;
+import com.test.entities.PlaceService;
 
 @RunWith(SpringJUnit4ClassRunner.class)
 @SpringApplicationConfiguration(
@@ -24,6 +37,9 @@ import com.test.entities.Place;
     }
 )
 public class DatabaseUtilityTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
   @Autowired
   private HibernateComponent hibernateComponent;
 
@@ -64,6 +80,16 @@ public class DatabaseUtilityTest {
     assertThat(m1repository.listPlaces().size(), is(3));
   }
 
+  @Test
+  public void runSqlScript_parallelDirectory() {
+    assertThat(m1repository.listPersons().isEmpty(), is(true));
+    assertThat(m1repository.listPlaces().isEmpty(), is(true));
+
+    utility.runSqlScript("src/test/sql", 4);
+    assertThat(m1repository.listPersons().size(), is(3));
+    assertThat(m1repository.listPlaces().size(), is(3));
+  }
+
   @Test
   public void runSqlCommands() {
     assertThat(m1repository.listPersons().isEmpty(), is(true));
@@ -85,6 +111,138 @@ public class DatabaseUtilityTest {
     assertThat(m1repository.listPlaces().isEmpty(), is(true));
   }
 
+  @Test
+  public void runSqlCommands_evictsCache() {
+    m1repository.save(new Place("cached", new PlaceService("service")));
+    assertThat(m1repository.getPlace("cached").getCode(), is("cached"));
+
+    utility.runSqlCommands("delete from m1_places where code = 'cached'");
+
+    assertThat(m1repository.getPlace("cached"), is(nullValue()));
+  }
+
+  @Test
+  public void runSqlScript_chunked() {
+    assertThat(m1repository.listPlaces().isEmpty(), is(true));
+
+    SqlExecutionProgress progress = utility.runSqlScript(
+        new File("src/test/sql/010_init_places.sql"), 2, 2);
+    assertThat(progress.getExecutedStatements(), is(3L));
+    assertThat(m1repository.listPlaces().size(), is(3));
+  }
+
+  @Test
+  public void runSqlCommands_failedStatement() {
+    String insertPerson = "insert into m1_persons (e_mail, name) values ('p1@mail.com','person 1')";
+    String insertPlace = "insert into m1_places (code) values ('code 1')";
+    String wrong = "insert into m1_nothing (code) values ('code 1')";
+
+    try {
+      utility.runSqlCommands(Stream.of(insertPerson, insertPlace, wrong), 2, 0);
+      fail("The wrong statement should have failed");
+    } catch (SqlExecutionException e) {
+      assertThat(e.getStatementIndex(), is(2L));
+    }
+
+    assertThat(m1repository.listPersons().isEmpty(), is(true));
+    assertThat(m1repository.listPlaces().isEmpty(), is(true));
+  }
+
+  @Test
+  public void wipe_module() {
+    utility.runSqlCommands(
+        "insert into m1_places (code) values ('code 1')",
+        "insert into m1_persons (e_mail, name, home_code)"
+            + " values ('p1@mail.com', 'person 1', 'code 1')",
+        "insert into m2_pets (id, nick) values (1, 'pet 1')");
+
+    utility.wipe("m1");
+
+    assertThat(m1repository.listPersons().isEmpty(), is(true));
+    assertThat(m1repository.listPlaces().isEmpty(), is(true));
+    assertThat(m2Repository.listPets().size(), is(1));
+
+    utility.wipe();
+    assertThat(m2Repository.listPets().isEmpty(), is(true));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void wipe_unknownModule() {
+    utility.wipe("m3");
+  }
+
+  @Test
+  public void snapshot_restore() {
+    utility.runSqlScript("src/test/sql");
+    utility.runSqlCommands(
+        "update m1_persons set home_code = 'code 1'",
+        "insert into m2_pets (id, nick) values (1, 'pet 1')");
+    utility.snapshot("fixtures");
+    try {
+      utility.delete(Person.class, Place.class);
+      utility.runSqlCommands("insert into m1_places (code) values ('code 9')");
+
+      utility.restore("fixtures");
+
+      assertThat(m1repository.listPersons().size(), is(3));
+      assertThat(m1repository.listPersons().get(0).getHome().getCode(),
+          is("code 1"));
+      assertThat(m1repository.listPlaces().size(), is(3));
+      assertThat(m2Repository.listPets().size(), is(1));
+    } finally {
+      utility.dropSnapshot("fixtures");
+      utility.wipe("m2");
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void snapshot_invalidName() {
+    utility.snapshot("fixtures; drop table m1_persons");
+  }
+
+  @Test
+  public void bulkImport_columnNames() throws IOException {
+    Path csv = write("e_mail,name", "p1@mail.com,person 1",
+        "p2@mail.com,\"person, 2\"", "p3@mail.com,person 3");
+
+    assertThat(utility.bulkImport(Person.class, csv), is(3L));
+    List<Person> persons = m1repository.listPersons();
+    assertThat(persons.size(), is(3));
+    assertThat(persons.stream().anyMatch(p -> p.getName().equals("person, 2")),
+        is(true));
+  }
+
+  @Test
+  public void bulkImport_propertyNames() throws IOException {
+    Path csv = write("NAME,eMail", "person 1,p1@mail.com");
+
+    assertThat(utility.bulkImport(Person.class, csv), is(1L));
+    assertThat(m1repository.listPersons().get(0).geteMail(),
+        is("p1@mail.com"));
+  }
+
+  @Test
+  public void bulkImport_emptyFields() throws IOException {
+    Path csv = write("e_mail,name,home_code", "p1@mail.com,p1,");
+
+    assertThat(utility.bulkImport(Person.class, csv), is(1L));
+    assertThat(m1repository.listPersons().get(0).getHome(), is(nullValue()));
+  }
+
+  @Test
+  public void loadData_emptyFieldsAsNull() throws IOException {
+    String sql = DatabaseUtility.loadData("m1_persons",
+        Arrays.asList("e_mail", "name"), write("e_mail,name"));
+
+    assertThat(sql.endsWith(" ignore 1 lines (@f0, @f1) set"
+        + " e_mail = nullif(@f0, ''), name = nullif(@f1, '')"), is(true));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void bulkImport_unknownColumn() throws IOException {
+    utility.bulkImport(Person.class, write("e_mail,nick", "p1@mail.com,p1"));
+  }
+
   @Test
   public void generateSchema() {
     utility.generateSchemaScript("target/{dialect}_schema.sql");
@@ -97,4 +255,10 @@ public class DatabaseUtilityTest {
     assertThat(m1repository.listPlaces().isEmpty(), is(true));
     assertThat(m2Repository.listPets().isEmpty(), is(true));
   }
-}
\ No newline at end of file
+
+  private Path write(final String... lines) throws IOException {
+    Path csv = folder.newFile().toPath();
+    Files.write(csv, Arrays.asList(lines), StandardCharsets.UTF_8);
+    return csv;
+  }
+}
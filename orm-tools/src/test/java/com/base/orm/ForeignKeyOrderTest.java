@@ -0,0 +1,83 @@
+package com.base.orm;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import org.hibernate.mapping.Column;
+import org.hibernate.mapping.Table;
+import org.junit.Test;
+
+public class ForeignKeyOrderTest {
+
+  @Test
+  public void getWaves_childrenFirst() {
+    Table parent = new Table("parent");
+    Table child = new Table("child");
+    Table grandChild = new Table("grand_child");
+    Table other = new Table("other");
+    reference(child, parent);
+    reference(grandChild, child);
+    reference(grandChild, parent);
+
+    List<List<Table>> waves = new ForeignKeyOrder(
+        Arrays.asList(parent, other, child, grandChild)).getWaves();
+
+    assertThat(waves.size(), is(3));
+    assertThat(new HashSet<>(waves.get(0)),
+        is(new HashSet<>(Arrays.asList(other, grandChild))));
+    assertThat(waves.get(1), is(Collections.singletonList(child)));
+    assertThat(waves.get(2), is(Collections.singletonList(parent)));
+  }
+
+  @Test
+  public void getWaves_selfReference() {
+    Table tree = new Table("tree");
+    reference(tree, tree);
+
+    List<List<Table>> waves = new ForeignKeyOrder(
+        Collections.singletonList(tree)).getWaves();
+
+    assertThat(waves, is(Arrays.asList(Collections.singletonList(tree))));
+  }
+
+  @Test
+  public void getWaves_cycleLast() {
+    Table a = new Table("a");
+    Table b = new Table("b");
+    Table c = new Table("c");
+    reference(a, b);
+    reference(b, a);
+    reference(c, a);
+
+    List<List<Table>> waves = new ForeignKeyOrder(Arrays.asList(a, b, c))
+        .getWaves();
+
+    assertThat(waves.size(), is(2));
+    assertThat(waves.get(0), is(Collections.singletonList(c)));
+    assertThat(new HashSet<>(waves.get(1)),
+        is(new HashSet<>(Arrays.asList(a, b))));
+  }
+
+  @Test
+  public void getWaves_ignoresOtherTables() {
+    Table child = new Table("child");
+    reference(child, new Table("outside"));
+
+    List<List<Table>> waves = new ForeignKeyOrder(
+        Collections.singletonList(child)).getWaves();
+
+    assertThat(waves, is(Arrays.asList(Collections.singletonList(child))));
+  }
+
+  private void reference(final Table table, final Table referenced) {
+    Column column = new Column(referenced.getName() + "_id");
+    table.addColumn(column);
+    table.createForeignKey("fk_" + table.getName() + "_"
+        + referenced.getName(), Collections.singletonList(column),
+        referenced.getName(), null).setReferencedTable(referenced);
+  }
+}
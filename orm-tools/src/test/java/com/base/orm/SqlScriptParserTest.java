@@ -0,0 +1,94 @@
+package com.base.orm;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SqlScriptParserTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private SqlScriptParser parser = new SqlScriptParser();
+
+  @Test
+  public void stream_multiLineSentences() {
+    try (Stream<String> sentences = parser.stream(
+        "src/test/sql/010_init_places.sql")) {
+      List<String> result = sentences.collect(Collectors.toList());
+      assertThat(result.size(), is(3));
+      assertThat(result.get(0),
+          is("insert into m1_places (code)\nvalues ('code 1')"));
+      assertThat(result.get(2),
+          is("insert into m1_places (code) values ('code 3')"));
+    }
+  }
+
+  @Test
+  public void stream_separatorInQuotes() throws IOException {
+    File script = write("insert into t values ('a;b', \"c;d\", `e;f`);",
+        "insert into t values ('it''s;', 'back\\';slash');");
+
+    assertThat(read(script), is(Arrays.asList(
+        "insert into t values ('a;b', \"c;d\", `e;f`)",
+        "insert into t values ('it''s;', 'back\\';slash')")));
+  }
+
+  @Test
+  public void stream_separatorInComments() throws IOException {
+    File script = write("-- a comment; with a separator",
+        "insert into t values (1); /* another; comment */",
+        "insert into t /* inline; */ values (5 - 2 / 1);",
+        "-- only a comment;");
+
+    assertThat(read(script), is(Arrays.asList(
+        "-- a comment; with a separator\ninsert into t values (1)",
+        "/* another; comment */\ninsert into t /* inline; */ values"
+            + " (5 - 2 / 1)")));
+  }
+
+  @Test
+  public void stream_lastSentenceWithoutSeparator() throws IOException {
+    File script = write("delete from t;", "", "delete from u", "");
+
+    assertThat(read(script), is(Arrays.asList("delete from t",
+        "delete from u")));
+  }
+
+  @Test
+  public void stream_largerThanBuffer() throws IOException {
+    String[] lines = new String[10000];
+    for (int i = 0; i < lines.length; i++) {
+      lines[i] = "insert into t values (" + i + ", 'ñandú " + i + ";');";
+    }
+    File script = write(lines);
+
+    List<String> result = read(script);
+    assertThat(result.size(), is(lines.length));
+    for (int i = 0; i < lines.length; i++) {
+      assertThat(result.get(i) + ";", is(lines[i]));
+    }
+  }
+
+  private File write(final String... lines) throws IOException {
+    File script = folder.newFile();
+    Files.write(script.toPath(), Arrays.asList(lines), StandardCharsets.UTF_8);
+    return script;
+  }
+
+  private List<String> read(final File script) {
+    try (Stream<String> sentences = parser.stream(script)) {
+      return sentences.collect(Collectors.toList());
+    }
+  }
+}
@@ -0,0 +1,101 @@
+package com.base.orm;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SqlScriptPlanTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void groupsByNumericPrefix() throws IOException {
+    write("010_places.sql");
+    write("000_persons.sql");
+    write("010_pets.sql");
+    write("020_owners.sql");
+    write("readme.txt");
+
+    assertThat(names(new SqlScriptPlan(folder.getRoot())), is(Arrays.asList(
+        Arrays.asList("000_persons.sql"),
+        Arrays.asList("010_pets.sql", "010_places.sql"),
+        Arrays.asList("020_owners.sql"))));
+  }
+
+  @Test
+  public void dependenciesInTheSameGroup() throws IOException {
+    write("010_a.sql", "-- depends: 010_c.sql", "insert into a values (1);");
+    write("010_b.sql");
+    write("010_c.sql", "-- some comment", "",
+        "-- DEPENDS: 010_b.sql, 000_x.sql");
+    write("000_x.sql");
+
+    SqlScriptPlan plan = new SqlScriptPlan(folder.getRoot());
+    assertThat(names(plan).get(1), is(Arrays.asList("010_b.sql", "010_c.sql",
+        "010_a.sql")));
+    assertThat(plan.getDependencies(new File(folder.getRoot(), "010_c.sql"))
+        .size(), is(2));
+    assertThat(plan.getDependencies(new File(folder.getRoot(), "010_b.sql"))
+        .isEmpty(), is(true));
+  }
+
+  @Test
+  public void onlyLeadingCommentsDeclareDependencies() throws IOException {
+    write("010_a.sql", "insert into a values (1);", "-- depends: 010_b.sql");
+    write("010_b.sql");
+
+    SqlScriptPlan plan = new SqlScriptPlan(folder.getRoot());
+    assertThat(plan.getDependencies(new File(folder.getRoot(), "010_a.sql"))
+        .isEmpty(), is(true));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void circularDependencies() throws IOException {
+    write("010_a.sql", "-- depends: 010_b.sql");
+    write("010_b.sql", "-- depends: 010_a.sql");
+
+    new SqlScriptPlan(folder.getRoot());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void dependencyOnLaterGroup() throws IOException {
+    write("000_a.sql", "-- depends: 010_b.sql");
+    write("010_b.sql");
+
+    new SqlScriptPlan(folder.getRoot());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void missingDependency() throws IOException {
+    write("000_a.sql", "-- depends: 000_b.sql");
+
+    new SqlScriptPlan(folder.getRoot());
+  }
+
+  private void write(final String name, final String... lines)
+      throws IOException {
+    List<String> content = lines.length == 0
+        ? Collections.singletonList("select 1;") : Arrays.asList(lines);
+    Files.write(new File(folder.getRoot(), name).toPath(), content,
+        StandardCharsets.UTF_8);
+  }
+
+  private List<List<String>> names(final SqlScriptPlan plan) {
+    return plan.getGroups().stream()
+        .map(group -> group.stream()
+            .map(File::getName)
+            .collect(Collectors.toList()))
+        .collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,75 @@
+package com.base.orm;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.apache.commons.lang3.Validate;
+
+/** Measures the phases of the {@link HibernateComponent} bootstrap.
+ *
+ * Phases may run in different threads, the durations are recorded in the
+ * order the phases end.
+ */
+final class BootstrapTimer {
+
+  /** The creation time of this timer, in nanoseconds. */
+  private final long start = System.nanoTime();
+
+  /** The duration of each ended phase in milliseconds, by phase name, never
+   * null. */
+  private final Map<String, Long> phases = new LinkedHashMap<>();
+
+  /** Runs and measures a phase.
+   *
+   * @param <T> the type of the phase result.
+   *
+   * @param phase the phase name, cannot be null.
+   * @param step the phase, cannot be null.
+   *
+   * @return the phase result.
+   */
+  <T> T time(final String phase, final Supplier<T> step) {
+    Validate.notNull(phase, "The phase cannot be null.");
+    Validate.notNull(step, "The step cannot be null.");
+
+    long phaseStart = System.nanoTime();
+    try {
+      return step.get();
+    } finally {
+      long elapsed = System.nanoTime() - phaseStart;
+      synchronized (phases) {
+        phases.put(phase, TimeUnit.NANOSECONDS.toMillis(elapsed));
+      }
+    }
+  }
+
+  /** Runs and measures a phase without result.
+   *
+   * @param phase the phase name, cannot be null.
+   * @param step the phase, cannot be null.
+   */
+  void time(final String phase, final Runnable step) {
+    time(phase, () -> {
+      step.run();
+      return null;
+    });
+  }
+
+  /** Describes the duration of each ended phase and the time since this
+   * timer was created.
+   *
+   * @return the breakdown, never null.
+   */
+  @Override
+  public String toString() {
+    StringBuilder result = new StringBuilder();
+    synchronized (phases) {
+      phases.forEach((phase, millis) -> result.append(phase).append(' ')
+          .append(millis).append(" ms, "));
+    }
+    return result.append("total ")
+        .append(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+        .append(" ms").toString();
+  }
+}
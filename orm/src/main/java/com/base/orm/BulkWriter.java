@@ -0,0 +1,179 @@
+package com.base.orm;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import org.apache.commons.lang3.Validate;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.SharedSessionContract;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Writes large amounts of entities in constant memory, see {@link
+ * HibernateComponent#bulkSave(Iterable, int, int)}.
+ *
+ * The entities are taken from the iterable in chunks. Each chunk is written
+ * in its own session and transaction, so the persistence context never
+ * grows beyond a chunk. With more than one partition the chunks are written
+ * by that many threads, while at most one chunk per partition is held in
+ * memory.
+ */
+class BulkWriter {
+
+  /** The logger. */
+  private static Logger log = LoggerFactory.getLogger(BulkWriter.class);
+
+  /** The session factory, never null. */
+  private final SessionFactory sessionFactory;
+
+  /** The number of entities written in each transaction, greater than 0. */
+  private final int chunkSize;
+
+  /** The number of chunks written at the same time, greater than 0. */
+  private final int partitions;
+
+  /** Constructor with mandatory parameters.
+   *
+   * @param theSessionFactory the session factory, cannot be null.
+   * @param theChunkSize the number of entities written in each transaction,
+   * greater than 0.
+   * @param thePartitions the number of chunks written at the same time, each
+   * one in its own thread and session. Greater than 0.
+   */
+  BulkWriter(final SessionFactory theSessionFactory, final int theChunkSize,
+      final int thePartitions) {
+    Validate.notNull(theSessionFactory, "The session factory cannot be null.");
+    Validate.isTrue(theChunkSize > 0, "The chunk size must be positive.");
+    Validate.isTrue(thePartitions > 0, "The partitions must be positive.");
+    sessionFactory = theSessionFactory;
+    chunkSize = theChunkSize;
+    partitions = thePartitions;
+  }
+
+  /** Saves or updates the entities through regular sessions, cascading like
+   * {@link Session#saveOrUpdate(Object)} does.
+   *
+   * @param entities the entities to write, cannot be null.
+   *
+   * @return the number of written entities.
+   */
+  long save(final Iterable<?> entities) {
+    return write(entities, chunk -> {
+      try (Session session = sessionFactory.openSession()) {
+        session.setCacheMode(CacheMode.IGNORE);
+        inTransaction(session, () -> chunk.forEach(session::saveOrUpdate));
+      }
+    });
+  }
+
+  /** Inserts the entities through stateless sessions: nothing is cascaded
+   * and the second level cache is bypassed.
+   *
+   * @param entities the entities to write, cannot be null.
+   *
+   * @return the number of written entities.
+   */
+  long insert(final Iterable<?> entities) {
+    return write(entities, chunk -> {
+      try (StatelessSession session = sessionFactory.openStatelessSession()) {
+        inTransaction(session, () -> chunk.forEach(session::insert));
+      }
+    });
+  }
+
+  /** Writes the entities chunk by chunk, in up to {@link #partitions}
+   * threads.
+   *
+   * The first failure of a chunk, an Error included, stops taking new
+   * chunks and is thrown once the chunks in progress end.
+   *
+   * @param entities the entities to write, cannot be null.
+   * @param writer writes a chunk, cannot be null.
+   *
+   * @return the number of written entities.
+   */
+  long write(final Iterable<?> entities,
+      final Consumer<List<Object>> writer) {
+    Validate.notNull(entities, "The entities to write cannot be null.");
+
+    ExecutorService executor = Executors.newFixedThreadPool(partitions,
+        runnable -> {
+          Thread thread = new Thread(runnable, "orm-bulk-writer");
+          thread.setDaemon(true);
+          return thread;
+        });
+    Semaphore slots = new Semaphore(partitions);
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    AtomicLong written = new AtomicLong();
+    try {
+      Iterator<?> iterator = entities.iterator();
+      while (iterator.hasNext() && failure.get() == null) {
+        List<Object> chunk = new ArrayList<>(chunkSize);
+        while (iterator.hasNext() && chunk.size() < chunkSize) {
+          chunk.add(iterator.next());
+        }
+        slots.acquire();
+        executor.execute(() -> {
+          try {
+            writer.accept(chunk);
+            log.trace("Bulk wrote {} entities",
+                written.addAndGet(chunk.size()));
+          } catch (Throwable e) {
+            failure.compareAndSet(null, e);
+          } finally {
+            slots.release();
+          }
+        });
+      }
+      slots.acquire(partitions);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } finally {
+      executor.shutdownNow();
+    }
+
+    Throwable error = failure.get();
+    if (error != null) {
+      log.error("Bulk write failed after {} entities: {}", written.get(),
+          error.getMessage());
+      if (error instanceof Error) {
+        throw (Error) error;
+      }
+      throw (RuntimeException) error;
+    }
+    return written.get();
+  }
+
+  /** Runs an action in a new transaction of a session, with jdbc batching.
+   *
+   * @param session the session, cannot be null.
+   * @param action the action to run, cannot be null.
+   */
+  private void inTransaction(final SharedSessionContract session,
+      final Runnable action) {
+    if (sessionFactory.getSessionFactoryOptions().getJdbcBatchSize() == 0) {
+      session.setJdbcBatchSize(chunkSize);
+    }
+    Transaction tx = session.beginTransaction();
+    try {
+      action.run();
+      tx.commit();
+    } catch (RuntimeException e) {
+      if (tx.isActive()) {
+        tx.rollback();
+      }
+      throw e;
+    }
+  }
+}
@@ -0,0 +1,510 @@
+package com.base.orm;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.commons.lang3.Validate;
+import org.hibernate.cache.internal.DefaultCacheKeysFactory;
+import org.hibernate.cache.spi.CollectionRegion;
+import org.hibernate.cache.spi.EntityRegion;
+import org.hibernate.cache.spi.NaturalIdRegion;
+import org.hibernate.cache.spi.access.CollectionRegionAccessStrategy;
+import org.hibernate.cache.spi.access.EntityRegionAccessStrategy;
+import org.hibernate.cache.spi.access.NaturalIdRegionAccessStrategy;
+import org.hibernate.cache.spi.access.RegionAccessStrategy;
+import org.hibernate.cache.spi.access.SoftLock;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.persister.collection.CollectionPersister;
+import org.hibernate.persister.entity.EntityPersister;
+
+/** The read only and read write access strategies of a {@link CacheRegion}.
+ *
+ * Read only access just caches what it is given. Read write access replaces
+ * the entries being modified by a soft lock until the transaction completes,
+ * and only accepts a value loaded from the database if it was loaded after
+ * the last modification of the entry, so concurrent transactions never cache
+ * stale state.
+ */
+abstract class CacheAccess implements RegionAccessStrategy {
+
+  /** The source of soft lock ids. */
+  private static final AtomicLong LOCK_IDS = new AtomicLong();
+
+  /** The region accessed, never null. */
+  private final CacheRegion region;
+
+  /** Whether the cached entities are never modified. */
+  private final boolean readOnly;
+
+  /** Constructor, creates a new access strategy.
+   *
+   * @param theRegion the region accessed, cannot be null.
+   * @param isReadOnly whether the cached entities are never modified.
+   */
+  CacheAccess(final CacheRegion theRegion, final boolean isReadOnly) {
+    Validate.notNull(theRegion, "The region cannot be null.");
+    region = theRegion;
+    readOnly = isReadOnly;
+  }
+
+  /** Returns the region accessed.
+   *
+   * @return the region, never null.
+   */
+  CacheRegion region() {
+    return region;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Object get(final SharedSessionContractImplementor session,
+      final Object key, final long txTimestamp) {
+    Object entry = cache().getIfPresent(key);
+    if (entry instanceof Item) {
+      Item item = (Item) entry;
+      if (readOnly || item.timestamp < txTimestamp) {
+        return item.value;
+      }
+    }
+    return null;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean putFromLoad(final SharedSessionContractImplementor session,
+      final Object key, final Object value, final long txTimestamp,
+      final Object version) {
+    return putFromLoad(session, key, value, txTimestamp, version, false);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean putFromLoad(final SharedSessionContractImplementor session,
+      final Object key, final Object value, final long txTimestamp,
+      final Object version, final boolean minimalPutOverride) {
+    AtomicBoolean put = new AtomicBoolean();
+    cache().asMap().compute(key, (k, entry) -> {
+      if (entry == null || entry instanceof Lock
+          && ((Lock) entry).isWriteable(txTimestamp, region.nextTimestamp())) {
+        put.set(true);
+        return new Item(value, version, region.nextTimestamp());
+      }
+      return entry;
+    });
+    return put.get();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public SoftLock lockItem(final SharedSessionContractImplementor session,
+      final Object key, final Object version) {
+    if (readOnly) {
+      return null;
+    }
+    long timeout = region.nextTimestamp() + region.getTimeout();
+    AtomicReference<Lock> result = new AtomicReference<>();
+    cache().asMap().compute(key, (k, entry) -> {
+      Lock lock;
+      if (entry instanceof Lock && ((Lock) entry).isLocked()) {
+        lock = (Lock) entry;
+        lock.concurrent++;
+        lock.timeout = timeout;
+      } else {
+        lock = new Lock(timeout);
+      }
+      result.set(lock);
+      return lock;
+    });
+    return result.get();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public SoftLock lockRegion() {
+    evictAll();
+    return null;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void unlockItem(final SharedSessionContractImplementor session,
+      final Object key, final SoftLock lock) {
+    if (readOnly) {
+      evict(key);
+      return;
+    }
+    cache().asMap().compute(key, (k, entry) -> unlock(entry, lock));
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void unlockRegion(final SoftLock lock) {
+    evictAll();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void remove(final SharedSessionContractImplementor session,
+      final Object key) {
+    // Read write entries stay locked until the transaction completes.
+    if (readOnly) {
+      evict(key);
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void removeAll() {
+    evictAll();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void evict(final Object key) {
+    cache().invalidate(key);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void evictAll() {
+    cache().invalidateAll();
+  }
+
+  /** Caches a newly inserted entity once its transaction commits.
+   *
+   * @param key the cache key, cannot be null.
+   * @param value the cached state, cannot be null.
+   * @param version the entity version, null if not versioned.
+   *
+   * @return true if the state was cached.
+   */
+  boolean afterInsert(final Object key, final Object value,
+      final Object version) {
+    AtomicBoolean put = new AtomicBoolean();
+    cache().asMap().computeIfAbsent(key, k -> {
+      put.set(true);
+      return new Item(value, version, region.nextTimestamp());
+    });
+    return put.get();
+  }
+
+  /** Caches the new state of an updated entity once its transaction commits,
+   * unless another transaction modified it concurrently.
+   *
+   * @param key the cache key, cannot be null.
+   * @param value the cached state, cannot be null.
+   * @param version the entity version, null if not versioned.
+   * @param lock the lock obtained before the update, can be null.
+   *
+   * @return true if the state was cached.
+   */
+  boolean afterUpdate(final Object key, final Object value,
+      final Object version, final SoftLock lock) {
+    if (readOnly) {
+      throw new UnsupportedOperationException(
+          "Cannot update a read only entity in " + region.getName());
+    }
+    AtomicBoolean put = new AtomicBoolean();
+    cache().asMap().compute(key, (k, entry) -> {
+      if (entry == lock && ((Lock) entry).concurrent == 1) {
+        put.set(true);
+        return new Item(value, version, region.nextTimestamp());
+      }
+      return unlock(entry, lock);
+    });
+    return put.get();
+  }
+
+  /** Releases a lock, leaving it in the region so values loaded by
+   * transactions that started before the release are not cached.
+   *
+   * @param entry the current entry of the key, null if there is none.
+   * @param lock the lock to release, can be null.
+   *
+   * @return the new entry of the key, never null.
+   */
+  private Object unlock(final Object entry, final SoftLock lock) {
+    if (entry == lock && entry != null) {
+      Lock current = (Lock) entry;
+      current.concurrent--;
+      if (current.concurrent == 0) {
+        current.unlocked = region.nextTimestamp();
+      }
+      return current;
+    }
+    // The lock expired or was evicted, the entry cannot be trusted.
+    Lock stale = new Lock(0);
+    stale.concurrent = 0;
+    stale.unlocked = region.nextTimestamp();
+    return stale;
+  }
+
+  /** Returns the cached entries.
+   *
+   * @return the cache, never null.
+   */
+  private Cache<Object, Object> cache() {
+    return region.getCache();
+  }
+
+  /** A cached value. */
+  private static final class Item {
+
+    /** The cached state, never null. */
+    private final Object value;
+
+    /** The entity version, null if not versioned. */
+    private final Object version;
+
+    /** The timestamp at which the value was cached. */
+    private final long timestamp;
+
+    /** Constructor, creates a new item.
+     *
+     * @param theValue the cached state, cannot be null.
+     * @param theVersion the entity version, null if not versioned.
+     * @param theTimestamp the timestamp at which the value was cached.
+     */
+    Item(final Object theValue, final Object theVersion,
+        final long theTimestamp) {
+      value = theValue;
+      version = theVersion;
+      timestamp = theTimestamp;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+      return "Item(" + value + ", version " + version + ")";
+    }
+  }
+
+  /** A soft lock on an entry that is being modified.
+   *
+   * It is only mutated inside the compute functions of the region cache,
+   * which are atomic per key.
+   */
+  private static final class Lock implements SoftLock {
+
+    /** The lock id, used only for debugging. */
+    private final long id = LOCK_IDS.incrementAndGet();
+
+    /** The timestamp after which the lock is considered abandoned. */
+    private long timeout;
+
+    /** The number of transactions holding the lock. */
+    private int concurrent = 1;
+
+    /** The timestamp at which the last holder released the lock, or -1 while
+     * the lock is held. */
+    private long unlocked = -1;
+
+    /** Constructor, creates a new lock held by one transaction.
+     *
+     * @param theTimeout the timestamp after which the lock is considered
+     * abandoned.
+     */
+    Lock(final long theTimeout) {
+      timeout = theTimeout;
+    }
+
+    /** Returns whether some transaction holds this lock.
+     *
+     * @return true if the lock is held.
+     */
+    boolean isLocked() {
+      return concurrent > 0;
+    }
+
+    /** Returns whether a value loaded at a given time may replace this lock.
+     *
+     * @param txTimestamp the timestamp of the loading transaction.
+     * @param now the current timestamp.
+     *
+     * @return true if the value was loaded after the lock was released, or if
+     * the lock was abandoned.
+     */
+    boolean isWriteable(final long txTimestamp, final long now) {
+      if (isLocked()) {
+        return now > timeout;
+      }
+      return txTimestamp > unlocked;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+      return "Lock(" + id + ", " + concurrent + " holders)";
+    }
+  }
+
+  /** The access strategy of an entity region. */
+  static final class EntityAccess extends CacheAccess
+      implements EntityRegionAccessStrategy {
+
+    /** Constructor, creates a new access strategy.
+     *
+     * @param theRegion the region accessed, cannot be null.
+     * @param isReadOnly whether the cached entities are never modified.
+     */
+    EntityAccess(final CacheRegion.EntityCache theRegion,
+        final boolean isReadOnly) {
+      super(theRegion, isReadOnly);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public EntityRegion getRegion() {
+      return (EntityRegion) region();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean insert(final SharedSessionContractImplementor session,
+        final Object key, final Object value, final Object version) {
+      return false;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean afterInsert(final SharedSessionContractImplementor session,
+        final Object key, final Object value, final Object version) {
+      return afterInsert(key, value, version);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean update(final SharedSessionContractImplementor session,
+        final Object key, final Object value, final Object currentVersion,
+        final Object previousVersion) {
+      return false;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean afterUpdate(final SharedSessionContractImplementor session,
+        final Object key, final Object value, final Object currentVersion,
+        final Object previousVersion, final SoftLock lock) {
+      return afterUpdate(key, value, currentVersion, lock);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Object generateCacheKey(final Object id,
+        final EntityPersister persister,
+        final SessionFactoryImplementor factory,
+        final String tenantIdentifier) {
+      return DefaultCacheKeysFactory.createEntityKey(id, persister, factory,
+          tenantIdentifier);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Object getCacheKeyId(final Object cacheKey) {
+      return DefaultCacheKeysFactory.getEntityId(cacheKey);
+    }
+  }
+
+  /** The access strategy of a collection region. */
+  static final class CollectionAccess extends CacheAccess
+      implements CollectionRegionAccessStrategy {
+
+    /** Constructor, creates a new access strategy.
+     *
+     * @param theRegion the region accessed, cannot be null.
+     * @param isReadOnly whether the cached collections are never modified.
+     */
+    CollectionAccess(final CacheRegion.CollectionCache theRegion,
+        final boolean isReadOnly) {
+      super(theRegion, isReadOnly);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public CollectionRegion getRegion() {
+      return (CollectionRegion) region();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Object generateCacheKey(final Object id,
+        final CollectionPersister persister,
+        final SessionFactoryImplementor factory,
+        final String tenantIdentifier) {
+      return DefaultCacheKeysFactory.createCollectionKey(id, persister,
+          factory, tenantIdentifier);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Object getCacheKeyId(final Object cacheKey) {
+      return DefaultCacheKeysFactory.getCollectionId(cacheKey);
+    }
+  }
+
+  /** The access strategy of a natural id region. */
+  static final class NaturalIdAccess extends CacheAccess
+      implements NaturalIdRegionAccessStrategy {
+
+    /** Constructor, creates a new access strategy.
+     *
+     * @param theRegion the region accessed, cannot be null.
+     * @param isReadOnly whether the cached natural ids are never modified.
+     */
+    NaturalIdAccess(final CacheRegion.NaturalIdCache theRegion,
+        final boolean isReadOnly) {
+      super(theRegion, isReadOnly);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public NaturalIdRegion getRegion() {
+      return (NaturalIdRegion) region();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean insert(final SharedSessionContractImplementor session,
+        final Object key, final Object value) {
+      return false;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean afterInsert(final SharedSessionContractImplementor session,
+        final Object key, final Object value) {
+      return afterInsert(key, value, null);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean update(final SharedSessionContractImplementor session,
+        final Object key, final Object value) {
+      return false;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean afterUpdate(final SharedSessionContractImplementor session,
+        final Object key, final Object value, final SoftLock lock) {
+      return afterUpdate(key, value, null, lock);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Object generateCacheKey(final Object[] naturalIdValues,
+        final EntityPersister persister,
+        final SharedSessionContractImplementor session) {
+      return DefaultCacheKeysFactory.createNaturalIdKey(naturalIdValues,
+          persister, session);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Object[] getNaturalIdValues(final Object cacheKey) {
+      return DefaultCacheKeysFactory.getNaturalIdValues(cacheKey);
+    }
+  }
+}
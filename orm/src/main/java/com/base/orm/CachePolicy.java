@@ -0,0 +1,125 @@
+package com.base.orm;
+
+import java.time.Duration;
+import org.apache.commons.lang3.Validate;
+
+/** How the second level cache keeps the instances of an entity.
+ *
+ * Policies are given to {@link ModulePersistenceRegistry#add(Class,
+ * CachePolicy)}. The cached entities, and their collections, get a bounded
+ * in-process region named &lt;module&gt;.&lt;entity or role name&gt;, see
+ * {@link ModuleRegionFactory}.
+ */
+public final class CachePolicy {
+
+  /** How the cached instances are accessed. */
+  public enum Access {
+
+    /** The instances are never updated, they can only be created and
+     * deleted. */
+    READ_ONLY("read-only"),
+
+    /** The instances may be updated. Updated entries are locked until the
+     * transaction completes. */
+    READ_WRITE("read-write");
+
+    /** The hibernate name of the cache concurrency strategy, never null. */
+    private final String strategy;
+
+    /** Constructor.
+     *
+     * @param theStrategy the hibernate name of the strategy, cannot be null.
+     */
+    Access(final String theStrategy) {
+      strategy = theStrategy;
+    }
+
+    /** Returns the hibernate name of the cache concurrency strategy.
+     *
+     * @return the strategy name, never null.
+     */
+    String getStrategy() {
+      return strategy;
+    }
+  }
+
+  /** How the cached instances are accessed, never null. */
+  private final Access access;
+
+  /** The maximum number of cached instances, greater than 0. */
+  private final long maxEntries;
+
+  /** How long an instance stays cached after it is written, never null. Zero
+   * means that instances do not expire. */
+  private final Duration timeToLive;
+
+  /** Constructor with mandatory parameters.
+   *
+   * @param theAccess how the instances are accessed, cannot be null.
+   * @param theMaxEntries the maximum number of cached instances, greater than
+   * 0. The least valuable instances are evicted when the cache is full.
+   * @param theTimeToLive how long an instance stays cached after it is
+   * written, zero for no expiration. Cannot be null nor negative.
+   */
+  public CachePolicy(final Access theAccess, final long theMaxEntries,
+      final Duration theTimeToLive) {
+    Validate.notNull(theAccess, "The cache access cannot be null.");
+    Validate.isTrue(theMaxEntries > 0, "The max entries must be positive.");
+    Validate.notNull(theTimeToLive, "The time to live cannot be null.");
+    Validate.isTrue(!theTimeToLive.isNegative(),
+        "The time to live cannot be negative.");
+    access = theAccess;
+    maxEntries = theMaxEntries;
+    timeToLive = theTimeToLive;
+  }
+
+  /** Creates a policy for instances that are never updated.
+   *
+   * @param maxEntries the maximum number of cached instances, greater than 0.
+   * @param timeToLive how long an instance stays cached, zero for no
+   * expiration. Cannot be null.
+   *
+   * @return a new policy, never null.
+   */
+  public static CachePolicy readOnly(final long maxEntries,
+      final Duration timeToLive) {
+    return new CachePolicy(Access.READ_ONLY, maxEntries, timeToLive);
+  }
+
+  /** Creates a policy for instances that may be updated.
+   *
+   * @param maxEntries the maximum number of cached instances, greater than 0.
+   * @param timeToLive how long an instance stays cached, zero for no
+   * expiration. Cannot be null.
+   *
+   * @return a new policy, never null.
+   */
+  public static CachePolicy readWrite(final long maxEntries,
+      final Duration timeToLive) {
+    return new CachePolicy(Access.READ_WRITE, maxEntries, timeToLive);
+  }
+
+  /** Returns how the cached instances are accessed.
+   *
+   * @return the access, never null.
+   */
+  public Access getAccess() {
+    return access;
+  }
+
+  /** Returns the maximum number of cached instances.
+   *
+   * @return the max entries, greater than 0.
+   */
+  public long getMaxEntries() {
+    return maxEntries;
+  }
+
+  /** Returns how long an instance stays cached after it is written.
+   *
+   * @return the time to live, zero if instances do not expire. Never null.
+   */
+  public Duration getTimeToLive() {
+    return timeToLive;
+  }
+}
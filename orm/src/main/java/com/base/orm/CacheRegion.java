@@ -0,0 +1,309 @@
+package com.base.orm;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.commons.lang3.Validate;
+import org.hibernate.cache.CacheException;
+import org.hibernate.cache.spi.CacheDataDescription;
+import org.hibernate.cache.spi.CollectionRegion;
+import org.hibernate.cache.spi.EntityRegion;
+import org.hibernate.cache.spi.NaturalIdRegion;
+import org.hibernate.cache.spi.QueryResultsRegion;
+import org.hibernate.cache.spi.TimestampsRegion;
+import org.hibernate.cache.spi.TransactionalDataRegion;
+import org.hibernate.cache.spi.access.AccessType;
+import org.hibernate.cache.spi.access.CollectionRegionAccessStrategy;
+import org.hibernate.cache.spi.access.EntityRegionAccessStrategy;
+import org.hibernate.cache.spi.access.NaturalIdRegionAccessStrategy;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+
+/** A second level cache region kept in a bounded, in-process caffeine cache,
+ * that evicts with W-TinyLFU.
+ *
+ * The nested classes are the region kinds hibernate asks {@link
+ * ModuleRegionFactory} for.
+ */
+abstract class CacheRegion implements org.hibernate.cache.spi.Region {
+
+  /** The region name, never null. */
+  private final String name;
+
+  /** The factory that created this region, never null. */
+  private final ModuleRegionFactory factory;
+
+  /** The cached entries, never null. */
+  private final Cache<Object, Object> cache;
+
+  /** Constructor, creates a new region.
+   *
+   * @param theName the region name, cannot be null.
+   * @param theFactory the factory that creates this region, cannot be null.
+   * @param policy the bounds of the region, or null for an unbounded region.
+   */
+  CacheRegion(final String theName, final ModuleRegionFactory theFactory,
+      final CachePolicy policy) {
+    Validate.notNull(theName, "The region name cannot be null.");
+    Validate.notNull(theFactory, "The region factory cannot be null.");
+    name = theName;
+    factory = theFactory;
+    Caffeine<Object, Object> builder = Caffeine.newBuilder().recordStats();
+    if (policy != null) {
+      builder.maximumSize(policy.getMaxEntries());
+      if (!policy.getTimeToLive().isZero()) {
+        builder.expireAfterWrite(policy.getTimeToLive());
+      }
+    }
+    cache = builder.build();
+  }
+
+  /** Returns the cached entries.
+   *
+   * @return the cache, never null.
+   */
+  Cache<Object, Object> getCache() {
+    return cache;
+  }
+
+  /** Takes a snapshot of the activity of this region.
+   *
+   * @return the statistics, never null.
+   */
+  CacheStatistics getStatistics() {
+    CacheStats stats = cache.stats();
+    return new CacheStatistics(name, stats.hitCount(), stats.missCount(),
+        stats.evictionCount(), cache.estimatedSize());
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void destroy() {
+    cache.invalidateAll();
+    cache.cleanUp();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean contains(final Object key) {
+    return cache.asMap().containsKey(key);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public long getSizeInMemory() {
+    return -1;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public long getElementCountInMemory() {
+    return cache.estimatedSize();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public long getElementCountOnDisk() {
+    return 0;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @SuppressWarnings("rawtypes")
+  public Map toMap() {
+    return new HashMap<>(cache.asMap());
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public long nextTimestamp() {
+    return factory.nextTimestamp();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int getTimeout() {
+    return (int) ModuleRegionFactory.LOCK_TIMEOUT;
+  }
+
+  /** A region that holds entities or collections. */
+  abstract static class Transactional extends CacheRegion
+      implements TransactionalDataRegion {
+
+    /** The description of the cached data, never null. */
+    private final CacheDataDescription description;
+
+    /** Constructor, creates a new region.
+     *
+     * @param theName the region name, cannot be null.
+     * @param theFactory the factory that creates this region, cannot be
+     * null.
+     * @param policy the bounds of the region, or null for an unbounded
+     * region.
+     * @param theDescription the description of the cached data, cannot be
+     * null.
+     */
+    Transactional(final String theName, final ModuleRegionFactory theFactory,
+        final CachePolicy policy, final CacheDataDescription theDescription) {
+      super(theName, theFactory, policy);
+      description = theDescription;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isTransactionAware() {
+      return false;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public CacheDataDescription getCacheDataDescription() {
+      return description;
+    }
+
+    /** Checks that an access type is supported.
+     *
+     * @param accessType the access type requested by hibernate.
+     *
+     * @return true for read only access, false for read write access.
+     */
+    static boolean isReadOnly(final AccessType accessType) {
+      if (accessType == AccessType.TRANSACTIONAL) {
+        throw new CacheException("Transactional caching is not supported");
+      }
+      return accessType == AccessType.READ_ONLY;
+    }
+  }
+
+  /** A region of entities. */
+  static final class EntityCache extends Transactional
+      implements EntityRegion {
+
+    /** Constructor, creates a new region.
+     *
+     * @param theName the region name, cannot be null.
+     * @param theFactory the factory that creates this region, cannot be
+     * null.
+     * @param policy the bounds of the region, or null for an unbounded
+     * region.
+     * @param theDescription the description of the cached data, cannot be
+     * null.
+     */
+    EntityCache(final String theName, final ModuleRegionFactory theFactory,
+        final CachePolicy policy, final CacheDataDescription theDescription) {
+      super(theName, theFactory, policy, theDescription);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public EntityRegionAccessStrategy buildAccessStrategy(
+        final AccessType accessType) {
+      return new CacheAccess.EntityAccess(this, isReadOnly(accessType));
+    }
+  }
+
+  /** A region of collections. */
+  static final class CollectionCache extends Transactional
+      implements CollectionRegion {
+
+    /** Constructor, creates a new region.
+     *
+     * @param theName the region name, cannot be null.
+     * @param theFactory the factory that creates this region, cannot be
+     * null.
+     * @param policy the bounds of the region, or null for an unbounded
+     * region.
+     * @param theDescription the description of the cached data, cannot be
+     * null.
+     */
+    CollectionCache(final String theName, final ModuleRegionFactory theFactory,
+        final CachePolicy policy, final CacheDataDescription theDescription) {
+      super(theName, theFactory, policy, theDescription);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public CollectionRegionAccessStrategy buildAccessStrategy(
+        final AccessType accessType) {
+      return new CacheAccess.CollectionAccess(this, isReadOnly(accessType));
+    }
+  }
+
+  /** A region of natural id to id resolutions. */
+  static final class NaturalIdCache extends Transactional
+      implements NaturalIdRegion {
+
+    /** Constructor, creates a new region.
+     *
+     * @param theName the region name, cannot be null.
+     * @param theFactory the factory that creates this region, cannot be
+     * null.
+     * @param policy the bounds of the region, or null for an unbounded
+     * region.
+     * @param theDescription the description of the cached data, cannot be
+     * null.
+     */
+    NaturalIdCache(final String theName, final ModuleRegionFactory theFactory,
+        final CachePolicy policy, final CacheDataDescription theDescription) {
+      super(theName, theFactory, policy, theDescription);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public NaturalIdRegionAccessStrategy buildAccessStrategy(
+        final AccessType accessType) {
+      return new CacheAccess.NaturalIdAccess(this, isReadOnly(accessType));
+    }
+  }
+
+  /** A region of query results or of table update timestamps. */
+  static final class GeneralCache extends CacheRegion
+      implements QueryResultsRegion, TimestampsRegion {
+
+    /** Constructor, creates a new region.
+     *
+     * @param theName the region name, cannot be null.
+     * @param theFactory the factory that creates this region, cannot be
+     * null.
+     * @param policy the bounds of the region, or null for an unbounded
+     * region.
+     */
+    GeneralCache(final String theName, final ModuleRegionFactory theFactory,
+        final CachePolicy policy) {
+      super(theName, theFactory, policy);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Object get(final SharedSessionContractImplementor session,
+        final Object key) {
+      return getCache().getIfPresent(key);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void put(final SharedSessionContractImplementor session,
+        final Object key, final Object value) {
+      getCache().put(key, value);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void evict(final Object key) {
+      getCache().invalidate(key);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void evictAll() {
+      getCache().invalidateAll();
+    }
+  }
+}
@@ -0,0 +1,88 @@
+package com.base.orm;
+
+/** A snapshot of the activity of a second level cache region.
+ *
+ * @see HibernateComponent#getCacheStatistics()
+ */
+public final class CacheStatistics {
+
+  /** The region name, never null. */
+  private final String region;
+
+  /** The number of lookups that found an instance. */
+  private final long hits;
+
+  /** The number of lookups that found nothing. */
+  private final long misses;
+
+  /** The number of instances evicted by size or expiration. */
+  private final long evictions;
+
+  /** The approximate number of cached instances. */
+  private final long size;
+
+  /** Constructor with mandatory parameters.
+   *
+   * @param theRegion the region name, cannot be null.
+   * @param theHits the number of lookups that found an instance.
+   * @param theMisses the number of lookups that found nothing.
+   * @param theEvictions the number of instances evicted by size or
+   * expiration.
+   * @param theSize the approximate number of cached instances.
+   */
+  CacheStatistics(final String theRegion, final long theHits,
+      final long theMisses, final long theEvictions, final long theSize) {
+    region = theRegion;
+    hits = theHits;
+    misses = theMisses;
+    evictions = theEvictions;
+    size = theSize;
+  }
+
+  /** Returns the region name.
+   *
+   * @return the region name, never null.
+   */
+  public String getRegion() {
+    return region;
+  }
+
+  /** Returns the number of lookups that found an instance.
+   *
+   * @return the hit count.
+   */
+  public long getHits() {
+    return hits;
+  }
+
+  /** Returns the number of lookups that found nothing.
+   *
+   * @return the miss count.
+   */
+  public long getMisses() {
+    return misses;
+  }
+
+  /** Returns the number of instances evicted by size or expiration.
+   *
+   * @return the eviction count.
+   */
+  public long getEvictions() {
+    return evictions;
+  }
+
+  /** Returns the approximate number of cached instances.
+   *
+   * @return the size.
+   */
+  public long getSize() {
+    return size;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String toString() {
+    return region + ": " + hits + " hits, " + misses + " misses, "
+        + evictions + " evictions, " + size + " entries";
+  }
+}
@@ -0,0 +1,178 @@
+package com.base.orm;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.lang3.Validate;
+import org.springframework.transaction.HeuristicCompletionException;
+import org.springframework.transaction.NestedTransactionNotSupportedException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+
+/** Runs each transaction in several transaction managers at the same time.
+ *
+ * It is used when modules have their own {@link HibernateComponent}, so a
+ * <code>@Transactional</code> method gets a current session in every
+ * session factory without naming a transaction manager.
+ * <br>
+ * The transactions begin in order and commit in reverse order. This is not a
+ * two phase commit: if a commit fails after others succeeded, the remaining
+ * transactions are rolled back and a {@link HeuristicCompletionException}
+ * is thrown.
+ */
+final class ChainedTransactionManager implements PlatformTransactionManager {
+
+  /** The chained managers, in begin order, never null nor empty. */
+  private final List<PlatformTransactionManager> managers;
+
+  /** Constructor, creates a new manager.
+   *
+   * @param theManagers the managers to chain, in begin order. Cannot be null
+   * nor empty.
+   */
+  ChainedTransactionManager(
+      final List<PlatformTransactionManager> theManagers) {
+    Validate.notEmpty(theManagers, "No transaction managers to chain.");
+    managers = Collections.unmodifiableList(new ArrayList<>(theManagers));
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public TransactionStatus getTransaction(
+      final TransactionDefinition definition) {
+    ChainedStatus status = new ChainedStatus();
+    for (PlatformTransactionManager manager : managers) {
+      try {
+        status.statuses.put(manager, manager.getTransaction(definition));
+      } catch (RuntimeException e) {
+        rollback(status);
+        throw e;
+      }
+    }
+    return status;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void commit(final TransactionStatus status) {
+    ChainedStatus chained = (ChainedStatus) status;
+    boolean committed = false;
+    for (PlatformTransactionManager manager : chained.reversed()) {
+      TransactionStatus single = chained.statuses.remove(manager);
+      try {
+        manager.commit(single);
+        committed = true;
+      } catch (RuntimeException e) {
+        rollback(chained);
+        if (committed) {
+          throw new HeuristicCompletionException(
+              HeuristicCompletionException.STATE_MIXED, e);
+        }
+        throw e;
+      }
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void rollback(final TransactionStatus status) {
+    ChainedStatus chained = (ChainedStatus) status;
+    RuntimeException failure = null;
+    for (PlatformTransactionManager manager : chained.reversed()) {
+      TransactionStatus single = chained.statuses.remove(manager);
+      try {
+        manager.rollback(single);
+      } catch (RuntimeException e) {
+        if (failure == null) {
+          failure = e;
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  /** The status of a chained transaction: the status of the transaction in
+   * each manager that is not completed yet.
+   */
+  private static final class ChainedStatus implements TransactionStatus {
+
+    /** The pending transactions, by manager, in begin order, never null. */
+    private final Map<PlatformTransactionManager, TransactionStatus> statuses =
+        new LinkedHashMap<>();
+
+    /** Lists the managers with a pending transaction, last begun first.
+     *
+     * @return the managers, never null.
+     */
+    private List<PlatformTransactionManager> reversed() {
+      List<PlatformTransactionManager> result;
+      result = new ArrayList<>(statuses.keySet());
+      Collections.reverse(result);
+      return result;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isNewTransaction() {
+      return statuses.values().stream().anyMatch(
+          TransactionStatus::isNewTransaction);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean hasSavepoint() {
+      return false;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setRollbackOnly() {
+      statuses.values().forEach(TransactionStatus::setRollbackOnly);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isRollbackOnly() {
+      return statuses.values().stream().anyMatch(
+          TransactionStatus::isRollbackOnly);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void flush() {
+      statuses.values().forEach(TransactionStatus::flush);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isCompleted() {
+      return statuses.isEmpty();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Object createSavepoint() {
+      throw new NestedTransactionNotSupportedException(
+          "Savepoints are not supported across transaction managers");
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void rollbackToSavepoint(final Object savepoint) {
+      throw new NestedTransactionNotSupportedException(
+          "Savepoints are not supported across transaction managers");
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void releaseSavepoint(final Object savepoint) {
+      throw new NestedTransactionNotSupportedException(
+          "Savepoints are not supported across transaction managers");
+    }
+  }
+}
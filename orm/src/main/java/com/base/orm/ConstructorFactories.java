@@ -0,0 +1,150 @@
+package com.base.orm;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Generates the {@link EntityFactory} of the entities without a hand
+ * written one, so {@link CustomTuplizer} does not instantiate them through
+ * reflection.
+ *
+ * The factory calls the entity constructor with the most parameters among
+ * those whose parameter types are all registered as dependencies of the
+ * module, see {@link ModulePersistenceRegistry#addDependency(Class,
+ * Object)}. The no-arg constructor is used when no other one can be
+ * resolved. The constructor does not need to be public.
+ * <br>
+ * The call is compiled with {@link LambdaMetafactory} into a class that
+ * invokes the constructor directly. When the JVM does not allow it, the
+ * factory falls back to reflection.
+ */
+final class ConstructorFactories {
+
+  /** The logger. */
+  private static Logger log = LoggerFactory.getLogger(
+      ConstructorFactories.class);
+
+  /** The access modes of a lookup with full privileges in Java 8. */
+  private static final int ALL_MODES = MethodHandles.Lookup.PUBLIC
+      | MethodHandles.Lookup.PRIVATE | MethodHandles.Lookup.PROTECTED
+      | MethodHandles.Lookup.PACKAGE;
+
+  /** Utility class, not to be instantiated. */
+  private ConstructorFactories() {
+  }
+
+  /** Generates the factory of an entity.
+   *
+   * @param entity the persistent class, cannot be null.
+   * @param dependencies the instances that can be passed to the
+   * constructors, indexed by parameter type. Cannot be null.
+   *
+   * @return the factory, or null if the class is abstract or none of its
+   * constructors can be resolved.
+   */
+  static EntityFactory<?> create(final Class<?> entity,
+      final Map<Class<?>, Object> dependencies) {
+    if (Modifier.isAbstract(entity.getModifiers())) {
+      return null;
+    }
+    Optional<Constructor<?>> resolved = Arrays
+        .stream(entity.getDeclaredConstructors())
+        .filter(c -> Arrays.stream(c.getParameterTypes())
+            .allMatch(dependencies::containsKey))
+        .max(Comparator.comparingInt(Constructor::getParameterCount));
+    if (!resolved.isPresent()) {
+      return null;
+    }
+
+    Constructor<?> constructor = resolved.get();
+    Object[] arguments = Arrays.stream(constructor.getParameterTypes())
+        .map(dependencies::get)
+        .toArray();
+    try {
+      return compile(constructor, arguments);
+    } catch (Throwable e) {
+      log.warn("Unable to generate the factory of {}, using reflection: {}",
+          entity.getName(), e.toString());
+      return reflect(constructor, arguments);
+    }
+  }
+
+  /** Compiles a factory that calls a constructor with fixed arguments.
+   *
+   * @param constructor the constructor, cannot be null.
+   * @param arguments the constructor arguments, cannot be null.
+   *
+   * @return the factory, never null.
+   *
+   * @throws Throwable if the JVM does not allow to compile it.
+   */
+  private static EntityFactory<?> compile(final Constructor<?> constructor,
+      final Object[] arguments) throws Throwable {
+    Class<?> entity = constructor.getDeclaringClass();
+    MethodHandles.Lookup lookup = privateLookupIn(entity);
+    MethodHandle target = lookup.unreflectConstructor(constructor);
+    CallSite site = LambdaMetafactory.metafactory(lookup, "create",
+        MethodType.methodType(EntityFactory.class,
+            constructor.getParameterTypes()),
+        MethodType.methodType(Object.class), target,
+        MethodType.methodType(entity));
+    return (EntityFactory<?>) site.getTarget().invokeWithArguments(arguments);
+  }
+
+  /** Creates a factory that calls a constructor through reflection.
+   *
+   * @param constructor the constructor, cannot be null.
+   * @param arguments the constructor arguments, cannot be null.
+   *
+   * @return the factory, never null.
+   */
+  private static EntityFactory<?> reflect(final Constructor<?> constructor,
+      final Object[] arguments) {
+    constructor.setAccessible(true);
+    return () -> {
+      try {
+        return constructor.newInstance(arguments);
+      } catch (ReflectiveOperationException e) {
+        log.error(e.getMessage());
+        throw new RuntimeException(e);
+      }
+    };
+  }
+
+  /** Returns a lookup with private access to a class: through
+   * MethodHandles.privateLookupIn from Java 9 on, or through the private
+   * Lookup constructor in Java 8.
+   *
+   * @param type the class, cannot be null.
+   *
+   * @return the lookup, never null.
+   *
+   * @throws ReflectiveOperationException if the JVM does not allow it.
+   */
+  private static MethodHandles.Lookup privateLookupIn(final Class<?> type)
+      throws ReflectiveOperationException {
+    try {
+      Method privateLookupIn = MethodHandles.class.getMethod("privateLookupIn",
+          Class.class, MethodHandles.Lookup.class);
+      return (MethodHandles.Lookup) privateLookupIn.invoke(null, type,
+          MethodHandles.lookup());
+    } catch (NoSuchMethodException e) {
+      Constructor<MethodHandles.Lookup> constructor;
+      constructor = MethodHandles.Lookup.class.getDeclaredConstructor(
+          Class.class, int.class);
+      constructor.setAccessible(true);
+      return constructor.newInstance(type, ALL_MODES);
+    }
+  }
+}
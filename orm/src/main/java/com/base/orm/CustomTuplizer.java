@@ -43,16 +43,17 @@ public class CustomTuplizer extends PojoEntityTuplizer {
     return new CustomInstantiator(metamodel, persistentClass, localOptimizer);
   }
 
-  /** Instantiator that serch within the PersistenceUnits the ones that
-   * has been declared a Factory and use it as Instantiator.
+  /** Instantiator that uses the {@link EntityFactory} declared for the
+   * entity in its module, or generated from its constructors, if any.
+   * <br>
+   * The factory is resolved once, when the instantiator is built, so
+   * hydrating a row does not need to look it up again.
    */
   public static class CustomInstantiator extends PojoEntityInstantiator {
 
-    /** The Hibernate's EntityMetamodel instance, never null. e*/
-    private final EntityMetamodel entityMetamodel;
-
-    /** The Hibernate's PersistentClass, never null. */
-    private final PersistentClass persistentClass;
+    /** The factory used to create the entity, null if the entity is created
+     * through the default Hibernate strategy. */
+    private final EntityFactory factory;
 
     /** Creates a new instance of the Instantiator.
      *
@@ -65,17 +66,14 @@ public class CustomTuplizer extends PojoEntityTuplizer {
         final InstantiationOptimizer optimizer) {
       super(metamodel, aPersistentClass, optimizer);
 
-      entityMetamodel = metamodel;
-      persistentClass = aPersistentClass;
+      HibernateComponent hibernate = metamodel.getSessionFactory()
+          .getServiceRegistry().getService(HibernateComponent.class);
+      factory = hibernate.getFactory(aPersistentClass);
     }
 
     /** {@inheritDoc}.*/
     @Override
     public Object instantiate() {
-      HibernateComponent hibernate = entityMetamodel.getSessionFactory()
-          .getServiceRegistry().getService(HibernateComponent.class);
-      EntityFactory factory = hibernate.getFactory(persistentClass);
-
       if (factory != null) {
         return factory.create();
       }
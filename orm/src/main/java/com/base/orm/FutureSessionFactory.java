@@ -0,0 +1,93 @@
+package com.base.orm;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import org.apache.commons.lang3.Validate;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.core.InfrastructureProxy;
+
+/** A {@link SessionFactory} that stands for one still being built.
+ *
+ * Every call waits until the real session factory is ready and is then
+ * delegated to it. If the build failed, every call throws the build failure.
+ * <br>
+ * The proxy implements {@link InfrastructureProxy}, so Spring binds the
+ * transactional resources to the real session factory, the same one that
+ * SpringSessionContext looks them up with.
+ */
+final class FutureSessionFactory implements InvocationHandler {
+
+  /** The session factory being built, never null. */
+  private final CompletableFuture<SessionFactory> target;
+
+  /** Constructor, creates a new handler.
+   *
+   * @param theTarget the session factory being built, cannot be null.
+   */
+  private FutureSessionFactory(
+      final CompletableFuture<SessionFactory> theTarget) {
+    target = theTarget;
+  }
+
+  /** Creates a proxy for a session factory being built.
+   *
+   * @param target the session factory being built, cannot be null.
+   *
+   * @return a new proxy, never null.
+   */
+  static SessionFactory create(
+      final CompletableFuture<SessionFactory> target) {
+    Validate.notNull(target, "The session factory future cannot be null.");
+
+    return (SessionFactory) Proxy.newProxyInstance(
+        FutureSessionFactory.class.getClassLoader(),
+        new Class<?>[] {SessionFactoryImplementor.class,
+            InfrastructureProxy.class},
+        new FutureSessionFactory(target));
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Object invoke(final Object proxy, final Method method,
+      final Object[] args) throws Throwable {
+    switch (method.getName()) {
+      case "equals":
+        return proxy == args[0];
+      case "hashCode":
+        return System.identityHashCode(proxy);
+      case "toString":
+        if (target.isDone() && !target.isCompletedExceptionally()) {
+          return join().toString();
+        }
+        return "SessionFactory (building)";
+      case "getWrappedObject":
+        return join();
+      default:
+        try {
+          return method.invoke(join(), args);
+        } catch (InvocationTargetException e) {
+          throw e.getCause();
+        }
+    }
+  }
+
+  /** Waits for the session factory.
+   *
+   * @return the session factory, never null.
+   */
+  private SessionFactory join() {
+    try {
+      return target.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+}
@@ -1,19 +1,44 @@
 package com.base.orm;
 
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import javax.persistence.PersistenceException;
 import javax.sql.DataSource;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
+import org.apache.tomcat.jdbc.pool.DataSourceProxy;
 import org.hibernate.EntityMode;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.boot.Metadata;
 import org.hibernate.boot.MetadataSources;
 import org.hibernate.boot.registry.StandardServiceRegistry;
 import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.boot.spi.MetadataImplementor;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.id.factory.spi.MutableIdentifierGeneratorFactory;
 import org.hibernate.mapping.PersistentClass;
+import org.hibernate.mapping.RootClass;
 import org.hibernate.service.Service;
+import org.hibernate.service.spi.ServiceRegistryImplementor;
+import org.hibernate.stat.internal.StatisticsInitiator;
+import org.hibernate.stat.spi.StatisticsFactory;
+import org.hibernate.tool.hbm2ddl.SchemaValidator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.core.env.ConfigurableEnvironment;
 import org.springframework.core.env.EnumerablePropertySource;
 import org.springframework.core.env.PropertySource;
@@ -34,24 +59,114 @@ import org.springframework.stereotype.Component;
  * entities table names. e. g. if you annotate in your 'login' module an entity
  * UserRole like this <code>@Table(name="user_roles")</code> the actual table
  * name will be 'login_user_roles'.
+ * <br>
+ * When the orm.bootstrap.async property is true, the metadata and the
+ * {@link SessionFactory} are built in a background thread, while the
+ * {@link #getSessionFactory()} proxy waits for them on first use. Either way
+ * the time spent in each bootstrap phase is logged.
+ * <br>
+ * Entities added with a {@link CachePolicy} are kept in the second level
+ * cache, in regions named after their module, e. g. 'm1.com.test.Place'.
+ * <br>
+ * The ids of the entities are generated with the {@link IdStrategy} of their
+ * module, see {@link ModuleIdGeneratorFactory}.
+ * <br>
+ * When the orm.metrics.enabled property is true, hibernate statistics are
+ * collected per module into the {@link #getMetrics()} instance, that is
+ * registered in JMX.
+ * <br>
+ * When hibernate.hbm2ddl.auto is validate and orm.schema.fingerprint.enabled
+ * is true, the schema is only validated when its {@link
+ * MetadataFingerprint#ofSchema(Metadata)} differs from the one recorded in
+ * the {@link SchemaFingerprintTable} by the last validation.
  */
 @Component
 public class HibernateComponent implements Service {
 
+  /** The logger. */
+  private static Logger log = LoggerFactory.getLogger(
+      HibernateComponent.class);
+
+  /** The property that enables the background bootstrap. */
+  static final String ASYNC_BOOTSTRAP = "orm.bootstrap.async";
+
+  /** The property that enables the generated entity factories. */
+  static final String GENERATED_FACTORIES = "orm.entity.generated_factories";
+
+  /** The property that enables the metrics. */
+  static final String METRICS = "orm.metrics.enabled";
+
+  /** The property that enables skipping the schema validation while the
+   * schema fingerprint does not change. */
+  static final String SCHEMA_FINGERPRINT = "orm.schema.fingerprint.enabled";
+
+  /** The hibernate property that validates or exports the schema. */
+  private static final String HBM2DDL = "hibernate.hbm2ddl.auto";
+
+  /** The hibernate property that enables the statistics. */
+  private static final String STATISTICS = "hibernate.generate_statistics";
+
+  /** The hibernate property that selects the connection provider. */
+  private static final String CONNECTION_PROVIDER =
+      "hibernate.connection.provider_class";
+
+  /** The hibernate property that enables the second level cache. */
+  private static final String USE_CACHE =
+      "hibernate.cache.use_second_level_cache";
+
+  /** The hibernate property that selects the second level cache. */
+  private static final String REGION_FACTORY =
+      "hibernate.cache.region.factory_class";
+
   /** The Spring Environment, never null. */
   private final ConfigurableEnvironment environment;
 
   /** The {@link DataSource} singleton instance, never null. */
   private final DataSource dataSource;
 
+  /** The prefix of the properties that configure the {@link #dataSource},
+   * like 'datasource' or 'm1.datasource', never null. */
+  private final String dataSourcePrefix;
+
   /** The Set of configured {@link ModulePersistenceRegistry} instances, never
    *  null nor empty. */
   private final Set<ModulePersistenceRegistry> moduleRegistries;
 
-  /** The {@link Metadata} singleton instance, never null. */
-  private final Metadata metadata;
+  /** The {@link ModulePersistenceRegistry} that declares each persistent
+   * class, indexed by class. Built once so table renaming does not scan every
+   * module per entity, never null. */
+  private final Map<Class<?>, ModulePersistenceRegistry> entityRegistries;
+
+  /** The immutable dispatch table between each persistent class and its
+   * {@link EntityFactory}, either registered in its module or generated by
+   * {@link ConstructorFactories}. Classes without a factory are not present,
+   * never null. */
+  private final Map<Class<?>, EntityFactory> entityFactories;
+
+  /** The {@link CachePolicy} of each cached persistent class, never null. */
+  private final Map<Class<?>, CachePolicy> entityCachePolicies;
+
+  /** The {@link CachePolicy} of each second level cache region, filled when
+   * the metadata is built, never null. */
+  private final Map<String, CachePolicy> regionCachePolicies =
+      new ConcurrentHashMap<>();
+
+  /** Whether this instance validates the schema instead of hibernate, only
+   * when its fingerprint changed. */
+  private final boolean fingerprintedValidation;
 
-  /** The {@link SessionFactory} singleton instance, never null. */
+  /** The metrics of this instance, never null. */
+  private final OrmMetrics metrics;
+
+  /** Measures the bootstrap phases, never null. */
+  private final BootstrapTimer timer = new BootstrapTimer();
+
+  /** The {@link Metadata} singleton instance, completed once built, never
+   * null. */
+  private final CompletableFuture<Metadata> metadata;
+
+  /** The {@link SessionFactory} singleton instance, or a proxy to it while it
+   * is built in the background, never null. */
   private final SessionFactory sessionFactory;
 
   /** The {@link HibernateTransactionManager} singleton instance, never null. */
@@ -68,17 +183,110 @@ public class HibernateComponent implements Service {
   public HibernateComponent(final ConfigurableEnvironment theEnvironment,
       final DataSource theDataSource,
       final Set<ModulePersistenceRegistry> theRegistries) {
+    this(theEnvironment, theDataSource, theRegistries, "datasource");
+  }
+
+  /** Constructor for modules with their own data source.
+   *
+   * @param theEnvironment a Spring {@link ConfigurableEnvironment} instance,
+   * cannot be null.
+   * @param theDataSource a {@link DataSource} instance, cannot be null.
+   * @param theRegistries a set of {@link ModulePersistenceRegistry} instances,
+   * cannot be null nor empty.
+   * @param theDataSourcePrefix the prefix of the properties that configure
+   * the data source, like 'm1.datasource'. Cannot be null nor empty.
+   */
+  public HibernateComponent(final ConfigurableEnvironment theEnvironment,
+      final DataSource theDataSource,
+      final Set<ModulePersistenceRegistry> theRegistries,
+      final String theDataSourcePrefix) {
     Validate.notNull(theEnvironment, "No Spring environment instance.");
-    Validate.notNull(theEnvironment, "No DataSource instance.");
+    Validate.notNull(theDataSource, "No DataSource instance.");
     Validate.notEmpty(theRegistries, "No module configuration provided");
+    Validate.notEmpty(theDataSourcePrefix, "No DataSource prefix.");
 
     moduleRegistries = new HashSet<>();
     environment = theEnvironment;
     dataSource = theDataSource;
+    dataSourcePrefix = theDataSourcePrefix;
     moduleRegistries.addAll(theRegistries);
-    metadata = buildMetadata();
-    sessionFactory = metadata.getSessionFactoryBuilder().build();
+    entityRegistries = indexRegistries();
+    entityFactories = indexFactories();
+    entityCachePolicies = indexCachePolicies();
+    metrics = new OrmMetrics(moduleRegistries, dataSource);
+    Properties hibernateProperties = timer.time("property collection",
+        this::getHibernateProperties);
+    fingerprintedValidation = "validate".equals(
+        hibernateProperties.getProperty(HBM2DDL))
+        && environment.getProperty(SCHEMA_FINGERPRINT, Boolean.class, false);
+    if (fingerprintedValidation) {
+      hibernateProperties.setProperty(HBM2DDL, "none");
+    }
+
+    if (environment.getProperty(ASYNC_BOOTSTRAP, Boolean.class, false)) {
+      metadata = CompletableFuture.supplyAsync(
+          () -> buildMetadata(hibernateProperties),
+          runnable -> newBootstrapThread(runnable, "orm-bootstrap").start());
+      CompletableFuture<SessionFactory> futureSessionFactory;
+      futureSessionFactory = metadata.thenApply(this::buildSessionFactory);
+      CompletableFuture<Void> warmUp = CompletableFuture.runAsync(
+          this::warmUpPool,
+          runnable -> newBootstrapThread(runnable, "orm-warm-up").start());
+      futureSessionFactory.runAfterBoth(warmUp, this::logBootstrap)
+          .exceptionally(e -> {
+            log.error("Hibernate bootstrap failed", e.getCause());
+            return null;
+          });
+      sessionFactory = FutureSessionFactory.create(futureSessionFactory);
+    } else {
+      metadata = CompletableFuture.completedFuture(
+          buildMetadata(hibernateProperties));
+      sessionFactory = buildSessionFactory(metadata.join());
+      warmUpPool();
+      logBootstrap();
+    }
     transactionManager = buildTransactionManager();
+    if (isMetricsEnabled()) {
+      metrics.registerMBean(dataSourcePrefix);
+    }
+  }
+
+  /** Warms up this component before the application takes traffic, so the
+   * first requests do not pay for lazily opened connections, query plans
+   * compiled on first use and a cold JIT.
+   *
+   * It opens the initialSize connections of the pool at once, then runs
+   * the warm up queries of each module, see {@link
+   * ModulePersistenceRegistry#addWarmUpQuery(String)}, and loads the first
+   * rows of every entity, so their instantiators, hydration and caches are
+   * exercised. Each query runs in a read only transaction that is rolled
+   * back, and a failure is only logged.
+   *
+   * @param iterations the number of times the queries and entity loads are
+   * repeated, 0 or more. A few hundred iterations are needed for the JIT to
+   * compile the hot paths.
+   * @param rows the greatest number of rows read by each query, greater
+   * than 0.
+   */
+  public void warmUp(final int iterations, final int rows) {
+    Validate.isTrue(iterations >= 0, "The iterations cannot be negative.");
+    Validate.isTrue(rows > 0, "The rows must be greater than 0.");
+    long start = System.nanoTime();
+    openInitialConnections();
+    List<String> queries = new ArrayList<>();
+    moduleRegistries.forEach(r -> queries.addAll(r.getWarmUpQueries()));
+    entityRegistries.keySet().forEach(e -> queries.add("from " + e.getName()));
+    Set<String> failed = new HashSet<>();
+    for (int i = 0; i < iterations; i++) {
+      for (String query : queries) {
+        if (!failed.contains(query) && !warmUp(query, rows)) {
+          failed.add(query);
+        }
+      }
+    }
+    log.info("Warmed up {} with {} queries, {} iterations, in {} ms",
+        dataSourcePrefix, queries.size(), iterations,
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
   }
 
   /** Retrieves the {@link SessionFactory} singleton instance.
@@ -89,6 +297,89 @@ public class HibernateComponent implements Service {
     return sessionFactory;
   }
 
+  /** Returns the metrics of the modules of this instance.
+   *
+   * @return the metrics, never null.
+   */
+  public OrmMetrics getMetrics() {
+    return metrics;
+  }
+
+  /** Takes a snapshot of the activity of the second level cache regions.
+   *
+   * @return the statistics of each region indexed by region name, empty if
+   * the cache is not managed by {@link ModuleRegionFactory}. Never null.
+   */
+  public Map<String, CacheStatistics> getCacheStatistics() {
+    RegionFactory regionFactory = sessionFactory.getSessionFactoryOptions()
+        .getServiceRegistry().getService(RegionFactory.class);
+    if (regionFactory instanceof ModuleRegionFactory) {
+      return ((ModuleRegionFactory) regionFactory).getStatistics();
+    }
+    return Collections.emptyMap();
+  }
+
+  /** Saves or updates a large amount of entities in constant memory.
+   *
+   * The entities are written in chunks, each one in a new session and
+   * transaction that do not join the current one. The chunks committed
+   * before a failure stay committed.
+   *
+   * @param entities the entities to write, they are consumed lazily. Cannot
+   * be null.
+   * @param chunkSize the number of entities written in each transaction,
+   * greater than 0.
+   *
+   * @return the number of written entities.
+   */
+  public long bulkSave(final Iterable<?> entities, final int chunkSize) {
+    return bulkSave(entities, chunkSize, 1);
+  }
+
+  /** Saves or updates a large amount of entities in constant memory, writing
+   * several chunks at the same time, see {@link #bulkSave(Iterable, int)}.
+   *
+   * @param entities the entities to write, they are consumed lazily in the
+   * calling thread. Cannot be null.
+   * @param chunkSize the number of entities written in each transaction,
+   * greater than 0.
+   * @param partitions the number of chunks written at the same time, each
+   * one in its own thread and session. Greater than 0.
+   *
+   * @return the number of written entities.
+   */
+  public long bulkSave(final Iterable<?> entities, final int chunkSize,
+      final int partitions) {
+    return new BulkWriter(sessionFactory, chunkSize, partitions)
+        .save(entities);
+  }
+
+  /** Inserts a large amount of new entities in constant memory, through
+   * stateless sessions.
+   *
+   * It is faster than {@link #bulkSave(Iterable, int, int)} but nothing is
+   * cascaded, so the associated entities must be inserted first. The second
+   * level cache is evicted once the entities are inserted.
+   *
+   * @param entities the entities to insert, they are consumed lazily in the
+   * calling thread. Cannot be null.
+   * @param chunkSize the number of entities inserted in each transaction,
+   * greater than 0.
+   * @param partitions the number of chunks inserted at the same time, each
+   * one in its own thread and session. Greater than 0.
+   *
+   * @return the number of inserted entities.
+   */
+  public long bulkInsert(final Iterable<?> entities, final int chunkSize,
+      final int partitions) {
+    try {
+      return new BulkWriter(sessionFactory, chunkSize, partitions)
+          .insert(entities);
+    } finally {
+      evictCaches();
+    }
+  }
+
   /* ****************************************************************
    * package access attributes
    * ****************************************************************/
@@ -106,7 +397,14 @@ public class HibernateComponent implements Service {
    * @return a {@link Metadata} instance, never null.
    */
   Metadata getMetadata() {
-    return metadata;
+    try {
+      return metadata.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
   }
 
   /** Indicates if this instance configuration use an in memory data source. To
@@ -115,7 +413,8 @@ public class HibernateComponent implements Service {
    * @return true if the data source is running in memory, otherwise false.
    */
   boolean isInMemoryDatasource() {
-    return environment.getProperty("datasource.url").contains("mem");
+    return environment.getProperty(dataSourcePrefix + ".url")
+        .contains("mem");
   }
 
   /** Retrieves this instance configured dialect. To be used by DatabaseUtility
@@ -136,44 +435,266 @@ public class HibernateComponent implements Service {
   }
 
   /** Returns the {@link EntityFactory} associated with the given persistent
-   * class. Used by {@link CustomTuplizer}
+   * class. Used by {@link CustomTuplizer} to bind each instantiator to its
+   * factory once, when the {@link SessionFactory} is built.
    *
-   * @return an {@link EntityFactory} instance, never null.
+   * @param entity the persistent class, cannot be null.
+   *
+   * @return an {@link EntityFactory} instance, or null if the entity has no
+   * factory and must be created through its default constructor.
    */
   EntityFactory getFactory(final PersistentClass entity) {
-    ModulePersistenceRegistry registry = findRegistry(entity);
-    return registry.getFactory(entity.getMappedClass());
+    return entityFactories.get(entity.getMappedClass());
+  }
+
+  /** Returns the module that declares a persistent class. To be used by
+   * DatabaseUtility
+   *
+   * @param entity the persistent class, cannot be null.
+   *
+   * @return the module name, or null if the class is not declared by any
+   * module.
+   */
+  String getModule(final Class<?> entity) {
+    ModulePersistenceRegistry registry = entityRegistries.get(entity);
+    return registry == null ? null : registry.getModule();
+  }
+
+  /** Returns the cache policy of a second level cache region. Used by
+   * {@link ModuleRegionFactory} to bound the regions it builds.
+   *
+   * @param region the region name, cannot be null.
+   *
+   * @return the {@link CachePolicy}, or null if the region does not belong
+   * to an entity added with a policy.
+   */
+  CachePolicy getCachePolicy(final String region) {
+    return regionCachePolicies.get(region);
+  }
+
+  /** Evicts every entry of the second level cache. To be used by
+   * DatabaseUtility after it changes the database behind hibernate.
+   */
+  void evictCaches() {
+    sessionFactory.getCache().evictAllRegions();
   }
 
   /* ****************************************************************
    * private methods and functions
    * ****************************************************************/
 
-  private Metadata buildMetadata() {
-    StandardServiceRegistry standardRegistry;
-    standardRegistry = new StandardServiceRegistryBuilder()
-        .applySettings(getHibernateProperties())
-        .applySetting("hibernate.connection.datasource", dataSource)
-        .addService(getClass(), this)
-        .build();
+  private Metadata buildMetadata(final Properties hibernateProperties) {
+    Metadata createdMetadata = timer.time("metadata build", () -> {
+      ModuleIdGeneratorFactory idGenerators;
+      idGenerators = new ModuleIdGeneratorFactory(moduleRegistries);
+      StandardServiceRegistryBuilder builder;
+      builder = new StandardServiceRegistryBuilder()
+          .applySettings(hibernateProperties)
+          .applySetting("hibernate.connection.datasource", dataSource)
+          .addService(getClass(), this)
+          .addService(MutableIdentifierGeneratorFactory.class, idGenerators);
+      if (!entityCachePolicies.isEmpty()
+          && !hibernateProperties.containsKey(REGION_FACTORY)) {
+        builder.applySetting(USE_CACHE, "true");
+        builder.applySetting(REGION_FACTORY,
+            ModuleRegionFactory.class.getName());
+      }
+      if (isMetricsEnabled()) {
+        if (!hibernateProperties.containsKey(STATISTICS)) {
+          builder.applySetting(STATISTICS, "true");
+        }
+        builder.applySetting(StatisticsInitiator.STATS_BUILDER,
+            (StatisticsFactory) sf -> new ModuleStatistics(sf, metrics));
+        // the pools time the borrow themselves, behind the lazy proxies.
+        if (!hibernateProperties.containsKey(CONNECTION_PROVIDER)
+            && !metrics.isBorrowTimedByPools()) {
+          builder.applySetting(CONNECTION_PROVIDER, new TimedConnectionProvider(
+              dataSource, metrics.getBorrowLatency()));
+        }
+      }
+      StandardServiceRegistry standardRegistry = builder.build();
+      // provided services are not injected, it needs the dialect
+      idGenerators.injectServices(
+          (ServiceRegistryImplementor) standardRegistry);
 
-    MetadataSources sources = new MetadataSources(standardRegistry);
-    moduleRegistries.forEach(r -> r.getEntities()
-        .forEach(sources::addAnnotatedClass));
+      MetadataSources sources = new MetadataSources(standardRegistry);
+      moduleRegistries.forEach(r -> r.getEntities()
+          .forEach(sources::addAnnotatedClass));
 
-    Metadata createdMetadata = sources
-        .getMetadataBuilder()
-        .build();
+      return sources
+          .getMetadataBuilder()
+          .build();
+    });
 
-    createdMetadata.getEntityBindings()
+    timer.time("table renaming", () -> createdMetadata.getEntityBindings()
         .forEach(pc -> {
           pc.addTuplizer(EntityMode.POJO, CustomTuplizer.class.getName());
           pc.getTable().setName(getTableName(pc));
-        });
+        }));
+
+    timer.time("cache configuration", () -> configureCache(createdMetadata));
 
     return createdMetadata;
   }
 
+  /** Assigns each cached entity, and the collections it owns, to a region
+   * named after its module.
+   */
+  private void configureCache(final Metadata builtMetadata) {
+    builtMetadata.getEntityBindings().forEach(pc -> {
+      CachePolicy policy = entityCachePolicies.get(pc.getMappedClass());
+      if (policy != null && pc instanceof RootClass) {
+        RootClass root = (RootClass) pc;
+        String region = getRegionName(pc, pc.getEntityName());
+        root.setCacheConcurrencyStrategy(policy.getAccess().getStrategy());
+        root.setCacheRegionName(region);
+        regionCachePolicies.put(region, policy);
+      }
+    });
+    builtMetadata.getCollectionBindings().forEach(collection -> {
+      PersistentClass owner = collection.getOwner();
+      CachePolicy policy = entityCachePolicies.get(
+          owner.getRootClass().getMappedClass());
+      if (policy != null) {
+        String region = getRegionName(owner, collection.getRole());
+        collection.setCacheConcurrencyStrategy(
+            policy.getAccess().getStrategy());
+        collection.setCacheRegionName(region);
+        regionCachePolicies.put(region, policy);
+      }
+    });
+  }
+
+  private String getRegionName(final PersistentClass entity,
+      final String name) {
+    ModulePersistenceRegistry registry = findRegistry(entity);
+
+    if (StringUtils.isBlank(registry.getModule())) {
+      return name;
+    }
+
+    return registry.getModule() + "." + name;
+  }
+
+  private SessionFactory buildSessionFactory(final Metadata builtMetadata) {
+    if (fingerprintedValidation) {
+      validateChangedSchema(builtMetadata);
+    }
+    return timer.time("SessionFactory build",
+        () -> builtMetadata.getSessionFactoryBuilder().build());
+  }
+
+  /** Validates the schema against the database, unless its fingerprint is
+   * the one recorded by the last successful validation, and records it.
+   * Reading the catalog of every table is slow on databases like MySQL, so
+   * the full check only runs when the entities or modules changed.
+   *
+   * @param builtMetadata the metadata, with the final table names. Cannot be
+   * null.
+   */
+  private void validateChangedSchema(final Metadata builtMetadata) {
+    String schema = timer.time("schema fingerprint",
+        () -> MetadataFingerprint.ofSchema(builtMetadata));
+    SchemaFingerprintTable table = new SchemaFingerprintTable(dataSource,
+        dataSourcePrefix);
+    if (schema.equals(table.read())) {
+      log.info("Schema of {} unchanged, skipped its validation",
+          dataSourcePrefix);
+      return;
+    }
+    timer.time("schema validation", () -> new SchemaValidator().validate(
+        builtMetadata, ((MetadataImplementor) builtMetadata)
+            .getMetadataBuildingOptions().getServiceRegistry()));
+    table.write(schema);
+  }
+
+  /** Opens the first connection of the pool, so its initial connections are
+   * created during the bootstrap instead of on the first request. A failure is
+   * only logged: the pool will try again when it is used.
+   */
+  private void warmUpPool() {
+    timer.time("pool warm-up", () -> {
+      try (Connection connection = dataSource.getConnection()) {
+        log.trace("Warmed up the pool with {}", connection);
+      } catch (SQLException e) {
+        log.warn("Unable to warm up the connection pool: {}", e.getMessage());
+      }
+    });
+  }
+
+  /** Borrows the initialSize connections of each pool at the same time,
+   * and returns them, so they are all open and validated. A failure is only
+   * logged: the pool will try again when it is used.
+   */
+  private void openInitialConnections() {
+    List<DataSourceProxy> pools = OrmMetrics.findPools(dataSource);
+    if (pools.isEmpty()) {
+      warmUpPool();
+      return;
+    }
+    for (DataSourceProxy pool : pools) {
+      int size = Math.max(pool.getPoolProperties().getInitialSize(), 1);
+      List<Connection> connections = new ArrayList<>();
+      try {
+        for (int i = 0; i < size; i++) {
+          connections.add(pool.getConnection());
+        }
+      } catch (SQLException e) {
+        log.warn("Unable to open the initial connections: {}",
+            e.getMessage());
+      } finally {
+        connections.forEach(connection -> {
+          try {
+            connection.close();
+          } catch (SQLException e) {
+            log.trace("Unable to return a warm up connection", e);
+          }
+        });
+      }
+    }
+  }
+
+  /** Runs a warm up query in a read only transaction that is rolled back.
+   *
+   * @param hql the query, cannot be null.
+   * @param rows the greatest number of rows read.
+   *
+   * @return false if the query failed.
+   */
+  private boolean warmUp(final String hql, final int rows) {
+    try (Session session = sessionFactory.openSession()) {
+      session.setDefaultReadOnly(true);
+      session.setHibernateFlushMode(FlushMode.MANUAL);
+      session.beginTransaction();
+      try {
+        session.createQuery(hql).setMaxResults(rows).list();
+      } finally {
+        session.getTransaction().rollback();
+      }
+      return true;
+    } catch (PersistenceException | IllegalArgumentException e) {
+      // hibernate reports an invalid query as an IllegalArgumentException
+      log.warn("Warm up query '{}' failed: {}", hql, e.getMessage());
+      return false;
+    }
+  }
+
+  private boolean isMetricsEnabled() {
+    return environment.getProperty(METRICS, Boolean.class, false);
+  }
+
+  private void logBootstrap() {
+    log.info("Hibernate bootstrap of {} entities: {}",
+        entityRegistries.size(), timer);
+  }
+
+  private static Thread newBootstrapThread(final Runnable runnable,
+      final String name) {
+    Thread thread = new Thread(runnable, name);
+    thread.setDaemon(true);
+    return thread;
+  }
+
   private String getTableName(final PersistentClass entity) {
     ModulePersistenceRegistry registry = findRegistry(entity);
 
@@ -185,10 +706,42 @@ public class HibernateComponent implements Service {
   }
 
   private ModulePersistenceRegistry findRegistry(final PersistentClass entity) {
-    return moduleRegistries.stream()
-        .filter(p -> p.getEntities().contains(entity.getMappedClass()))
-        .findFirst() //should be the only one
-        .get(); //should always be present
+    return entityRegistries.get(entity.getMappedClass());
+  }
+
+  private Map<Class<?>, ModulePersistenceRegistry> indexRegistries() {
+    Map<Class<?>, ModulePersistenceRegistry> index = new HashMap<>();
+    moduleRegistries.forEach(r -> r.getEntities()
+        .forEach(entity -> index.put(entity, r)));
+    return Collections.unmodifiableMap(index);
+  }
+
+  private Map<Class<?>, EntityFactory> indexFactories() {
+    boolean generate = environment.getProperty(GENERATED_FACTORIES,
+        Boolean.class, false);
+    Map<Class<?>, EntityFactory> index = new HashMap<>();
+    entityRegistries.forEach((entity, registry) -> {
+      EntityFactory factory = registry.getFactory(entity);
+      if (factory == null && generate) {
+        factory = ConstructorFactories.create(entity,
+            registry.getDependencies());
+      }
+      if (factory != null) {
+        index.put(entity, factory);
+      }
+    });
+    return Collections.unmodifiableMap(index);
+  }
+
+  private Map<Class<?>, CachePolicy> indexCachePolicies() {
+    Map<Class<?>, CachePolicy> index = new HashMap<>();
+    entityRegistries.forEach((entity, registry) -> {
+      CachePolicy policy = registry.getCachePolicy(entity);
+      if (policy != null) {
+        index.put(entity, policy);
+      }
+    });
+    return Collections.unmodifiableMap(index);
   }
 
   private Properties getHibernateProperties() {
@@ -211,6 +764,8 @@ public class HibernateComponent implements Service {
   private HibernateTransactionManager buildTransactionManager() {
     HibernateTransactionManager txManager = new HibernateTransactionManager();
     txManager.setSessionFactory(sessionFactory);
+    // set explicitly, autodetecting it would wait for the session factory
+    txManager.setDataSource(dataSource);
     return txManager;
   }
 }
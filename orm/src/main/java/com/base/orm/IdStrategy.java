@@ -0,0 +1,24 @@
+package com.base.orm;
+
+/** How the identifiers of the entities of a module are generated, when they
+ * are annotated with <code>@GeneratedValue(strategy = AUTO)</code>.
+ *
+ * Set with {@link ModulePersistenceRegistry#setIdStrategy(IdStrategy)}.
+ * Other generation types and named generators are not affected.
+ */
+public enum IdStrategy {
+
+  /** The database native strategy, usually an identity column. Hibernate
+   * must insert each row on its own to read its id, so inserts are never
+   * batched. */
+  NATIVE,
+
+  /** A sequence per table, named &lt;module&gt;_&lt;table&gt;_seq, that
+   * hands out blocks of ids, so inserts can be batched. Databases without
+   * sequences emulate it with a single row table of the same name. */
+  POOLED_SEQUENCE,
+
+  /** A table per module, named &lt;module&gt;_id_generators, with a row per
+   * entity table that hands out blocks of ids, so inserts can be batched. */
+  TABLE
+}
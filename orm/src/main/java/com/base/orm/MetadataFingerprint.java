@@ -0,0 +1,89 @@
+package com.base.orm;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import org.apache.commons.lang3.Validate;
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.model.relational.Namespace;
+import org.hibernate.boot.model.relational.Sequence;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.mapping.Column;
+import org.hibernate.mapping.Table;
+
+/** Identifies the schema a Hibernate metadata expects, once the tables are
+ * renamed after their module: what the schema validation checks against the
+ * database.
+ */
+final class MetadataFingerprint {
+
+  /** Prevents instantiation. */
+  private MetadataFingerprint() {
+  }
+
+  /** Computes the fingerprint of the schema of a metadata: its tables with
+   * their columns and sql types, and its sequences.
+   *
+   * @param metadata the built metadata, with the final table names. Cannot
+   * be null.
+   *
+   * @return the hexadecimal SHA-256 digest, never null.
+   */
+  static String ofSchema(final Metadata metadata) {
+    Validate.notNull(metadata, "The metadata cannot be null.");
+
+    Dialect dialect = metadata.getDatabase().getDialect();
+    Map<String, String> objects = new TreeMap<>();
+    for (Namespace namespace : metadata.getDatabase().getNamespaces()) {
+      for (Table table : namespace.getTables()) {
+        StringBuilder columns = new StringBuilder();
+        Iterator<?> iterator = table.getColumnIterator();
+        while (iterator.hasNext()) {
+          Column column = (Column) iterator.next();
+          columns.append(column.getName()).append(' ')
+              .append(column.getSqlType(dialect, metadata))
+              .append(column.isNullable() ? " null" : " not null")
+              .append(column.isUnique() ? " unique" : "").append(',');
+        }
+        objects.put("table:" + namespace.getName() + "." + table.getName(),
+            columns.toString());
+      }
+      for (Sequence sequence : namespace.getSequences()) {
+        objects.put("sequence:" + sequence.getName(),
+            sequence.getInitialValue() + "," + sequence.getIncrementSize());
+      }
+    }
+
+    MessageDigest digest = newDigest();
+    update(digest, "dialect:" + dialect.getClass().getName());
+    objects.forEach((name, definition) ->
+        update(digest, name + "=" + definition));
+    return String.format("%064x", new BigInteger(1, digest.digest()));
+  }
+
+  /** Adds a text to the digest.
+   *
+   * @param digest the digest, cannot be null.
+   * @param text the text, cannot be null.
+   */
+  private static void update(final MessageDigest digest, final String text) {
+    digest.update(text.getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) 0);
+  }
+
+  /** Creates a SHA-256 digest.
+   *
+   * @return a new digest, never null.
+   */
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException(e);
+    }
+  }
+}
@@ -0,0 +1,20 @@
+package com.base.orm;
+
+import java.util.Map;
+
+/** Publishes the {@link OrmMetrics} of a {@link HibernateComponent}
+ * somewhere, like a log or a monitoring system.
+ *
+ * Registered with {@link OrmMetrics#addReporter(MetricsReporter,
+ * java.time.Duration)}.
+ */
+public interface MetricsReporter {
+
+  /** Publishes a snapshot of the metrics. It is called from a single
+   * background thread, an exception only skips the current snapshot.
+   *
+   * @param metrics the value of each metric, by name, sorted by name. Never
+   * null.
+   */
+  void report(Map<String, Number> metrics);
+}
@@ -0,0 +1,219 @@
+package com.base.orm;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.commons.lang3.Validate;
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.apache.tomcat.jdbc.pool.PoolProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.bind.PropertiesConfigurationFactory;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/** The {@link HibernateComponent} of each module.
+ *
+ * A module that defines the &lt;module&gt;.datasource.url property gets its
+ * own tomcat jdbc pool, configured from the &lt;module&gt;.datasource.*
+ * properties, and its own {@link HibernateComponent}, so its tables live in
+ * its own database. The rest of the modules share the {@link
+ * HibernateComponent} exposed as a bean in {@link OrmConfiguration}, that
+ * is only built if there is at least one of them. All of them share the
+ * hibernate.* properties.
+ * <br>
+ * It is exposed as a <code>@Bean</code> in {@link OrmConfiguration}.
+ */
+public class ModuleHibernateComponents {
+
+  /** The logger. */
+  private static Logger log = LoggerFactory.getLogger(
+      ModuleHibernateComponents.class);
+
+  /** The {@link HibernateComponent} of the modules without their own data
+   * source, null if every module has its own data source. */
+  private final HibernateComponent shared;
+
+  /** The {@link HibernateComponent} of each module with its own data source,
+   * by module name, never null. */
+  private final Map<String, HibernateComponent> components =
+      new LinkedHashMap<>();
+
+  /** The pools created for the modules with their own data source, never
+   * null. */
+  private final List<DataSource> pools = new ArrayList<>();
+
+  /** Constructor, creates the component of the modules without their own
+   * data source, if any, and the components of the modules with their own
+   * data source.
+   *
+   * @param environment the Spring environment, cannot be null.
+   * @param sharedDataSource the data source of the modules without their own
+   * data source, cannot be null.
+   * @param registries all the module registries, cannot be null.
+   */
+  ModuleHibernateComponents(final ConfigurableEnvironment environment,
+      final javax.sql.DataSource sharedDataSource,
+      final Set<ModulePersistenceRegistry> registries) {
+    Validate.notNull(environment, "No Spring environment instance.");
+    Validate.notNull(sharedDataSource, "No shared DataSource instance.");
+    Validate.notNull(registries, "No module registries.");
+
+    Set<ModulePersistenceRegistry> sharing = new LinkedHashSet<>();
+    for (ModulePersistenceRegistry registry : registries) {
+      String module = registry.getModule();
+      if (hasOwnDataSource(environment, module)) {
+        log.info("Module {} uses its own data source", module);
+        DataSource pool = new TimedPool(
+            bindPoolProperties(environment, module));
+        pools.add(pool);
+        // connections are only taken when the module is actually used, not
+        // on every transaction of the chained transaction manager.
+        components.put(module, new HibernateComponent(environment,
+            new LazyConnectionDataSourceProxy(TracingDataSource.wrap(
+                environment, pool, Collections.singleton(registry))),
+            Collections.singleton(registry), dataSourcePrefix(module)));
+      } else {
+        sharing.add(registry);
+      }
+    }
+    if (sharing.isEmpty()) {
+      log.info("Every module uses its own data source");
+      shared = null;
+    } else {
+      shared = new HibernateComponent(environment, sharedDataSource, sharing);
+    }
+  }
+
+  /** Returns the {@link HibernateComponent} that manages a module.
+   *
+   * @param module the module name, cannot be null.
+   *
+   * @return the module own component, or the shared one, never null.
+   *
+   * @throws IllegalStateException if the module does not have its own data
+   * source and there is no shared component.
+   */
+  public HibernateComponent get(final String module) {
+    Validate.notNull(module, "The module cannot be null.");
+    HibernateComponent component = components.get(module);
+    return component == null ? getShared() : component;
+  }
+
+  /** Returns the {@link HibernateComponent} of the modules without their own
+   * data source.
+   *
+   * @return the shared component, never null.
+   *
+   * @throws IllegalStateException if every module has its own data source.
+   */
+  public HibernateComponent getShared() {
+    Validate.validState(shared != null,
+        "Every module has its own data source, there is no shared"
+        + " HibernateComponent.");
+    return shared;
+  }
+
+  /** Warms up the shared component, if any, and the component of each
+   * module with its own data source, see {@link
+   * HibernateComponent#warmUp(int, int)}.
+   *
+   * @param iterations the number of times the warm up queries are repeated,
+   * 0 or more.
+   * @param rows the greatest number of rows read by each query, greater
+   * than 0.
+   */
+  public void warmUp(final int iterations, final int rows) {
+    all().forEach(component -> component.warmUp(iterations, rows));
+  }
+
+  /** Returns a transaction manager that spans every session factory.
+   *
+   * @return the transaction manager of the only component, otherwise a
+   * {@link ChainedTransactionManager}. Never null.
+   */
+  PlatformTransactionManager getTransactionManager() {
+    List<PlatformTransactionManager> managers = new ArrayList<>();
+    all().forEach(component ->
+        managers.add(component.getTransactionManager()));
+    if (managers.size() == 1) {
+      return managers.get(0);
+    }
+    return new ChainedTransactionManager(managers);
+  }
+
+  /** Closes the session factories, metrics and pools of the modules with
+   * their own data source.
+   */
+  public void close() {
+    components.values().forEach(component -> {
+      component.getSessionFactory().close();
+      component.getMetrics().close();
+    });
+    pools.forEach(pool -> pool.close(true));
+  }
+
+  /** Lists the shared component, if any, followed by the component of each
+   * module with its own data source.
+   *
+   * @return the components, never null.
+   */
+  private List<HibernateComponent> all() {
+    List<HibernateComponent> all = new ArrayList<>();
+    if (shared != null) {
+      all.add(shared);
+    }
+    all.addAll(components.values());
+    return all;
+  }
+
+  /** Checks if a module has its own data source.
+   *
+   * @param environment the Spring environment, cannot be null.
+   * @param module the module name, cannot be null.
+   *
+   * @return true if the module defines its data source url.
+   */
+  static boolean hasOwnDataSource(final ConfigurableEnvironment environment,
+      final String module) {
+    return environment.containsProperty(dataSourcePrefix(module) + ".url");
+  }
+
+  /** Builds the prefix of the data source properties of a module.
+   *
+   * @param module the module name, cannot be null.
+   *
+   * @return the prefix, never null.
+   */
+  private static String dataSourcePrefix(final String module) {
+    return module + ".datasource";
+  }
+
+  /** Binds the pool properties of a module, like a
+   * <code>@ConfigurationProperties</code> bean.
+   *
+   * @param environment the Spring environment, cannot be null.
+   * @param module the module name, cannot be null.
+   *
+   * @return the pool properties, never null.
+   */
+  private static PoolProperties bindPoolProperties(
+      final ConfigurableEnvironment environment, final String module) {
+    PropertiesConfigurationFactory<PoolProperties> factory;
+    factory = new PropertiesConfigurationFactory<>(new PoolProperties());
+    factory.setPropertySources(environment.getPropertySources());
+    factory.setTargetName(dataSourcePrefix(module));
+    try {
+      factory.bindPropertiesToTarget();
+      return factory.getObject();
+    } catch (Exception e) {
+      log.error(e.getMessage());
+      throw new RuntimeException(e);
+    }
+  }
+}
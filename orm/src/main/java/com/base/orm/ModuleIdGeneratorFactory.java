@@ -0,0 +1,88 @@
+package com.base.orm;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import org.apache.commons.lang3.StringUtils;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.PersistentIdentifierGenerator;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.enhanced.TableGenerator;
+import org.hibernate.id.factory.internal.DefaultIdentifierGeneratorFactory;
+import org.hibernate.type.Type;
+
+/** Creates the id generators of the entities, replacing the native strategy
+ * with the {@link IdStrategy} of the module that declares each entity.
+ *
+ * Hibernate asks for the native strategy for the ids annotated with
+ * <code>@GeneratedValue(strategy = AUTO)</code> while
+ * hibernate.id.new_generator_mappings is false. The pooled strategies
+ * allocate {@link #ALLOCATION_SIZE} ids per round trip, matching the default
+ * hibernate.jdbc.batch_size.
+ */
+class ModuleIdGeneratorFactory extends DefaultIdentifierGeneratorFactory {
+
+  /** The serial version. */
+  private static final long serialVersionUID = 1L;
+
+  /** The number of ids allocated from the database at once. */
+  static final int ALLOCATION_SIZE = 50;
+
+  /** The hibernate name of the native strategy. */
+  private static final String NATIVE = "native";
+
+  /** The module registry of the entities of the modules with a strategy
+   * other than {@link IdStrategy#NATIVE}, indexed by entity name, never
+   * null. */
+  private final Map<String, ModulePersistenceRegistry> registries;
+
+  /** Constructor with mandatory parameters.
+   *
+   * @param theRegistries the module registries, cannot be null.
+   */
+  ModuleIdGeneratorFactory(final Set<ModulePersistenceRegistry> theRegistries) {
+    Map<String, ModulePersistenceRegistry> index = new HashMap<>();
+    theRegistries.stream()
+        .filter(r -> r.getIdStrategy() != IdStrategy.NATIVE)
+        .forEach(r -> r.getEntities()
+            .forEach(entity -> index.put(entity.getName(), r)));
+    registries = Collections.unmodifiableMap(index);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public IdentifierGenerator createIdentifierGenerator(final String strategy,
+      final Type type, final Properties config) {
+    ModulePersistenceRegistry registry = registries.get(
+        config.getProperty(IdentifierGenerator.ENTITY_NAME));
+    if (!NATIVE.equals(strategy) || registry == null) {
+      return super.createIdentifierGenerator(strategy, type, config);
+    }
+
+    String table = config.getProperty(PersistentIdentifierGenerator.TABLE);
+    String prefix = "";
+    if (StringUtils.isNotBlank(registry.getModule())) {
+      prefix = registry.getModule() + "_";
+    }
+
+    Properties pooled = new Properties();
+    pooled.putAll(config);
+    pooled.setProperty(SequenceStyleGenerator.INCREMENT_PARAM,
+        String.valueOf(ALLOCATION_SIZE));
+    pooled.setProperty(SequenceStyleGenerator.OPT_PARAM, "pooled");
+
+    if (registry.getIdStrategy() == IdStrategy.TABLE) {
+      pooled.setProperty(TableGenerator.TABLE_PARAM, prefix + "id_generators");
+      pooled.setProperty(TableGenerator.SEGMENT_VALUE_PARAM, table);
+      return super.createIdentifierGenerator(
+          TableGenerator.class.getName(), type, pooled);
+    }
+
+    pooled.setProperty(SequenceStyleGenerator.SEQUENCE_PARAM,
+        prefix + table + "_seq");
+    return super.createIdentifierGenerator(
+        SequenceStyleGenerator.class.getName(), type, pooled);
+  }
+}
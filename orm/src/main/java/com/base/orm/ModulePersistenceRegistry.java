@@ -1,10 +1,13 @@
 package com.base.orm;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import org.apache.commons.lang3.Validate;
 
 /** This class represents a specific module persistence configuration and its
  *  used to bring this information to the
@@ -34,6 +37,20 @@ public class ModulePersistenceRegistry implements
    * never null. */
   private Map<Class<?>, EntityFactory> entitiesFactories = new HashMap<>();
 
+  /** The second level cache policy of the cached entities, never null. */
+  private Map<Class<?>, CachePolicy> cachePolicies = new HashMap<>();
+
+  /** The instances passed to the entity constructors, indexed by the type
+   * of the constructor parameter, never null. */
+  private Map<Class<?>, Object> dependencies = new HashMap<>();
+
+  /** How the ids of the module entities are generated, never null. */
+  private IdStrategy idStrategy = IdStrategy.NATIVE;
+
+  /** The HQL queries run by {@link HibernateComponent#warmUp(int, int)},
+   * never null. */
+  private List<String> warmUpQueries = new ArrayList<>();
+
   /** Constructor with mandatory parameters.
    *
    * @param theModule the module name, used to prefix table names and as an
@@ -55,6 +72,30 @@ public class ModulePersistenceRegistry implements
     entitiesFactories.put(clazz, factory);
   }
 
+  /** Adds a new cached persistent class and its related factory.
+   *
+   * @param clazz a Class instance, cannot be null.
+   * @param factory an {@link EntityFactory} implementation, cannot be null.
+   * @param policy how the second level cache keeps the instances of the
+   * class, cannot be null.
+   */
+  public void add(final Class<?> clazz, final EntityFactory factory,
+      final CachePolicy policy) {
+    add(clazz, factory);
+    cachePolicies.put(clazz, policy);
+  }
+
+  /** Adds a new cached class as a persistent entity in this Module.
+   *
+   * @param clazz a Class instance, cannot be null.
+   * @param policy how the second level cache keeps the instances of the
+   * class, cannot be null.
+   */
+  public void add(final Class<?> clazz, final CachePolicy policy) {
+    add(clazz);
+    cachePolicies.put(clazz, policy);
+  }
+
   /** Adds a new class as a persistent entity in this Module.
    *
    * @param clazz aClass instance, cannot be null.
@@ -74,6 +115,78 @@ public class ModulePersistenceRegistry implements
     return entitiesFactories.get(clazz);
   }
 
+  /** Returns the second level cache policy of the given class.
+   *
+   * @param clazz a Class instance, cannot be null.
+   *
+   * @return the {@link CachePolicy} or null if the class is not cached.
+   */
+  public CachePolicy getCachePolicy(final Class<?> clazz) {
+    return cachePolicies.get(clazz);
+  }
+
+  /** Registers an instance to pass to the entity constructors that take a
+   * parameter of the given type, for the entities without an {@link
+   * EntityFactory}.
+   *
+   * @param <T> the type of the dependency.
+   *
+   * @param type the type of the constructor parameter, cannot be null.
+   * @param dependency the instance, cannot be null.
+   */
+  public <T> void addDependency(final Class<T> type, final T dependency) {
+    Validate.notNull(type, "The dependency type cannot be null.");
+    Validate.notNull(dependency, "The dependency cannot be null.");
+    dependencies.put(type, dependency);
+  }
+
+  /** Returns the instances passed to the entity constructors.
+   *
+   * @return the dependencies indexed by type, never null.
+   */
+  public Map<Class<?>, Object> getDependencies() {
+    return Collections.unmodifiableMap(dependencies);
+  }
+
+  /** Sets how the ids of the entities in this module are generated. The
+   * default is {@link IdStrategy#NATIVE}.
+   *
+   * @param strategy the id strategy, cannot be null.
+   */
+  public void setIdStrategy(final IdStrategy strategy) {
+    Validate.notNull(strategy, "The id strategy cannot be null.");
+    idStrategy = strategy;
+  }
+
+  /** Returns how the ids of the entities in this module are generated.
+   *
+   * @return the id strategy, never null.
+   */
+  public IdStrategy getIdStrategy() {
+    return idStrategy;
+  }
+
+  /** Registers a query to run while the application warms up, before it
+   * takes traffic, so its plan is compiled and the code that runs it is hot
+   * on the first request. It should be one of the frequent queries of the
+   * module. Only its first rows are read, in a read only transaction that is
+   * rolled back.
+   *
+   * @param hql the HQL query, without parameters. Cannot be null nor empty.
+   */
+  public void addWarmUpQuery(final String hql) {
+    Validate.notBlank(hql, "The warm up query cannot be empty.");
+    warmUpQueries.add(hql);
+  }
+
+  /** Returns the queries to run while the application warms up.
+   *
+   * @return the HQL queries in registration order, never null.
+   */
+  public List<String> getWarmUpQueries() {
+    return Collections.unmodifiableList(warmUpQueries);
+  }
+
   /** Returns the configured entities as a Set of classes.
    *
    * @return a set of Class instances, never null.
@@ -0,0 +1,171 @@
+package com.base.orm;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.cache.spi.CacheDataDescription;
+import org.hibernate.cache.spi.CollectionRegion;
+import org.hibernate.cache.spi.EntityRegion;
+import org.hibernate.cache.spi.NaturalIdRegion;
+import org.hibernate.cache.spi.QueryResultsRegion;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cache.spi.TimestampsRegion;
+import org.hibernate.cache.spi.access.AccessType;
+
+/** The hibernate second level cache used for the entities added to a
+ * {@link ModulePersistenceRegistry} with a {@link CachePolicy}.
+ *
+ * Each region is a bounded, in-process cache that evicts its least valuable
+ * entries (W-TinyLFU) once it holds the max entries of its policy. Regions
+ * without a policy, like the query results region, get {@link
+ * #DEFAULT_POLICY}. The timestamps region is never bounded, evicting from it
+ * would let the query cache return stale results.
+ *
+ * {@link HibernateComponent} selects this factory when some entity has a
+ * cache policy and the hibernate.cache.region.factory_class property is not
+ * set.
+ */
+public class ModuleRegionFactory implements RegionFactory {
+
+  /** The serial version. */
+  private static final long serialVersionUID = 1L;
+
+  /** The number of timestamps per millisecond, as a power of 2. */
+  private static final int TIMESTAMP_SHIFT = 12;
+
+  /** How long a soft lock is held before it is considered abandoned, in
+   * timestamps. */
+  static final long LOCK_TIMEOUT =
+      TimeUnit.MINUTES.toMillis(1) << TIMESTAMP_SHIFT;
+
+  /** The bounds of the regions of entities without a policy and of the
+   * query results. */
+  static final CachePolicy DEFAULT_POLICY =
+      CachePolicy.readWrite(10000, Duration.ZERO);
+
+  /** The last timestamp handed out, shared by every factory in the JVM. */
+  private static final AtomicLong TIMESTAMP = new AtomicLong();
+
+  /** The regions built by this factory, indexed by name, never null. */
+  private final Map<String, CacheRegion> regions = new ConcurrentHashMap<>();
+
+  /** The component that owns the session factory, null until started or if
+   * the factory is used without a {@link HibernateComponent}. */
+  private HibernateComponent component;
+
+  /** The prefix hibernate adds to the region names, never null once
+   * started. */
+  private String regionPrefix = "";
+
+  /** {@inheritDoc} */
+  @Override
+  public void start(final SessionFactoryOptions settings,
+      final Properties properties) {
+    component = settings.getServiceRegistry()
+        .getService(HibernateComponent.class);
+    if (settings.getCacheRegionPrefix() != null) {
+      regionPrefix = settings.getCacheRegionPrefix() + ".";
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void stop() {
+    regions.values().forEach(CacheRegion::destroy);
+    regions.clear();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean isMinimalPutsEnabledByDefault() {
+    return false;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public AccessType getDefaultAccessType() {
+    return AccessType.READ_WRITE;
+  }
+
+  /** Returns a new timestamp, greater than any previous one. The timestamps
+   * follow the clock, with 4096 of them per millisecond.
+   *
+   * @return the timestamp.
+   */
+  @Override
+  public long nextTimestamp() {
+    long now = System.currentTimeMillis() << TIMESTAMP_SHIFT;
+    return TIMESTAMP.updateAndGet(last -> Math.max(last + 1, now));
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public EntityRegion buildEntityRegion(final String regionName,
+      final Properties properties, final CacheDataDescription metadata) {
+    return register(new CacheRegion.EntityCache(regionName, this,
+        getPolicy(regionName), metadata));
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public NaturalIdRegion buildNaturalIdRegion(final String regionName,
+      final Properties properties, final CacheDataDescription metadata) {
+    return register(new CacheRegion.NaturalIdCache(regionName, this,
+        getPolicy(regionName), metadata));
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public CollectionRegion buildCollectionRegion(final String regionName,
+      final Properties properties, final CacheDataDescription metadata) {
+    return register(new CacheRegion.CollectionCache(regionName, this,
+        getPolicy(regionName), metadata));
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public QueryResultsRegion buildQueryResultsRegion(final String regionName,
+      final Properties properties) {
+    return register(new CacheRegion.GeneralCache(regionName, this,
+        getPolicy(regionName)));
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public TimestampsRegion buildTimestampsRegion(final String regionName,
+      final Properties properties) {
+    return register(new CacheRegion.GeneralCache(regionName, this, null));
+  }
+
+  /** Takes a snapshot of the activity of every region.
+   *
+   * @return the statistics of each region indexed by region name, never
+   * null.
+   */
+  Map<String, CacheStatistics> getStatistics() {
+    Map<String, CacheStatistics> statistics = new TreeMap<>();
+    regions.forEach((name, region) ->
+        statistics.put(name, region.getStatistics()));
+    return Collections.unmodifiableMap(statistics);
+  }
+
+  private <T extends CacheRegion> T register(final T region) {
+    regions.put(region.getName(), region);
+    return region;
+  }
+
+  private CachePolicy getPolicy(final String regionName) {
+    CachePolicy policy = null;
+    if (component != null && regionName.startsWith(regionPrefix)) {
+      policy = component.getCachePolicy(
+          regionName.substring(regionPrefix.length()));
+    }
+    return policy == null ? DEFAULT_POLICY : policy;
+  }
+}
@@ -0,0 +1,88 @@
+package com.base.orm;
+
+import java.util.concurrent.TimeUnit;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.internal.ConcurrentStatisticsImpl;
+
+/** The hibernate statistics, that also feeds the per module counters of an
+ * {@link OrmMetrics}.
+ *
+ * Hibernate only calls it when hibernate.generate_statistics is true.
+ */
+class ModuleStatistics extends ConcurrentStatisticsImpl {
+
+  /** The serial version. */
+  private static final long serialVersionUID = 1L;
+
+  /** The metrics fed by this instance, never null. */
+  private final transient OrmMetrics metrics;
+
+  /** Constructor with mandatory parameters.
+   *
+   * @param sessionFactory the session factory, cannot be null.
+   * @param theMetrics the metrics to feed, cannot be null.
+   */
+  ModuleStatistics(final SessionFactoryImplementor sessionFactory,
+      final OrmMetrics theMetrics) {
+    super(sessionFactory);
+    metrics = theMetrics;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void loadEntity(final String entityName) {
+    super.loadEntity(entityName);
+    metrics.countEntity(entityName, "loaded");
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void insertEntity(final String entityName) {
+    super.insertEntity(entityName);
+    metrics.countEntity(entityName, "inserted");
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void updateEntity(final String entityName) {
+    super.updateEntity(entityName);
+    metrics.countEntity(entityName, "updated");
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void deleteEntity(final String entityName) {
+    super.deleteEntity(entityName);
+    metrics.countEntity(entityName, "deleted");
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void secondLevelCacheHit(final String regionName) {
+    super.secondLevelCacheHit(regionName);
+    metrics.countRegion(regionName, "hits");
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void secondLevelCacheMiss(final String regionName) {
+    super.secondLevelCacheMiss(regionName);
+    metrics.countRegion(regionName, "misses");
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void flush() {
+    super.flush();
+    metrics.count("orm.flushes");
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void queryExecuted(final String hql, final int rows,
+      final long time) {
+    super.queryExecuted(hql, rows, time);
+    metrics.count("orm.queries.executed");
+    metrics.getQueryLatency().record(time, TimeUnit.MILLISECONDS);
+  }
+}
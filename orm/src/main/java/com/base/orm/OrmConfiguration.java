@@ -1,6 +1,8 @@
 package com.base.orm;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentSkipListSet;
 import org.apache.commons.lang3.Validate;
@@ -12,6 +14,7 @@ import org.springframework.boot.context.properties
     .EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.context.annotation.PropertySource;
 import org.springframework.core.env.ConfigurableEnvironment;
 import org.springframework.transaction.PlatformTransactionManager;
@@ -19,6 +22,11 @@ import org.springframework.transaction.annotation.EnableTransactionManagement;
 
 /** A base class for every <code>@Configuration</code> class that wants to
  * enable database persistence.
+ * <br>
+ * Modules use the shared data source configured by the 'datasource'
+ * properties, unless they define their own, see {@link
+ * ModuleHibernateComponents}. Module configurations should build their
+ * repositories with {@link #getHibernateComponent()}.
  */
 @Configuration
 @PropertySource("orm.properties")
@@ -34,11 +42,16 @@ public abstract class OrmConfiguration {
   /** The {@link ModulesRegistry} instance, never null. */
   private final ModulesRegistry registries;
 
+  /** The name of the module of this configuration, never null. */
+  private final String module;
+
   /** Default constructor.
    */
   public OrmConfiguration() {
     registries = ModulesRegistry.getInstance();
-    registries.add(getModuleRegistry());
+    ModulePersistenceRegistry registry = getModuleRegistry();
+    registries.add(registry);
+    module = registry.getModule();
   }
 
   /** The tomcat jdbc pool properties.
@@ -53,36 +66,105 @@ public abstract class OrmConfiguration {
     return new PoolProperties();
   }
 
+  /** The read replicas of the shared data source.
+   *
+   * This is initialized from properties that start with
+   * 'datasource.replicas'.
+   *
+   * @return the replica properties, never null.
+   */
+  @Bean
+  @ConfigurationProperties(prefix = "datasource")
+  ReplicaProperties replicaProperties() {
+    return new ReplicaProperties();
+  }
+
   /** Creates and returns a {@link DataSource} singleton instance
    * implementation.
    *
-   * @return a {@link DataSource} instance, never null.
+   * @return the tomcat jdbc pool, or a {@link ReplicaRoutingDataSource} if
+   * there are replicas, wrapped in a {@link TracingDataSource} if
+   * orm.tracing.enabled is true. Never null.
    */
   @Bean
   javax.sql.DataSource getDataSource() {
-    return new DataSource(poolProperties());
+    DataSource primary = new TimedPool(poolProperties());
+    ReplicaProperties replicas = replicaProperties();
+    if (replicas.getReplicas().isEmpty()) {
+      return TracingDataSource.wrap(environment, primary,
+          registries.getRegistries());
+    }
+    List<DataSource> pools = new ArrayList<>();
+    replicas.getReplicas().forEach(pool -> pools.add(new TimedPool(pool)));
+    return TracingDataSource.wrap(environment,
+        new ReplicaRoutingDataSource(primary, pools, replicas),
+        registries.getRegistries());
   }
 
   /** Defines the transaction manager to use.
+   *
+   * When some module has its own data source, the transactions span the
+   * session factories of every module.
    *
    * @return a {@link PlatformTransactionManager} instance, never null.
    */
   @Bean
   PlatformTransactionManager getTransactionManager() {
-    return getHibernateComponent().getTransactionManager();
+    return getModuleHibernateComponents().getTransactionManager();
   }
 
-  /** Creates and returns a {@link HibernateComponent} singleton instance
-   * implementation.
+  /** Returns the {@link HibernateComponent} singleton instance shared by the
+   * modules without their own data source.
+   *
+   * It keeps the getHibernateComponent bean name, for the lookups by name.
+   * It is lazy: it is not built when every module has its own data source,
+   * unless something needs it.
    *
    * @return a {@link HibernateComponent} instance, never null.
+   *
+   * @throws IllegalStateException if every module has its own data source.
+   */
+  @Bean(name = "getHibernateComponent")
+  @Lazy
+  HibernateComponent getSharedHibernateComponent() {
+    return getModuleHibernateComponents().getShared();
+  }
+
+  /** Creates and returns the {@link ModuleHibernateComponents} singleton
+   * instance.
+   *
+   * @return a {@link ModuleHibernateComponents} instance, never null.
    */
   @Bean
-  public HibernateComponent getHibernateComponent() {
-    return new HibernateComponent(environment, getDataSource(),
+  public ModuleHibernateComponents getModuleHibernateComponents() {
+    return new ModuleHibernateComponents(environment, getDataSource(),
         registries.getRegistries());
   }
 
+  /** Creates and returns the {@link OrmWarmUp} singleton instance, that
+   * warms up the components before the application takes traffic when
+   * orm.warmup.enabled is true.
+   *
+   * @return an {@link OrmWarmUp} instance, never null.
+   */
+  @Bean
+  OrmWarmUp getOrmWarmUp() {
+    return new OrmWarmUp(environment, getModuleHibernateComponents());
+  }
+
+  /** Returns the {@link HibernateComponent} that manages the module of this
+   * configuration.
+   *
+   * It is not the shared component when the module has its own data source,
+   * its session factory would not know the module entities.
+   *
+   * @return the module own {@link HibernateComponent} if it has its own data
+   * source, otherwise the shared one. Never null.
+   */
+  public HibernateComponent getHibernateComponent() {
+    return getModuleHibernateComponents().get(module);
+  }
+
   /** Returns the {@link ModulePersistenceRegistry} for this instance.
    *
    * @return a {@link ModulePersistenceRegistry} instance, never null.
@@ -0,0 +1,396 @@
+package com.base.orm;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.sql.DataSource;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+import org.apache.tomcat.jdbc.pool.DataSourceProxy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import com.base.metrics.LatencyHistogram;
+
+/** The metrics of a {@link HibernateComponent}: what hibernate does for each
+ * module, how long queries and connection borrows take, and the state of the
+ * connection pool.
+ *
+ * The metrics are named:
+ * <ul>
+ *   <li>&lt;module&gt;.entities.loaded, inserted, updated and deleted.</li>
+ *   <li>&lt;module&gt;.cache.hits and misses, for the second level cache
+ *   regions of the module.</li>
+ *   <li>orm.queries.executed and orm.flushes.</li>
+ *   <li>orm.queries.latency and orm.connections.borrow histograms, as .count,
+ *   .p50, .p95, .p99 and .max, in milliseconds.</li>
+ *   <li>pool.active, pool.idle, pool.size and pool.waiters, when the data
+ *   source is backed by tomcat jdbc pools, summed over them. With read
+ *   replicas, they are also reported for each pool, as pool.primary.* and
+ *   pool.replica&lt;n&gt;.*, from 1.</li>
+ * </ul>
+ * The borrows are timed in the pools built by {@link OrmConfiguration}, see
+ * {@link TimedPool}, or in the hibernate connection provider for any other
+ * data source.
+ * The counters are only fed while hibernate.generate_statistics is true,
+ * see the orm.metrics.enabled property.
+ * <br>
+ * They can be read with {@link #getMetrics()}, over JMX once registered with
+ * {@link #registerMBean(String)}, or pushed to a {@link MetricsReporter}.
+ */
+public class OrmMetrics {
+
+  /** The logger. */
+  private static Logger log = LoggerFactory.getLogger(OrmMetrics.class);
+
+  /** The percentiles reported for each histogram. */
+  private static final int[] PERCENTILES = {50, 95, 99};
+
+  /** The number of nanoseconds in a millisecond, as a double. */
+  private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS
+      .toNanos(1);
+
+  /** The module of each entity, by entity name, never null. */
+  private final Map<String, String> entityModules;
+
+  /** The counters, by metric name, never null. */
+  private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+  /** The latencies of the executed queries, never null. */
+  private final LatencyHistogram queryLatency = new LatencyHistogram();
+
+  /** The latencies of the connection borrows taken by hibernate, when the
+   * pools do not time them, never null. */
+  private final LatencyHistogram borrowLatency = new LatencyHistogram();
+
+  /** The connection pools, the primary first, empty if the data source is
+   * not backed by tomcat jdbc pools. Never null. */
+  private final List<DataSourceProxy> pools;
+
+  /** The latencies of the connection borrows of the pools, empty if they do
+   * not time them. Never null. */
+  private final LatencyHistogram[] poolBorrowLatencies;
+
+  /** The name this instance is registered with in JMX, null if it is not
+   * registered. */
+  private ObjectName mbeanName;
+
+  /** The thread that runs the reporters, null until the first one is
+   * added. */
+  private ScheduledExecutorService reporters;
+
+  /** Constructor with mandatory parameters.
+   *
+   * @param registries the modules, cannot be null.
+   * @param dataSource the data source of the modules, cannot be null.
+   */
+  OrmMetrics(final Set<ModulePersistenceRegistry> registries,
+      final DataSource dataSource) {
+    Validate.notNull(registries, "The modules cannot be null.");
+    Validate.notNull(dataSource, "The data source cannot be null.");
+    Map<String, String> modules = new HashMap<>();
+    registries.forEach(r -> r.getEntities()
+        .forEach(entity -> modules.put(entity.getName(), r.getModule())));
+    entityModules = Collections.unmodifiableMap(modules);
+    pools = findPools(dataSource);
+    poolBorrowLatencies = pools.stream()
+        .filter(pool -> pool instanceof TimedPool)
+        .map(pool -> ((TimedPool) pool).getBorrowLatency())
+        .toArray(LatencyHistogram[]::new);
+  }
+
+  /** Takes a snapshot of the metrics.
+   *
+   * @return the value of each metric by name, sorted by name, never null.
+   */
+  public Map<String, Number> getMetrics() {
+    Map<String, Number> metrics = new TreeMap<>();
+    counters.forEach((name, counter) -> metrics.put(name, counter.sum()));
+    putHistogram(metrics, "orm.queries.latency", queryLatency);
+    if (isBorrowTimedByPools()) {
+      putHistogram(metrics, "orm.connections.borrow", poolBorrowLatencies);
+    } else {
+      putHistogram(metrics, "orm.connections.borrow", borrowLatency);
+    }
+    if (!pools.isEmpty()) {
+      putPool(metrics, "pool", pools.toArray(new DataSourceProxy[0]));
+    }
+    if (pools.size() > 1) {
+      putPool(metrics, "pool.primary", pools.get(0));
+      for (int i = 1; i < pools.size(); i++) {
+        putPool(metrics, "pool.replica" + i, pools.get(i));
+      }
+    }
+    return Collections.unmodifiableMap(metrics);
+  }
+
+  /** Pushes a snapshot of the metrics to a reporter periodically, from a
+   * background thread.
+   *
+   * @param reporter the reporter, cannot be null.
+   * @param interval the time between reports, it must be positive.
+   */
+  public synchronized void addReporter(final MetricsReporter reporter,
+      final Duration interval) {
+    Validate.notNull(reporter, "The reporter cannot be null.");
+    Validate.isTrue(!interval.isNegative() && !interval.isZero(),
+        "The report interval must be positive.");
+    if (reporters == null) {
+      reporters = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "orm-metrics");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    long millis = interval.toMillis();
+    reporters.scheduleAtFixedRate(() -> {
+      try {
+        reporter.report(getMetrics());
+      } catch (RuntimeException e) {
+        log.warn("Metrics reporter {} failed: {}", reporter, e.getMessage());
+      }
+    }, millis, millis, TimeUnit.MILLISECONDS);
+  }
+
+  /** Registers this instance in the platform MBean server, as
+   * com.base.orm:type=OrmMetrics,name=&lt;name&gt;, replacing any instance
+   * registered with the same name.
+   *
+   * @param name the name, like the data source prefix. Cannot be empty.
+   */
+  public synchronized void registerMBean(final String name) {
+    Validate.notEmpty(name, "The MBean name cannot be empty.");
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    try {
+      ObjectName objectName = new ObjectName(
+          "com.base.orm:type=OrmMetrics,name=" + name);
+      if (server.isRegistered(objectName)) {
+        server.unregisterMBean(objectName);
+      }
+      server.registerMBean(new MetricsMBean(), objectName);
+      mbeanName = objectName;
+    } catch (JMException e) {
+      log.error(e.getMessage());
+      throw new RuntimeException(e);
+    }
+  }
+
+  /** Stops the reporters and unregisters the MBean, if any. */
+  public synchronized void close() {
+    if (reporters != null) {
+      reporters.shutdownNow();
+      reporters = null;
+    }
+    if (mbeanName != null) {
+      try {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(mbeanName);
+      } catch (JMException e) {
+        log.warn("Unable to unregister {}: {}", mbeanName, e.getMessage());
+      }
+      mbeanName = null;
+    }
+  }
+
+  /* ****************************************************************
+   * package access attributes
+   * ****************************************************************/
+
+  /** Counts an entity operation in the module of the entity.
+   *
+   * @param entityName the entity name, cannot be null.
+   * @param operation the operation, like 'loaded'. Cannot be null.
+   */
+  void countEntity(final String entityName, final String operation) {
+    count(module(entityModules.get(entityName)) + ".entities." + operation);
+  }
+
+  /** Counts a second level cache access in the module of the region, the
+   * regions being named &lt;module&gt;.&lt;entity or role&gt;.
+   *
+   * @param regionName the region name, cannot be null.
+   * @param outcome the outcome, like 'hits'. Cannot be null.
+   */
+  void countRegion(final String regionName, final String outcome) {
+    String module = StringUtils.substringBefore(regionName, ".");
+    if (!entityModules.containsValue(module)) {
+      module = null;
+    }
+    count(module(module) + ".cache." + outcome);
+  }
+
+  /** Increments a counter.
+   *
+   * @param name the metric name, cannot be null.
+   */
+  void count(final String name) {
+    counters.computeIfAbsent(name, key -> new LongAdder()).increment();
+  }
+
+  /** Returns the latencies of the executed queries.
+   *
+   * @return the histogram, never null.
+   */
+  LatencyHistogram getQueryLatency() {
+    return queryLatency;
+  }
+
+  /** Returns the latencies of the connection borrows, to be fed by the
+   * hibernate connection provider when the pools do not time them, see
+   * {@link #isBorrowTimedByPools()}.
+   *
+   * @return the histogram, never null.
+   */
+  LatencyHistogram getBorrowLatency() {
+    return borrowLatency;
+  }
+
+  /** Checks if the pools time the connection borrows themselves.
+   *
+   * @return true if the data source is backed by {@link TimedPool}
+   * instances.
+   */
+  boolean isBorrowTimedByPools() {
+    return poolBorrowLatencies.length > 0;
+  }
+
+  /* ****************************************************************
+   * private methods and functions
+   * ****************************************************************/
+
+  private static String module(final String module) {
+    return StringUtils.isBlank(module) ? "orm" : module;
+  }
+
+  private static void putHistogram(final Map<String, Number> metrics,
+      final String name, final LatencyHistogram... histograms) {
+    long count = 0;
+    long max = 0;
+    for (LatencyHistogram histogram : histograms) {
+      count += histogram.getCount();
+      max = Math.max(max, histogram.getMax());
+    }
+    metrics.put(name + ".count", count);
+    for (int percentile : PERCENTILES) {
+      metrics.put(name + ".p" + percentile, LatencyHistogram.getPercentile(
+          percentile, histograms) / NANOS_PER_MILLI);
+    }
+    metrics.put(name + ".max", max / NANOS_PER_MILLI);
+  }
+
+  private static void putPool(final Map<String, Number> metrics,
+      final String name, final DataSourceProxy... pools) {
+    int active = 0;
+    int idle = 0;
+    int size = 0;
+    int waiters = 0;
+    for (DataSourceProxy pool : pools) {
+      active += pool.getActive();
+      idle += pool.getIdle();
+      size += pool.getSize();
+      waiters += pool.getWaitCount();
+    }
+    metrics.put(name + ".active", active);
+    metrics.put(name + ".idle", idle);
+    metrics.put(name + ".size", size);
+    metrics.put(name + ".waiters", waiters);
+  }
+
+  /** Finds the tomcat jdbc pools behind a data source, through the
+   * delegating data sources and the {@link ReplicaRoutingDataSource}
+   * router.
+   *
+   * @param dataSource the data source, cannot be null.
+   *
+   * @return the pools, the primary first, empty if the data source is not
+   * backed by any. Never null.
+   */
+  static List<DataSourceProxy> findPools(final DataSource dataSource) {
+    DataSource current = dataSource;
+    while (current instanceof DelegatingDataSource) {
+      if (current instanceof ReplicaRoutingDataSource) {
+        return Collections.unmodifiableList(new ArrayList<>(
+            ((ReplicaRoutingDataSource) current).getPools()));
+      }
+      current = ((DelegatingDataSource) current).getTargetDataSource();
+    }
+    if (current instanceof DataSourceProxy) {
+      return Collections.singletonList((DataSourceProxy) current);
+    }
+    return Collections.emptyList();
+  }
+
+  /** Exposes each metric as a read only JMX attribute. */
+  private final class MetricsMBean implements DynamicMBean {
+
+    /** {@inheritDoc} */
+    @Override
+    public Object getAttribute(final String attribute) {
+      return getMetrics().get(attribute);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public AttributeList getAttributes(final String[] attributes) {
+      Map<String, Number> metrics = getMetrics();
+      AttributeList result = new AttributeList();
+      for (String attribute : attributes) {
+        if (metrics.containsKey(attribute)) {
+          result.add(new Attribute(attribute, metrics.get(attribute)));
+        }
+      }
+      return result;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setAttribute(final Attribute attribute) {
+      throw new UnsupportedOperationException("The metrics are read only");
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public AttributeList setAttributes(final AttributeList attributes) {
+      return new AttributeList();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Object invoke(final String actionName, final Object[] params,
+        final String[] signature) {
+      throw new UnsupportedOperationException("No operations");
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public MBeanInfo getMBeanInfo() {
+      MBeanAttributeInfo[] attributes = getMetrics().entrySet().stream()
+          .map(metric -> new MBeanAttributeInfo(metric.getKey(),
+              metric.getValue().getClass().getName(), metric.getKey(), true,
+              false, false))
+          .toArray(MBeanAttributeInfo[]::new);
+      return new MBeanInfo(OrmMetrics.class.getName(),
+          "The metrics of a HibernateComponent", attributes, null, null,
+          null);
+    }
+  }
+}
@@ -0,0 +1,64 @@
+package com.base.orm;
+
+import org.apache.commons.lang3.Validate;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.core.env.Environment;
+
+/** Warms up the {@link ModuleHibernateComponents} when the orm.warmup.enabled
+ * property is true, see {@link HibernateComponent#warmUp(int, int)}.
+ *
+ * It runs once every singleton is created, before the application context
+ * finishes its refresh, so an embedded servlet container does not open its
+ * connectors, and the application does not take traffic, until the warm up
+ * is over.
+ * <br>
+ * It is exposed as a <code>@Bean</code> in {@link OrmConfiguration}.
+ */
+public class OrmWarmUp implements SmartInitializingSingleton {
+
+  /** The property that enables the warm up. */
+  static final String ENABLED = "orm.warmup.enabled";
+
+  /** The property with the number of times the warm up queries run. */
+  static final String ITERATIONS = "orm.warmup.iterations";
+
+  /** The property with the greatest number of rows read by a warm up query.
+   */
+  static final String ROWS = "orm.warmup.rows";
+
+  /** The default number of iterations. */
+  private static final int DEFAULT_ITERATIONS = 200;
+
+  /** The default number of rows. */
+  private static final int DEFAULT_ROWS = 50;
+
+  /** The Spring environment, never null. */
+  private final Environment environment;
+
+  /** The warmed up components, never null. */
+  private final ModuleHibernateComponents components;
+
+  /** Constructor, creates a new warm up.
+   *
+   * @param theEnvironment the Spring environment, cannot be null.
+   * @param theComponents the components to warm up, cannot be null.
+   */
+  OrmWarmUp(final Environment theEnvironment,
+      final ModuleHibernateComponents theComponents) {
+    Validate.notNull(theEnvironment, "No Spring environment instance.");
+    Validate.notNull(theComponents, "No module hibernate components.");
+    environment = theEnvironment;
+    components = theComponents;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void afterSingletonsInstantiated() {
+    if (environment.getProperty(ENABLED, Boolean.class, false)) {
+      components.warmUp(
+          environment.getProperty(ITERATIONS, Integer.class,
+              DEFAULT_ITERATIONS),
+          environment.getProperty(ROWS, Integer.class, DEFAULT_ROWS));
+    }
+  }
+}
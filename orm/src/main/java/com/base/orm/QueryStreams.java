@@ -0,0 +1,153 @@
+package com.base.orm;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import org.apache.commons.lang3.Validate;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.query.Query;
+
+/** Streams the results of queries over big tables in bounded memory.
+ *
+ * The results are read through a forward only cursor, fetching a given
+ * number of rows per round trip, and each entity is evicted from the session
+ * once the next one is requested. Associated entities are only evicted when
+ * the association cascades the eviction.
+ * <br>
+ * The streams hold an open cursor: they must be closed, usually with a
+ * try-with-resources, before the session is.
+ * <br>
+ * The mysql driver ignores a positive fetch size and reads the whole result
+ * in memory, unless the data source url sets useCursorFetch=true, so the
+ * rows are fetched from a server side cursor. Without it, pass {@link
+ * #MYSQL_ROW_BY_ROW} to stream the rows one by one: the connection cannot
+ * run any other statement until the stream is closed, so the entities must
+ * not load lazy associations.
+ * <pre>
+ * try (Stream&lt;Person&gt; persons = QueryStreams.stream(session,
+ *     Person.class, 500)) {
+ *   persons.forEach(exporter::write);
+ * }
+ * </pre>
+ */
+public final class QueryStreams {
+
+  /** The fetch size that makes the mysql driver stream the rows one by one,
+   * when the data source url does not set useCursorFetch=true. */
+  public static final int MYSQL_ROW_BY_ROW = Integer.MIN_VALUE;
+
+  /** Utility class, not to be instantiated. */
+  private QueryStreams() {
+  }
+
+  /** Streams every instance of an entity.
+   *
+   * @param <T> the entity type.
+   * @param session the session that runs the query, cannot be null.
+   * @param entity the persistent class, cannot be null.
+   * @param fetchSize the number of rows fetched per round trip, greater than
+   * 0, or {@link #MYSQL_ROW_BY_ROW}.
+   *
+   * @return a stream of entities, never null. It must be closed.
+   */
+  public static <T> Stream<T> stream(final Session session,
+      final Class<T> entity, final int fetchSize) {
+    Validate.notNull(entity, "The entity cannot be null.");
+    return stream(session,
+        session.createQuery("from " + entity.getName(), entity), fetchSize);
+  }
+
+  /** Streams the results of a query.
+   *
+   * @param <T> the entity type.
+   * @param session the session that created the query, cannot be null.
+   * @param query the query, it must select a single entity per row. Cannot
+   * be null.
+   * @param fetchSize the number of rows fetched per round trip, greater than
+   * 0, or {@link #MYSQL_ROW_BY_ROW}.
+   *
+   * @return a stream of entities, never null. It must be closed.
+   */
+  public static <T> Stream<T> stream(final Session session,
+      final Query<T> query, final int fetchSize) {
+    Validate.notNull(session, "The session cannot be null.");
+    Validate.notNull(query, "The query cannot be null.");
+    Validate.isTrue(fetchSize > 0 || fetchSize == MYSQL_ROW_BY_ROW,
+        "The fetch size must be positive, or MYSQL_ROW_BY_ROW.");
+
+    ScrollableResults results = query
+        .setFetchSize(fetchSize)
+        .scroll(ScrollMode.FORWARD_ONLY);
+    Iterator<T> iterator = new EvictingIterator<>(session, results);
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+        Spliterator.ORDERED | Spliterator.NONNULL), false)
+        .onClose(results::close);
+  }
+
+  /** Iterates over scrollable results, evicting the last returned entity
+   * when the next one is requested.
+   *
+   * @param <T> the entity type.
+   */
+  private static final class EvictingIterator<T> implements Iterator<T> {
+
+    /** The session the entities are loaded in, never null. */
+    private final Session session;
+
+    /** The cursor, never null. */
+    private final ScrollableResults results;
+
+    /** The last returned entity, null if none was returned or it was already
+     * evicted. */
+    private T current;
+
+    /** Whether the cursor was moved past the last returned entity. */
+    private boolean advanced;
+
+    /** Whether the cursor points to a row, valid when {@link #advanced}. */
+    private boolean available;
+
+    /** Constructor with mandatory parameters.
+     *
+     * @param theSession the session the entities are loaded in, cannot be
+     * null.
+     * @param theResults the cursor, cannot be null.
+     */
+    EvictingIterator(final Session theSession,
+        final ScrollableResults theResults) {
+      session = theSession;
+      results = theResults;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean hasNext() {
+      if (!advanced) {
+        if (current != null) {
+          session.evict(current);
+          current = null;
+        }
+        available = results.next();
+        advanced = true;
+      }
+      return available;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @SuppressWarnings("unchecked")
+    public T next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      advanced = false;
+      current = (T) results.get(0);
+      return current;
+    }
+  }
+}
@@ -0,0 +1,89 @@
+package com.base.orm;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.tomcat.jdbc.pool.PoolProperties;
+
+/** The read replicas of the shared data source.
+ *
+ * This is initialized from the properties that start with 'datasource':
+ * datasource.replicas[n].* configure the pool of each replica like
+ * datasource.* configure the primary one.
+ *
+ * @see ReplicaRoutingDataSource
+ */
+public class ReplicaProperties {
+
+  /** How a read only transaction picks its replica. */
+  public enum Balancing {
+
+    /** Each transaction takes the next replica. */
+    ROUND_ROBIN,
+
+    /** Each transaction takes the replica with less active connections. */
+    LEAST_BUSY
+  }
+
+  /** The default milliseconds reads stay on the primary after a write. */
+  private static final long DEFAULT_PRIMARY_PIN_MILLIS = 1000;
+
+  /** The pool properties of each replica, never null. */
+  private List<PoolProperties> replicas = new ArrayList<>();
+
+  /** How read only transactions pick their replica, never null. */
+  private Balancing balancing = Balancing.ROUND_ROBIN;
+
+  /** The milliseconds a thread keeps reading from the primary after it
+   * commits a read write transaction. */
+  private long primaryPinMillis = DEFAULT_PRIMARY_PIN_MILLIS;
+
+  /** Returns the pool properties of each replica.
+   *
+   * @return the replicas, never null.
+   */
+  public List<PoolProperties> getReplicas() {
+    return replicas;
+  }
+
+  /** Sets the pool properties of each replica.
+   *
+   * @param theReplicas the replicas, cannot be null.
+   */
+  public void setReplicas(final List<PoolProperties> theReplicas) {
+    replicas = theReplicas;
+  }
+
+  /** Returns how read only transactions pick their replica.
+   *
+   * @return the balancing, never null.
+   */
+  public Balancing getBalancing() {
+    return balancing;
+  }
+
+  /** Sets how read only transactions pick their replica.
+   *
+   * @param theBalancing the balancing, cannot be null.
+   */
+  public void setBalancing(final Balancing theBalancing) {
+    balancing = theBalancing;
+  }
+
+  /** Returns the milliseconds a thread keeps reading from the primary after
+   * it commits a read write transaction.
+   *
+   * @return the milliseconds, 0 to not pin reads to the primary.
+   */
+  public long getPrimaryPinMillis() {
+    return primaryPinMillis;
+  }
+
+  /** Sets the milliseconds a thread keeps reading from the primary after it
+   * commits a read write transaction.
+   *
+   * @param millis the milliseconds, 0 to not pin reads to the primary.
+   */
+  public void setPrimaryPinMillis(final long millis) {
+    primaryPinMillis = millis;
+  }
+}
@@ -0,0 +1,194 @@
+package com.base.orm;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.lang3.Validate;
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support
+    .TransactionSynchronizationAdapter;
+import org.springframework.transaction.support
+    .TransactionSynchronizationManager;
+
+/** A data source that sends read only transactions to read replicas and
+ * everything else to the primary.
+ *
+ * The connections are taken lazily, on the first statement, so the read only
+ * flag of the transaction is already known when the target pool is chosen.
+ * <br>
+ * After a thread commits a read write transaction, its read only
+ * transactions go to the primary for {@link
+ * ReplicaProperties#getPrimaryPinMillis()}, so it reads its own writes even
+ * if the replicas lag behind. {@link #pinToPrimary(long)} and {@link
+ * #releasePin()} control this explicitly, for example for the span of a
+ * request.
+ */
+public class ReplicaRoutingDataSource extends LazyConnectionDataSourceProxy {
+
+  /** The time until which the reads of the current thread go to the
+   * primary, as given by System.nanoTime(), or null if they are not pinned.
+   */
+  private static final ThreadLocal<Long> PINNED_UNTIL = new ThreadLocal<>();
+
+  /** The router that holds the pools, never null. */
+  private final Router router;
+
+  /** Constructor, creates a new data source.
+   *
+   * @param primary the primary pool, cannot be null.
+   * @param replicas the replica pools, cannot be null nor empty.
+   * @param properties the routing properties, cannot be null.
+   */
+  public ReplicaRoutingDataSource(final DataSource primary,
+      final List<DataSource> replicas, final ReplicaProperties properties) {
+    this(new Router(primary, replicas, properties));
+  }
+
+  /** Constructor, creates a new data source over a router.
+   *
+   * @param theRouter the router, cannot be null.
+   */
+  private ReplicaRoutingDataSource(final Router theRouter) {
+    super(theRouter);
+    router = theRouter;
+  }
+
+  /** Sends the read only transactions of the current thread to the primary
+   * for some time.
+   *
+   * @param millis the milliseconds, 0 or more.
+   */
+  public static void pinToPrimary(final long millis) {
+    Validate.isTrue(millis >= 0, "The pin time cannot be negative.");
+    long until = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+    Long current = PINNED_UNTIL.get();
+    if (current == null || until - current > 0) {
+      PINNED_UNTIL.set(until);
+    }
+  }
+
+  /** Lets the read only transactions of the current thread go to the
+   * replicas again.
+   */
+  public static void releasePin() {
+    PINNED_UNTIL.remove();
+  }
+
+  /** Checks if the reads of the current thread go to the primary.
+   *
+   * @return true if they are pinned to the primary.
+   */
+  static boolean isPinned() {
+    Long until = PINNED_UNTIL.get();
+    if (until == null) {
+      return false;
+    }
+    if (System.nanoTime() - until >= 0) {
+      PINNED_UNTIL.remove();
+      return false;
+    }
+    return true;
+  }
+
+  /** Returns the pools connections are routed to.
+   *
+   * @return the primary pool followed by the replica pools, never null.
+   */
+  List<DataSource> getPools() {
+    List<DataSource> pools = new ArrayList<>();
+    pools.add(router.primary);
+    pools.addAll(router.replicas);
+    return pools;
+  }
+
+  /** Closes the primary and replica pools. */
+  public void close() {
+    router.primary.close(true);
+    router.replicas.forEach(replica -> replica.close(true));
+  }
+
+  /** Picks the pool of each new connection. */
+  private static final class Router extends AbstractDataSource {
+
+    /** The primary pool, never null. */
+    private final DataSource primary;
+
+    /** The replica pools, never null nor empty. */
+    private final List<DataSource> replicas;
+
+    /** The routing properties, never null. */
+    private final ReplicaProperties properties;
+
+    /** The number of replica connections given, for round robin. */
+    private final AtomicInteger next = new AtomicInteger();
+
+    /** Constructor, creates a new router.
+     *
+     * @param thePrimary the primary pool, cannot be null.
+     * @param theReplicas the replica pools, cannot be null nor empty.
+     * @param theProperties the routing properties, cannot be null.
+     */
+    private Router(final DataSource thePrimary,
+        final List<DataSource> theReplicas,
+        final ReplicaProperties theProperties) {
+      Validate.notNull(thePrimary, "The primary pool cannot be null.");
+      Validate.notEmpty(theReplicas, "No replica pools.");
+      Validate.notNull(theProperties, "The properties cannot be null.");
+      primary = thePrimary;
+      replicas = Collections.unmodifiableList(new ArrayList<>(theReplicas));
+      properties = theProperties;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Connection getConnection() throws SQLException {
+      return choose().getConnection();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Connection getConnection(final String username,
+        final String password) throws SQLException {
+      return choose().getConnection(username, password);
+    }
+
+    /** Chooses the pool for the current transaction.
+     *
+     * @return the pool, never null.
+     */
+    private DataSource choose() {
+      if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+          && !isPinned()) {
+        if (properties.getBalancing()
+            == ReplicaProperties.Balancing.LEAST_BUSY) {
+          return Collections.min(replicas,
+              Comparator.comparingInt(DataSource::getActive));
+        }
+        return replicas.get(
+            Math.floorMod(next.getAndIncrement(), replicas.size()));
+      }
+      if (TransactionSynchronizationManager.isSynchronizationActive()
+          && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+          && properties.getPrimaryPinMillis() > 0) {
+        TransactionSynchronizationManager.registerSynchronization(
+            new TransactionSynchronizationAdapter() {
+              @Override
+              public void afterCompletion(final int status) {
+                if (status == TransactionSynchronization.STATUS_COMMITTED) {
+                  pinToPrimary(properties.getPrimaryPinMillis());
+                }
+              }
+            });
+      }
+      return primary;
+    }
+  }
+}
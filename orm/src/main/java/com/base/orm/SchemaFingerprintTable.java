@@ -0,0 +1,168 @@
+package com.base.orm;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import javax.sql.DataSource;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** The bookkeeping table where {@link HibernateComponent} keeps the schema
+ * fingerprint it last validated, see {@link
+ * MetadataFingerprint#ofSchema(org.hibernate.boot.Metadata)}.
+ *
+ * It holds a row per data source, identified by the prefix of its
+ * properties, and is created the first time a fingerprint is written. It is
+ * not mapped, so it is not part of the validated schema.
+ */
+final class SchemaFingerprintTable {
+
+  /** The logger. */
+  private static Logger log = LoggerFactory.getLogger(
+      SchemaFingerprintTable.class);
+
+  /** The table name. */
+  static final String TABLE = "orm_schema_fingerprint";
+
+  /** The statement that creates the table. */
+  private static final String CREATE = "create table " + TABLE
+      + " (data_source varchar(255) not null,"
+      + " fingerprint varchar(64) not null,"
+      + " validated timestamp not null,"
+      + " primary key (data_source))";
+
+  /** The query of the fingerprint of a data source. */
+  private static final String SELECT = "select fingerprint from " + TABLE
+      + " where data_source = ?";
+
+  /** The statement that updates the fingerprint of a data source. */
+  private static final String UPDATE = "update " + TABLE
+      + " set fingerprint = ?, validated = ? where data_source = ?";
+
+  /** The statement that adds the fingerprint of a data source. */
+  private static final String INSERT = "insert into " + TABLE
+      + " (fingerprint, validated, data_source) values (?, ?, ?)";
+
+  /** The index of the fingerprint parameter of {@link #UPDATE} and {@link
+   * #INSERT}. */
+  private static final int FINGERPRINT = 1;
+
+  /** The index of the validation time parameter. */
+  private static final int VALIDATED = 2;
+
+  /** The index of the data source parameter. */
+  private static final int DATA_SOURCE = 3;
+
+  /** The data source of the table, never null. */
+  private final DataSource dataSource;
+
+  /** The prefix of the data source properties, the row key, never null. */
+  private final String dataSourcePrefix;
+
+  /** Constructor, creates a new table.
+   *
+   * @param theDataSource the data source of the table, cannot be null.
+   * @param theDataSourcePrefix the prefix of the data source properties,
+   * like 'datasource'. Cannot be null.
+   */
+  SchemaFingerprintTable(final DataSource theDataSource,
+      final String theDataSourcePrefix) {
+    Validate.notNull(theDataSource, "No DataSource instance.");
+    Validate.notNull(theDataSourcePrefix, "No DataSource prefix.");
+    dataSource = theDataSource;
+    dataSourcePrefix = theDataSourcePrefix;
+  }
+
+  /** Reads the last validated fingerprint.
+   *
+   * @return the fingerprint, or null if there is none or the table cannot
+   * be read.
+   */
+  String read() {
+    try (Connection connection = dataSource.getConnection();
+        PreparedStatement select = connection.prepareStatement(SELECT)) {
+      select.setString(1, dataSourcePrefix);
+      try (ResultSet result = select.executeQuery()) {
+        return result.next() ? result.getString(1) : null;
+      }
+    } catch (SQLException e) {
+      log.debug("No schema fingerprint for {}: {}", dataSourcePrefix,
+          e.getMessage());
+      return null;
+    }
+  }
+
+  /** Writes the last validated fingerprint, creating the table if needed. A
+   * failure is only logged: the schema is validated again on the next
+   * bootstrap.
+   *
+   * @param fingerprint the fingerprint, cannot be null.
+   */
+  void write(final String fingerprint) {
+    Validate.notNull(fingerprint, "The fingerprint cannot be null.");
+    try (Connection connection = dataSource.getConnection()) {
+      if (!exists(connection)) {
+        try (Statement create = connection.createStatement()) {
+          create.execute(CREATE);
+        }
+      }
+      if (execute(connection, UPDATE, fingerprint) == 0) {
+        execute(connection, INSERT, fingerprint);
+      }
+      if (!connection.getAutoCommit()) {
+        connection.commit();
+      }
+    } catch (SQLException e) {
+      log.warn("Unable to write the schema fingerprint of {}: {}",
+          dataSourcePrefix, e.getMessage());
+    }
+  }
+
+  /** Checks if the table exists, whatever the case the database stores its
+   * name in.
+   *
+   * @param connection the connection, cannot be null.
+   *
+   * @return true if the table exists.
+   *
+   * @throws SQLException if the catalog cannot be read.
+   */
+  private static boolean exists(final Connection connection)
+      throws SQLException {
+    for (String name : new String[] {TABLE, TABLE.toUpperCase()}) {
+      try (ResultSet tables = connection.getMetaData().getTables(
+          connection.getCatalog(), null, name, null)) {
+        if (tables.next()) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /** Runs the update or insert of the fingerprint row.
+   *
+   * @param connection the connection, cannot be null.
+   * @param sql the {@link #UPDATE} or {@link #INSERT} statement, cannot be
+   * null.
+   * @param fingerprint the fingerprint, cannot be null.
+   *
+   * @return the number of rows written.
+   *
+   * @throws SQLException if the statement fails.
+   */
+  private int execute(final Connection connection, final String sql,
+      final String fingerprint) throws SQLException {
+    try (PreparedStatement statement = connection.prepareStatement(sql)) {
+      statement.setString(FINGERPRINT, fingerprint);
+      statement.setTimestamp(VALIDATED,
+          new Timestamp(System.currentTimeMillis()));
+      statement.setString(DATA_SOURCE, dataSourcePrefix);
+      return statement.executeUpdate();
+    }
+  }
+}
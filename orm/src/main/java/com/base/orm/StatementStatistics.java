@@ -0,0 +1,122 @@
+package com.base.orm;
+
+import java.time.Duration;
+
+/** A snapshot of the recent latencies of the statements that share a
+ * fingerprint.
+ *
+ * @see TracingDataSource#getStatistics()
+ */
+public final class StatementStatistics {
+
+  /** The normalized sql of the statements, never null. */
+  private final String fingerprint;
+
+  /** The module that owns the tables of the statements, null if they do not
+   * touch a module table. */
+  private final String module;
+
+  /** The number of executions in the rolling window. */
+  private final long count;
+
+  /** The median latency, never null. */
+  private final Duration p50;
+
+  /** The 95th percentile latency, never null. */
+  private final Duration p95;
+
+  /** The 99th percentile latency, never null. */
+  private final Duration p99;
+
+  /** The greatest latency, never null. */
+  private final Duration max;
+
+  /** Constructor with mandatory parameters.
+   *
+   * @param theFingerprint the normalized sql, cannot be null.
+   * @param theModule the module of the statements, null if none.
+   * @param theCount the number of executions in the rolling window.
+   * @param theP50 the median latency, cannot be null.
+   * @param theP95 the 95th percentile latency, cannot be null.
+   * @param theP99 the 99th percentile latency, cannot be null.
+   * @param theMax the greatest latency, cannot be null.
+   */
+  StatementStatistics(final String theFingerprint, final String theModule,
+      final long theCount, final Duration theP50, final Duration theP95,
+      final Duration theP99, final Duration theMax) {
+    fingerprint = theFingerprint;
+    module = theModule;
+    count = theCount;
+    p50 = theP50;
+    p95 = theP95;
+    p99 = theP99;
+    max = theMax;
+  }
+
+  /** Returns the normalized sql of the statements, with the literals
+   * replaced by '?'.
+   *
+   * @return the fingerprint, never null.
+   */
+  public String getFingerprint() {
+    return fingerprint;
+  }
+
+  /** Returns the module that owns the tables of the statements, taken from
+   * the table name prefix.
+   *
+   * @return the module name, null if the statements do not touch a module
+   * table.
+   */
+  public String getModule() {
+    return module;
+  }
+
+  /** Returns the number of executions in the rolling window.
+   *
+   * @return the count.
+   */
+  public long getCount() {
+    return count;
+  }
+
+  /** Returns an upper bound of the median latency.
+   *
+   * @return the latency, never null.
+   */
+  public Duration getP50() {
+    return p50;
+  }
+
+  /** Returns an upper bound of the 95th percentile latency.
+   *
+   * @return the latency, never null.
+   */
+  public Duration getP95() {
+    return p95;
+  }
+
+  /** Returns an upper bound of the 99th percentile latency.
+   *
+   * @return the latency, never null.
+   */
+  public Duration getP99() {
+    return p99;
+  }
+
+  /** Returns the greatest latency.
+   *
+   * @return the latency, never null.
+   */
+  public Duration getMax() {
+    return max;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String toString() {
+    return (module == null ? "-" : module) + ": " + fingerprint + ", "
+        + count + " executions, p50 " + p50.toMillis() + " ms, p99 "
+        + p99.toMillis() + " ms, max " + max.toMillis() + " ms";
+  }
+}
@@ -0,0 +1,83 @@
+package com.base.orm;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import javax.sql.DataSource;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.service.UnknownUnwrapTypeException;
+
+import com.base.metrics.LatencyHistogram;
+
+/** The hibernate connection provider, that measures how long it takes to
+ * borrow a connection from the data source.
+ *
+ * It is only used when the data source is not backed by {@link TimedPool}
+ * instances, that time the borrow where the connection is actually taken.
+ */
+class TimedConnectionProvider implements ConnectionProvider {
+
+  /** The serial version. */
+  private static final long serialVersionUID = 1L;
+
+  /** The data source, never null. */
+  private final transient DataSource dataSource;
+
+  /** The borrow latencies, never null. */
+  private final transient LatencyHistogram borrowLatency;
+
+  /** Constructor with mandatory parameters.
+   *
+   * @param theDataSource the data source, cannot be null.
+   * @param theBorrowLatency the histogram of borrow latencies, cannot be
+   * null.
+   */
+  TimedConnectionProvider(final DataSource theDataSource,
+      final LatencyHistogram theBorrowLatency) {
+    dataSource = theDataSource;
+    borrowLatency = theBorrowLatency;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Connection getConnection() throws SQLException {
+    long start = System.nanoTime();
+    try {
+      return dataSource.getConnection();
+    } finally {
+      borrowLatency.record(System.nanoTime() - start);
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void closeConnection(final Connection connection)
+      throws SQLException {
+    connection.close();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean supportsAggressiveRelease() {
+    return true;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @SuppressWarnings("rawtypes")
+  public boolean isUnwrappableAs(final Class unwrapType) {
+    return unwrapType.isInstance(this) || unwrapType.isInstance(dataSource);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> T unwrap(final Class<T> unwrapType) {
+    if (unwrapType.isInstance(this)) {
+      return (T) this;
+    }
+    if (unwrapType.isInstance(dataSource)) {
+      return (T) dataSource;
+    }
+    throw new UnknownUnwrapTypeException(unwrapType);
+  }
+}
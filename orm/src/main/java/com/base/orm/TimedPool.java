@@ -0,0 +1,61 @@
+package com.base.orm;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.apache.tomcat.jdbc.pool.PoolConfiguration;
+
+import com.base.metrics.LatencyHistogram;
+
+/** A tomcat jdbc pool that measures how long it takes to borrow a
+ * connection.
+ *
+ * The borrow is timed in the pool, where the connection is actually taken:
+ * the lazy proxies in front of it, like {@link ReplicaRoutingDataSource},
+ * hand out connection proxies that only borrow on their first statement.
+ * {@link OrmMetrics} reports it as orm.connections.borrow.
+ */
+final class TimedPool extends DataSource {
+
+  /** The borrow latencies, never null. */
+  private final LatencyHistogram borrowLatency = new LatencyHistogram();
+
+  /** Constructor, creates a new pool.
+   *
+   * @param properties the pool properties, cannot be null.
+   */
+  TimedPool(final PoolConfiguration properties) {
+    super(properties);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Connection getConnection() throws SQLException {
+    long start = System.nanoTime();
+    try {
+      return super.getConnection();
+    } finally {
+      borrowLatency.record(System.nanoTime() - start);
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Connection getConnection(final String username,
+      final String password) throws SQLException {
+    long start = System.nanoTime();
+    try {
+      return super.getConnection(username, password);
+    } finally {
+      borrowLatency.record(System.nanoTime() - start);
+    }
+  }
+
+  /** Returns the latencies of the connection borrows.
+   *
+   * @return the histogram, never null.
+   */
+  LatencyHistogram getBorrowLatency() {
+    return borrowLatency;
+  }
+}
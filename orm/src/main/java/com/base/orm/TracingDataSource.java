@@ -0,0 +1,535 @@
+package com.base.orm;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.sql.DataSource;
+import org.apache.commons.lang3.Validate;
+import org.apache.tomcat.jdbc.pool.DataSourceProxy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import com.base.metrics.LatencyHistogram;
+
+/** A data source that times every statement executed on its connections.
+ *
+ * The statements are grouped by fingerprint, their sql with the literals
+ * replaced by '?', and each fingerprint is attributed to the module that
+ * owns the tables it touches, from the module prefix that {@link
+ * HibernateComponent} adds to the table names. The latency percentiles of
+ * each fingerprint cover the last one to two windows, see {@link
+ * #getStatistics()}.
+ * <br>
+ * The statements slower than a threshold are logged with their bind
+ * parameters and the first caller outside the jdbc, hibernate and Spring
+ * classes.
+ * <br>
+ * {@link OrmConfiguration} wraps the data sources with this class when the
+ * orm.tracing.enabled property is true, see {@link #wrap(Environment,
+ * DataSource, Set)}.
+ */
+public class TracingDataSource extends DelegatingDataSource {
+
+  /** The logger. */
+  private static Logger log = LoggerFactory.getLogger(
+      TracingDataSource.class);
+
+  /** The property that enables the tracing. */
+  static final String ENABLED = "orm.tracing.enabled";
+
+  /** The property with the threshold of the slow statements log, in
+   * milliseconds. A negative value disables the log. */
+  static final String SLOW_QUERY_MILLIS = "orm.tracing.slow_query_millis";
+
+  /** The property with the length of the percentiles window, in seconds. */
+  static final String WINDOW_SECONDS = "orm.tracing.window_seconds";
+
+  /** The default slow statements threshold, in milliseconds. */
+  private static final long DEFAULT_SLOW_QUERY_MILLIS = 500;
+
+  /** The default percentiles window, in seconds. */
+  private static final long DEFAULT_WINDOW_SECONDS = 60;
+
+  /** The greatest number of fingerprints kept, the statements beyond it
+   * are all traced under {@link #OVERFLOW}. */
+  private static final int MAX_FINGERPRINTS = 1000;
+
+  /** The greatest number of sql strings whose fingerprint is remembered,
+   * the rest are normalized on every execution. */
+  private static final int MAX_STATEMENTS = 10000;
+
+  /** The fingerprint of the statements beyond {@link #MAX_FINGERPRINTS}. */
+  private static final String OVERFLOW = "<other statements>";
+
+  /** The percentiles of each fingerprint. */
+  private static final int[] PERCENTILES = {50, 95, 99};
+
+  /** Matches the sql string literals. */
+  private static final Pattern STRINGS = Pattern.compile("'(?:[^']|'')*'");
+
+  /** Matches the sql number literals, but not the digits in names. */
+  private static final Pattern NUMBERS = Pattern.compile(
+      "\\b\\d+(?:\\.\\d+)?\\b");
+
+  /** Matches the runs of white space. */
+  private static final Pattern SPACES = Pattern.compile("\\s+");
+
+  /** Matches the in lists, once their literals are replaced. */
+  private static final Pattern IN_LISTS = Pattern.compile(
+      "\\bin \\( ?\\?(?: ?, ?\\?)* ?\\)");
+
+  /** Matches the table names. */
+  private static final Pattern TABLES = Pattern.compile(
+      "\\b(?:from|join|into|update|table|sequence|exists) (\\w+)");
+
+  /** The packages whose classes are not reported as the caller of a slow
+   * statement. */
+  private static final String[] INFRASTRUCTURE = {"java.", "javax.", "sun.",
+    "com.sun.", "org.hibernate.", "org.springframework.",
+    "org.apache.tomcat.", "com.base.orm."};
+
+  /** The modules, used to attribute the statements, never null. */
+  private final Set<ModulePersistenceRegistry> registries;
+
+  /** The threshold of the slow statements log in nanoseconds, negative if
+   * the log is disabled. */
+  private final long slowNanos;
+
+  /** The length of the percentiles window in nanoseconds, greater than 0. */
+  private final long windowNanos;
+
+  /** The trace of each fingerprint, never null. */
+  private final Map<String, Trace> fingerprints = new ConcurrentHashMap<>();
+
+  /** The trace of each sql string already seen, never null. */
+  private final Map<String, Trace> statements = new ConcurrentHashMap<>();
+
+  /** Constructor, creates a new tracing data source.
+   *
+   * @param target the traced data source, cannot be null.
+   * @param theRegistries the modules, used to attribute the statements to
+   * them. It is read each time a new fingerprint shows up, so it can be a
+   * live view. Cannot be null.
+   * @param slowThreshold the threshold of the slow statements log, cannot
+   * be null. A negative value disables the log.
+   * @param window the length of the percentiles window, cannot be null and
+   * must be positive.
+   */
+  public TracingDataSource(final DataSource target,
+      final Set<ModulePersistenceRegistry> theRegistries,
+      final Duration slowThreshold, final Duration window) {
+    super(target);
+    Validate.notNull(theRegistries, "The modules cannot be null.");
+    Validate.notNull(slowThreshold, "The slow threshold cannot be null.");
+    Validate.notNull(window, "The window cannot be null.");
+    Validate.isTrue(!window.isNegative() && !window.isZero(),
+        "The window must be positive.");
+    registries = theRegistries;
+    slowNanos = slowThreshold.toNanos();
+    windowNanos = window.toNanos();
+  }
+
+  /** Wraps a data source with a tracing data source if the
+   * orm.tracing.enabled property is true.
+   *
+   * @param environment the Spring environment, cannot be null.
+   * @param dataSource the data source to trace, cannot be null.
+   * @param registries the modules, cannot be null.
+   *
+   * @return a {@link TracingDataSource} over the data source, or the data
+   * source itself if the tracing is disabled. Never null.
+   */
+  static DataSource wrap(final Environment environment,
+      final DataSource dataSource,
+      final Set<ModulePersistenceRegistry> registries) {
+    Validate.notNull(environment, "No Spring environment instance.");
+    if (!environment.getProperty(ENABLED, Boolean.class, false)) {
+      return dataSource;
+    }
+    long slowMillis = environment.getProperty(SLOW_QUERY_MILLIS, Long.class,
+        DEFAULT_SLOW_QUERY_MILLIS);
+    long windowSeconds = environment.getProperty(WINDOW_SECONDS, Long.class,
+        DEFAULT_WINDOW_SECONDS);
+    log.info("Tracing the statements, slow threshold {} ms", slowMillis);
+    return new TracingDataSource(dataSource, registries,
+        Duration.ofMillis(slowMillis), Duration.ofSeconds(windowSeconds));
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Connection getConnection() throws SQLException {
+    return trace(super.getConnection());
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Connection getConnection(final String username,
+      final String password) throws SQLException {
+    return trace(super.getConnection(username, password));
+  }
+
+  /** Takes a snapshot of the latencies of each fingerprint in the last one
+   * to two windows.
+   *
+   * @return the statistics of the fingerprints executed in the window,
+   * slowest p99 first. Never null.
+   */
+  public List<StatementStatistics> getStatistics() {
+    List<StatementStatistics> result = new ArrayList<>();
+    fingerprints.values().forEach(trace -> {
+      StatementStatistics statistics = trace.snapshot();
+      if (statistics.getCount() > 0) {
+        result.add(statistics);
+      }
+    });
+    result.sort(Comparator.comparing(StatementStatistics::getP99)
+        .reversed());
+    return result;
+  }
+
+  /** Closes the traced data source, if it is a tomcat jdbc pool or a
+   * {@link ReplicaRoutingDataSource}.
+   */
+  public void close() {
+    DataSource target = getTargetDataSource();
+    if (target instanceof ReplicaRoutingDataSource) {
+      ((ReplicaRoutingDataSource) target).close();
+    } else if (target instanceof DataSourceProxy) {
+      ((DataSourceProxy) target).close(true);
+    }
+  }
+
+  /** Normalizes a sql statement: replaces its literals with '?', collapses
+   * the in lists and white space, and lower cases it.
+   *
+   * @param sql the sql, cannot be null.
+   *
+   * @return the fingerprint, never null.
+   */
+  static String fingerprint(final String sql) {
+    String result = STRINGS.matcher(sql).replaceAll("?");
+    result = NUMBERS.matcher(result).replaceAll("?");
+    result = SPACES.matcher(result).replaceAll(" ").trim()
+        .toLowerCase(Locale.ROOT);
+    return IN_LISTS.matcher(result).replaceAll("in (?)");
+  }
+
+  /** Finds the module of the first table of a fingerprint that has a
+   * module prefix.
+   *
+   * @param fingerprint the fingerprint, cannot be null.
+   *
+   * @return the module name, null if no table has a module prefix.
+   */
+  private String findModule(final String fingerprint) {
+    Matcher tables = TABLES.matcher(fingerprint);
+    while (tables.find()) {
+      String table = tables.group(1);
+      for (ModulePersistenceRegistry registry : registries) {
+        String prefix = registry.getModule().toLowerCase(Locale.ROOT) + "_";
+        if (table.startsWith(prefix)) {
+          return registry.getModule();
+        }
+      }
+    }
+    return null;
+  }
+
+  /** Returns the trace of a sql statement, creating it if needed.
+   *
+   * @param sql the sql, cannot be null.
+   *
+   * @return the trace, never null.
+   */
+  private Trace getTrace(final String sql) {
+    Trace trace = statements.get(sql);
+    if (trace == null) {
+      String fingerprint = fingerprint(sql);
+      if (fingerprints.size() >= MAX_FINGERPRINTS
+          && !fingerprints.containsKey(fingerprint)) {
+        fingerprint = OVERFLOW;
+      }
+      trace = fingerprints.computeIfAbsent(fingerprint,
+          f -> new Trace(f, OVERFLOW.equals(f) ? null : findModule(f)));
+      if (statements.size() < MAX_STATEMENTS) {
+        statements.put(sql, trace);
+      }
+    }
+    return trace;
+  }
+
+  /** Records the execution of a statement, and logs it if it was slow.
+   *
+   * @param sql the executed sql, cannot be null.
+   * @param nanos the time the execution took.
+   * @param parameters the bind parameters, cannot be null.
+   */
+  private void record(final String sql, final long nanos,
+      final Map<Object, Object> parameters) {
+    Trace trace = getTrace(sql);
+    trace.record(nanos);
+    if (slowNanos >= 0 && nanos >= slowNanos) {
+      log.warn("Slow statement of module {} took {} ms: {}, parameters {},"
+          + " called from {}", trace.module,
+          TimeUnit.NANOSECONDS.toMillis(nanos), sql, parameters,
+          findCaller());
+    }
+  }
+
+  /** Finds the first caller outside of the infrastructure packages and the
+   * generated proxies.
+   *
+   * @return the caller stack frame, or "unknown", never null.
+   */
+  private static String findCaller() {
+    for (StackTraceElement frame : new Throwable().getStackTrace()) {
+      boolean infrastructure = frame.getClassName().contains("$$");
+      for (String prefix : INFRASTRUCTURE) {
+        infrastructure |= frame.getClassName().startsWith(prefix);
+      }
+      if (!infrastructure) {
+        return frame.toString();
+      }
+    }
+    return "unknown";
+  }
+
+  /** Wraps a connection so its statements are traced.
+   *
+   * @param connection the connection, cannot be null.
+   *
+   * @return the traced connection, never null.
+   */
+  private Connection trace(final Connection connection) {
+    return (Connection) Proxy.newProxyInstance(
+        TracingDataSource.class.getClassLoader(),
+        new Class<?>[] {Connection.class},
+        new ConnectionHandler(connection));
+  }
+
+  /** Invokes a method on the proxied object, unwrapping its exceptions.
+   *
+   * @param target the proxied object, cannot be null.
+   * @param method the method, cannot be null.
+   * @param args the arguments, null if none.
+   *
+   * @return the method result.
+   *
+   * @throws Throwable the exception thrown by the method.
+   */
+  private static Object invoke(final Object target, final Method method,
+      final Object[] args) throws Throwable {
+    try {
+      return method.invoke(target, args);
+    } catch (InvocationTargetException e) {
+      throw e.getCause();
+    }
+  }
+
+  /** The latencies of the statements with a fingerprint. */
+  private final class Trace {
+
+    /** The fingerprint, never null. */
+    private final String fingerprint;
+
+    /** The module of the fingerprint, null if none. */
+    private final String module;
+
+    /** The latencies of the current window, never null. */
+    private volatile LatencyHistogram current = new LatencyHistogram();
+
+    /** The latencies of the previous window, never null. */
+    private volatile LatencyHistogram previous = new LatencyHistogram();
+
+    /** The start of the current window, as given by System.nanoTime(). */
+    private volatile long windowStart = System.nanoTime();
+
+    /** Constructor, creates a new trace.
+     *
+     * @param theFingerprint the fingerprint, cannot be null.
+     * @param theModule the module, null if none.
+     */
+    private Trace(final String theFingerprint, final String theModule) {
+      fingerprint = theFingerprint;
+      module = theModule;
+    }
+
+    /** Records an execution.
+     *
+     * @param nanos the time the execution took.
+     */
+    private void record(final long nanos) {
+      rotate();
+      current.record(nanos);
+    }
+
+    /** Takes a snapshot of the latencies.
+     *
+     * @return the statistics, never null.
+     */
+    private StatementStatistics snapshot() {
+      rotate();
+      LatencyHistogram first = previous;
+      LatencyHistogram second = current;
+      Duration[] percentiles = new Duration[PERCENTILES.length];
+      for (int i = 0; i < PERCENTILES.length; i++) {
+        percentiles[i] = Duration.ofNanos(LatencyHistogram.getPercentile(
+            PERCENTILES[i], first, second));
+      }
+      return new StatementStatistics(fingerprint, module,
+          first.getCount() + second.getCount(), percentiles[0],
+          percentiles[1], percentiles[2],
+          Duration.ofNanos(Math.max(first.getMax(), second.getMax())));
+    }
+
+    /** Starts a new window if the current one is over. The previous window
+     * is dropped, or cleared if it is older than a window.
+     */
+    private void rotate() {
+      long now = System.nanoTime();
+      if (now - windowStart < windowNanos) {
+        return;
+      }
+      synchronized (this) {
+        long elapsed = now - windowStart;
+        if (elapsed >= windowNanos) {
+          previous = elapsed < 2 * windowNanos ? current
+              : new LatencyHistogram();
+          current = new LatencyHistogram();
+          windowStart = now;
+        }
+      }
+    }
+  }
+
+  /** Traces the statements created by a connection. */
+  private final class ConnectionHandler implements InvocationHandler {
+
+    /** The traced connection, never null. */
+    private final Connection connection;
+
+    /** Constructor, creates a new handler.
+     *
+     * @param theConnection the traced connection, cannot be null.
+     */
+    private ConnectionHandler(final Connection theConnection) {
+      connection = theConnection;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Object invoke(final Object proxy, final Method method,
+        final Object[] args) throws Throwable {
+      Object result = TracingDataSource.invoke(connection, method, args);
+      switch (method.getName()) {
+        case "createStatement":
+          return traceStatement(Statement.class, result, null, proxy);
+        case "prepareStatement":
+          return traceStatement(PreparedStatement.class, result,
+              (String) args[0], proxy);
+        case "prepareCall":
+          return traceStatement(CallableStatement.class, result,
+              (String) args[0], proxy);
+        default:
+          return result;
+      }
+    }
+
+    /** Wraps a statement so its executions are traced.
+     *
+     * @param type the statement interface, cannot be null.
+     * @param statement the statement, cannot be null.
+     * @param sql the prepared sql, null for plain statements.
+     * @param proxy the traced connection, cannot be null.
+     *
+     * @return the traced statement, never null.
+     */
+    private Object traceStatement(final Class<?> type, final Object statement,
+        final String sql, final Object proxy) {
+      return Proxy.newProxyInstance(TracingDataSource.class.getClassLoader(),
+          new Class<?>[] {type},
+          new StatementHandler((Statement) statement, sql, proxy));
+    }
+  }
+
+  /** Times the executions of a statement and keeps its bind parameters. */
+  private final class StatementHandler implements InvocationHandler {
+
+    /** The traced statement, never null. */
+    private final Statement statement;
+
+    /** The traced connection, never null. */
+    private final Object connection;
+
+    /** The sql of the statement, null for a plain statement that has not
+     * been given any sql yet. */
+    private String sql;
+
+    /** The bind parameters, by index or name, never null. */
+    private final Map<Object, Object> parameters = new LinkedHashMap<>();
+
+    /** Constructor, creates a new handler.
+     *
+     * @param theStatement the traced statement, cannot be null.
+     * @param theSql the prepared sql, null for plain statements.
+     * @param theConnection the traced connection, cannot be null.
+     */
+    private StatementHandler(final Statement theStatement,
+        final String theSql, final Object theConnection) {
+      statement = theStatement;
+      sql = theSql;
+      connection = theConnection;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Object invoke(final Object proxy, final Method method,
+        final Object[] args) throws Throwable {
+      String name = method.getName();
+      boolean hasSql = args != null && args.length > 0
+          && args[0] instanceof String;
+      if (name.startsWith("execute")) {
+        String executed = hasSql ? (String) args[0] : sql;
+        long start = System.nanoTime();
+        try {
+          return TracingDataSource.invoke(statement, method, args);
+        } finally {
+          if (executed != null) {
+            record(executed, System.nanoTime() - start, parameters);
+          }
+        }
+      }
+      if (name.equals("getConnection")) {
+        return connection;
+      } else if (name.equals("addBatch") && hasSql && sql == null) {
+        sql = (String) args[0];
+      } else if (name.equals("clearParameters")) {
+        parameters.clear();
+      } else if (name.startsWith("set") && args != null && args.length > 1
+          && method.getDeclaringClass() != Statement.class) {
+        parameters.put(args[0], name.equals("setNull") ? null : args[1]);
+      }
+      return TracingDataSource.invoke(statement, method, args);
+    }
+  }
+}
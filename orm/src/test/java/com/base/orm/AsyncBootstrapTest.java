@@ -0,0 +1,51 @@
+package com.base.orm;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.core.InfrastructureProxy;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import com.test.entities.EntityRepository;
+import com.test.entities.Person;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(
+    classes = {
+        Module1OrmConfiguration.class,
+        Module2OrmConfiguration.class
+    }
+)
+@TestPropertySource(properties = "orm.bootstrap.async = true")
+public class AsyncBootstrapTest {
+
+  @Autowired
+  private HibernateComponent hibernateComponent;
+
+  @Autowired
+  @Qualifier("module1.repository")
+  private EntityRepository m1Repository;
+
+  @Test
+  public void getSessionFactory_proxy() {
+    assertThat(hibernateComponent.getSessionFactory(),
+        instanceOf(InfrastructureProxy.class));
+    assertThat(((InfrastructureProxy) hibernateComponent.getSessionFactory())
+        .getWrappedObject(), is(notNullValue()));
+  }
+
+  @Test
+  public void saveEntity() {
+    Person person = m1Repository.save(new Person("p1@gmail.com", "p1"));
+
+    assertThat(m1Repository.getPerson(person.getId()).getName(), is("p1"));
+  }
+}
@@ -0,0 +1,106 @@
+package com.base.orm;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.hibernate.PropertyValueException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import com.test.entities.Module2Repository;
+import com.test.entities.Pet;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(
+    classes = {
+        Module1OrmConfiguration.class,
+        Module2OrmConfiguration.class
+    }
+)
+public class BulkWriteTest {
+
+  @Autowired
+  private ModuleHibernateComponents components;
+
+  @Autowired
+  @Qualifier("module2.repository")
+  private Module2Repository m2Repository;
+
+  @Test
+  public void bulkSave_chunks() {
+    int before = m2Repository.listPets().size();
+
+    long written = components.get("m2").bulkSave(pets("chunk", 250), 100);
+
+    assertThat(written, is(250L));
+    assertThat(m2Repository.listPets().size(), is(before + 250));
+  }
+
+  @Test
+  public void bulkSave_partitions() {
+    int before = m2Repository.listPets().size();
+
+    long written = components.get("m2").bulkSave(pets("part", 1000), 50, 4);
+
+    assertThat(written, is(1000L));
+    assertThat(m2Repository.listPets().size(), is(before + 1000));
+  }
+
+  @Test
+  public void bulkInsert_partitions() {
+    int before = m2Repository.listPets().size();
+
+    long written = components.get("m2").bulkInsert(pets("insert", 300), 64,
+        2);
+
+    assertThat(written, is(300L));
+    assertThat(m2Repository.listPets().size(), is(before + 300));
+  }
+
+  @Test
+  public void bulkSave_failedChunk() {
+    int before = m2Repository.listPets().size();
+    List<Pet> pets = new ArrayList<>(pets("ok", 10));
+    pets.add(new Pet(null));
+
+    try {
+      components.get("m2").bulkSave(pets, 10);
+      fail("The pet without nick should have failed");
+    } catch (PropertyValueException e) {
+      assertThat(m2Repository.listPets().size(), is(before + 10));
+    }
+  }
+
+  @Test
+  public void write_errorInPartition() {
+    BulkWriter writer = new BulkWriter(
+        components.get("m2").getSessionFactory(), 10, 2);
+
+    try {
+      writer.write(pets("error", 100), chunk -> {
+        if (chunk.stream()
+            .anyMatch(p -> ((Pet) p).getNick().equals("error55"))) {
+          throw new AssertionError("chunk failed");
+        }
+      });
+      fail("The error in the partition should have been thrown");
+    } catch (AssertionError e) {
+      assertThat(e.getMessage(), is("chunk failed"));
+    }
+  }
+
+  private static List<Pet> pets(final String prefix, final int count) {
+    return IntStream.range(0, count)
+        .mapToObj(i -> new Pet(prefix + i))
+        .collect(Collectors.toList());
+  }
+}
@@ -5,6 +5,10 @@ import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertThat;
 
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -28,6 +32,9 @@ import com.test.entities.PlaceService;
 )
 public class ConfigurationTest {
 
+  @Autowired
+  private ModuleHibernateComponents components;
+
   @Autowired
   @Qualifier("module1.repository")
   private EntityRepository m1Repository;
@@ -60,6 +67,22 @@ public class ConfigurationTest {
     assertThat(retrievedPlace.getService().getName(), is("tuplized service"));
   }
 
+  @Test
+  public void getPlace_cached() {
+    m1Repository.save(new Place("cached", new PlaceService("service")));
+    HibernateComponent component = components.get("m1");
+    component.evictCaches();
+    String region = "m1." + Place.class.getName();
+    long hits = component.getCacheStatistics().get(region).getHits();
+
+    m1Repository.getPlace("cached");
+    Place cachedPlace = m1Repository.getPlace("cached");
+
+    assertThat(component.getCacheStatistics().get(region).getHits(),
+        is(hits + 1));
+    assertThat(cachedPlace.getService().getName(), is("tuplized service"));
+  }
+
   @Test
   public void saveModule2() {
     Pet pet = new Pet("spot");
@@ -71,4 +94,22 @@ public class ConfigurationTest {
     assertThat(retrievedPet.getNick(), is(pet.getNick()));
     assertThat(retrievedPet.getId(), is(pet.getId()));
   }
+
+  @Test
+  public void saveModule2_pooledIds() throws SQLException {
+    Pet first = m2Repository.save(new Pet("first"));
+    Pet second = m2Repository.save(new Pet("second"));
+
+    assertThat(second.getId(), is(first.getId() + 1));
+    try (Connection connection = components.get("m2").getDataSource()
+            .getConnection();
+        Statement statement = connection.createStatement();
+        ResultSet rs = statement.executeQuery("select increment"
+            + " from information_schema.sequences"
+            + " where sequence_name = 'M2_PETS_SEQ'")) {
+      assertThat(rs.next(), is(true));
+      assertThat(rs.getLong(1),
+          is((long) ModuleIdGeneratorFactory.ALLOCATION_SIZE));
+    }
+  }
 }
@@ -0,0 +1,47 @@
+package com.base.orm;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.Collections;
+import org.junit.Test;
+
+import com.test.entities.Person;
+import com.test.entities.Place;
+import com.test.entities.PlaceService;
+
+public class ConstructorFactoriesTest {
+
+  @Test
+  public void create_protectedDefaultConstructor() {
+    EntityFactory<?> factory = ConstructorFactories.create(Person.class,
+        Collections.emptyMap());
+
+    assertThat(factory.create(), is(instanceOf(Person.class)));
+    // compiled into the entity package, not reflective
+    assertThat(factory.getClass().getName().startsWith(Person.class.getName()),
+        is(true));
+  }
+
+  @Test
+  public void create_dependencyConstructor() {
+    PlaceService service = new PlaceService("injected");
+
+    EntityFactory<?> factory = ConstructorFactories.create(Place.class,
+        Collections.singletonMap(PlaceService.class, service));
+
+    Place place = (Place) factory.create();
+    assertThat(place.getService(), is(sameInstance(service)));
+    assertThat(((Place) factory.create()).getService(),
+        is(sameInstance(service)));
+  }
+
+  @Test
+  public void create_unresolvedConstructor() {
+    assertThat(ConstructorFactories.create(Place.class,
+        Collections.emptyMap()), is(nullValue()));
+  }
+}
@@ -1,5 +1,6 @@
 package com.base.orm;
 
+import java.time.Duration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -14,7 +15,9 @@ public class Module1OrmConfiguration extends OrmConfiguration {
   protected ModulePersistenceRegistry getModuleRegistry() {
     ModulePersistenceRegistry registry = new ModulePersistenceRegistry("m1");
     registry.add(Person.class);
-    registry.add(Place.class, new PlaceFactory());
+    registry.add(Place.class, new PlaceFactory(),
+        CachePolicy.readWrite(100, Duration.ofMinutes(10)));
+    registry.addWarmUpQuery("from Person p where p.name is not null");
     return registry;
   }
 
@@ -12,6 +12,7 @@ public class Module2OrmConfiguration extends OrmConfiguration {
   protected ModulePersistenceRegistry getModuleRegistry() {
     ModulePersistenceRegistry registry = new ModulePersistenceRegistry("m2");
     registry.add(Pet.class);
+    registry.setIdStrategy(IdStrategy.POOLED_SEQUENCE);
     return registry;
   }
 
@@ -0,0 +1,124 @@
+package com.base.orm;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import com.test.entities.EntityRepository;
+import com.test.entities.Module2Repository;
+import com.test.entities.Person;
+import com.test.entities.Pet;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(
+    classes = {
+        Module1OrmConfiguration.class,
+        Module2OrmConfiguration.class
+    }
+)
+@TestPropertySource(properties = {
+    "m2.datasource.url = jdbc:h2:mem:m2",
+    "m2.datasource.driverClassName = org.h2.Driver",
+    "m2.datasource.username = sa",
+    "m2.datasource.password = "
+})
+public class ModuleDataSourceTest {
+
+  @Autowired
+  private ApplicationContext context;
+
+  @Autowired
+  private ModuleHibernateComponents components;
+
+  @Autowired
+  private Module2OrmConfiguration m2Configuration;
+
+  @Autowired
+  @Qualifier("module1.repository")
+  private EntityRepository m1Repository;
+
+  @Autowired
+  @Qualifier("module2.repository")
+  private Module2Repository m2Repository;
+
+  @Test
+  public void get_ownComponent() {
+    assertThat(components.get("m2"), is(not(sameInstance(
+        components.get("m1")))));
+    assertThat(components.get("m1").isInMemoryDatasource(), is(true));
+  }
+
+  @Test
+  public void getHibernateComponent_ownComponent() {
+    assertThat(m2Configuration.getHibernateComponent(), is(sameInstance(
+        components.get("m2"))));
+  }
+
+  @Test
+  public void getBean_sharedComponentName() {
+    assertThat(context.getBean("getHibernateComponent"), is(sameInstance(
+        (Object) components.getShared())));
+  }
+
+  @Test
+  public void getShared_everyModuleOwnDataSource() {
+    StandardEnvironment environment = new StandardEnvironment();
+    environment.getPropertySources().addFirst(new MapPropertySource("test",
+        Collections.<String, Object>singletonMap("m3.datasource.url",
+            "jdbc:h2:mem:m3;DB_CLOSE_DELAY=-1")));
+    ModulePersistenceRegistry registry = new ModulePersistenceRegistry("m3");
+    registry.add(Pet.class);
+
+    ModuleHibernateComponents own = new ModuleHibernateComponents(
+        environment, new DriverManagerDataSource("jdbc:h2:mem:unused"),
+        Collections.singleton(registry));
+    try {
+      assertThat(own.getTransactionManager(), is(sameInstance(
+          own.get("m3").getTransactionManager())));
+      try {
+        own.getShared();
+        fail("There should be no shared component");
+      } catch (IllegalStateException e) {
+        assertThat(e.getMessage().contains("own data source"), is(true));
+      }
+    } finally {
+      own.close();
+    }
+  }
+
+  @Test
+  public void save_ownDatabase() throws SQLException {
+    Pet pet = m2Repository.save(new Pet("spot"));
+    m1Repository.save(new Person("p1@gmail.com", "p1"));
+
+    assertThat(m2Repository.getPet(pet.getId()).getNick(), is("spot"));
+    try (Connection connection = DriverManager.getConnection(
+            "jdbc:h2:mem:m2", "sa", "");
+        Statement statement = connection.createStatement();
+        ResultSet rs = statement.executeQuery(
+            "select count(*) from m2_pets where nick = 'spot'")) {
+      rs.next();
+      assertThat(rs.getInt(1), is(1));
+    }
+  }
+}
@@ -0,0 +1,87 @@
+package com.base.orm;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.junit.Assert.assertThat;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import javax.management.ObjectName;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import com.test.entities.EntityRepository;
+import com.test.entities.Module2Repository;
+import com.test.entities.Person;
+import com.test.entities.Pet;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(
+    classes = {
+        Module1OrmConfiguration.class,
+        Module2OrmConfiguration.class
+    }
+)
+public class OrmMetricsTest {
+
+  @Autowired
+  private ModuleHibernateComponents components;
+
+  @Autowired
+  @Qualifier("module1.repository")
+  private EntityRepository m1Repository;
+
+  @Autowired
+  @Qualifier("module2.repository")
+  private Module2Repository m2Repository;
+
+  @Test
+  public void getMetrics_perModule() {
+    OrmMetrics metrics = components.get("m1").getMetrics();
+    Map<String, Number> before = metrics.getMetrics();
+
+    m1Repository.save(new Person("metrics@mail.com", "metrics"));
+    m2Repository.save(new Pet("metrics"));
+    m1Repository.listPersons();
+
+    Map<String, Number> after = metrics.getMetrics();
+    assertThat(delta(before, after, "m1.entities.inserted"), is(1L));
+    assertThat(delta(before, after, "m2.entities.inserted"), is(1L));
+    assertThat(delta(before, after, "orm.queries.executed") >= 1, is(true));
+    assertThat(delta(before, after, "orm.connections.borrow.count") >= 3,
+        is(true));
+    assertThat(after.get("pool.active"), is(notNullValue()));
+  }
+
+  @Test
+  public void registerMBean() throws Exception {
+    Object borrows = ManagementFactory.getPlatformMBeanServer().getAttribute(
+        new ObjectName("com.base.orm:type=OrmMetrics,name=datasource"),
+        "orm.connections.borrow.count");
+
+    assertThat(borrows, is(notNullValue()));
+  }
+
+  @Test
+  public void addReporter() throws InterruptedException {
+    CountDownLatch reported = new CountDownLatch(1);
+
+    components.get("m1").getMetrics().addReporter(
+        metrics -> reported.countDown(), Duration.ofMillis(10));
+
+    assertThat(reported.await(1, TimeUnit.SECONDS), is(true));
+  }
+
+  private static long delta(final Map<String, Number> before,
+      final Map<String, Number> after, final String name) {
+    return after.getOrDefault(name, 0L).longValue()
+        - before.getOrDefault(name, 0L).longValue();
+  }
+}
@@ -0,0 +1,76 @@
+package com.base.orm;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+import org.hibernate.Session;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import com.test.entities.Pet;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(
+    classes = {
+        Module1OrmConfiguration.class,
+        Module2OrmConfiguration.class
+    }
+)
+public class QueryStreamsTest {
+
+  @Autowired
+  private ModuleHibernateComponents components;
+
+  @Test
+  public void stream_evictsConsumed() {
+    HibernateComponent m2 = components.get("m2");
+    List<Pet> pets = new ArrayList<>();
+    for (int i = 0; i < 25; i++) {
+      pets.add(new Pet("streamed" + i));
+    }
+    m2.bulkSave(pets, 10);
+
+    try (Session session = m2.getSessionFactory().openSession();
+        Stream<Pet> stream = QueryStreams.stream(session,
+            session.createQuery("from Pet where nick like 'streamed%'",
+                Pet.class), 5)) {
+      List<Pet> consumed = new ArrayList<>();
+      stream.forEach(pet -> {
+        consumed.forEach(previous ->
+            assertThat(session.contains(previous), is(false)));
+        assertThat(session.contains(pet), is(true));
+        consumed.add(pet);
+      });
+
+      assertThat(consumed.size(), is(25));
+    }
+  }
+
+  @Test
+  public void stream_entity() {
+    HibernateComponent m2 = components.get("m2");
+    m2.bulkSave(Collections.singletonList(new Pet("whole")), 1);
+
+    try (Session session = m2.getSessionFactory().openSession();
+        Stream<Pet> stream = QueryStreams.stream(session, Pet.class, 100)) {
+      assertThat(stream.anyMatch(pet -> pet.getNick().equals("whole")),
+          is(true));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void stream_negativeFetchSize() {
+    HibernateComponent m2 = components.get("m2");
+
+    try (Session session = m2.getSessionFactory().openSession()) {
+      QueryStreams.stream(session, Pet.class, -1);
+    }
+  }
+}
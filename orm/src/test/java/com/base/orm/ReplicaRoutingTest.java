@@ -0,0 +1,146 @@
+package com.base.orm;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import javax.sql.DataSource;
+import org.hibernate.SessionFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.test.entities.Person;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(
+    classes = {
+        Module1OrmConfiguration.class,
+        Module2OrmConfiguration.class
+    }
+)
+@TestPropertySource(properties = {
+    "datasource.replicas[0].url = " + ReplicaRoutingTest.REPLICA,
+    "datasource.replicas[0].driverClassName = org.h2.Driver",
+    "datasource.replicas[0].username = sa",
+    "datasource.replicas[0].password = "
+})
+public class ReplicaRoutingTest {
+
+  static final String REPLICA = "jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1";
+
+  @Autowired
+  private DataSource dataSource;
+
+  @Autowired
+  private HibernateComponent hibernateComponent;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  @Before
+  public void setUp() throws SQLException {
+    try (Connection connection = DriverManager.getConnection(REPLICA, "sa",
+            "");
+        Statement statement = connection.createStatement()) {
+      statement.execute("create table if not exists m1_persons (id bigint"
+          + " primary key, e_mail varchar(255), name varchar(255),"
+          + " home_code varchar(255))");
+      statement.execute("create table if not exists m1_places (code"
+          + " varchar(255) primary key)");
+      statement.execute("delete from m1_persons");
+      statement.execute("insert into m1_persons (id, e_mail, name)"
+          + " values (1, 'r@mail.com', 'replica')");
+    }
+    ReplicaRoutingDataSource.releasePin();
+  }
+
+  @After
+  public void tearDown() {
+    ReplicaRoutingDataSource.releasePin();
+  }
+
+  @Test
+  public void getDataSource_routing() {
+    assertThat(dataSource, instanceOf(ReplicaRoutingDataSource.class));
+  }
+
+  @Test
+  public void readOnly_replica() {
+    assertThat(names(true), is(new String[] {"replica"}));
+  }
+
+  @Test
+  public void readWrite_primary() {
+    save("primary");
+    ReplicaRoutingDataSource.releasePin();
+
+    assertThat(names(false), is(new String[] {"primary"}));
+    ReplicaRoutingDataSource.releasePin();
+    assertThat(names(true), is(new String[] {"replica"}));
+  }
+
+  @Test
+  public void readOnly_pinnedAfterWrite() {
+    save("primary");
+
+    assertThat(names(true), is(new String[] {"primary"}));
+    ReplicaRoutingDataSource.releasePin();
+    assertThat(names(true), is(new String[] {"replica"}));
+  }
+
+  @Test
+  public void getMetrics_replicaPools() {
+    OrmMetrics metrics = hibernateComponent.getMetrics();
+    long borrows = metrics.getMetrics().get("orm.connections.borrow.count")
+        .longValue();
+
+    names(true);
+
+    Map<String, Number> after = metrics.getMetrics();
+    assertThat(after.get("orm.connections.borrow.count").longValue(),
+        is(borrows + 1));
+    assertThat(after.get("pool.replica1.size").intValue() >= 1, is(true));
+    assertThat(after.get("pool.size").intValue(), is(
+        after.get("pool.primary.size").intValue()
+        + after.get("pool.replica1.size").intValue()));
+  }
+
+  private void save(final String name) {
+    TransactionTemplate template = new TransactionTemplate(
+        transactionManager);
+    template.execute(status -> {
+      SessionFactory sessionFactory = hibernateComponent.getSessionFactory();
+      sessionFactory.getCurrentSession()
+          .createQuery("delete from Person").executeUpdate();
+      sessionFactory.getCurrentSession()
+          .save(new Person(name + "@mail.com", name));
+      return null;
+    });
+  }
+
+  @SuppressWarnings({"unchecked", "deprecated"})
+  private String[] names(final boolean readOnly) {
+    TransactionTemplate template = new TransactionTemplate(
+        transactionManager);
+    template.setReadOnly(readOnly);
+    return template.execute(status -> {
+      List<Person> persons = hibernateComponent.getSessionFactory()
+          .getCurrentSession().createCriteria(Person.class).list();
+      return persons.stream().map(Person::getName).toArray(String[]::new);
+    });
+  }
+}
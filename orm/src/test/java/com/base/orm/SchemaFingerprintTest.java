@@ -0,0 +1,96 @@
+package com.base.orm;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.hibernate.tool.schema.spi.SchemaManagementException;
+import org.junit.Test;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import com.test.entities.Pet;
+
+public class SchemaFingerprintTest {
+
+  private final DriverManagerDataSource dataSource =
+      new DriverManagerDataSource(
+          "jdbc:h2:mem:fingerprint;DB_CLOSE_DELAY=-1", "sa", "");
+
+  @Test
+  public void validate_onlyChangedSchema() throws SQLException {
+    bootstrap("create");
+    HibernateComponent validated = bootstrap("validate");
+    assertThat(query("select fingerprint from orm_schema_fingerprint"),
+        is(MetadataFingerprint.ofSchema(validated.getMetadata())));
+
+    // a schema that does not match the entities, but the fingerprint does
+    execute("alter table m2_pets alter column nick rename to name");
+    bootstrap("validate");
+
+    execute("update orm_schema_fingerprint set fingerprint = 'changed'");
+    try {
+      bootstrap("validate");
+      throw new AssertionError("The changed schema was not validated");
+    } catch (SchemaManagementException e) {
+      assertThat(e.getMessage().contains("nick"), is(true));
+    }
+  }
+
+  @Test
+  public void ofSchema_changes() {
+    String pets = MetadataFingerprint.ofSchema(
+        bootstrap("none", "m2").getMetadata());
+
+    assertThat(MetadataFingerprint.ofSchema(
+        bootstrap("none", "m2").getMetadata()), is(pets));
+    assertThat(MetadataFingerprint.ofSchema(
+        bootstrap("none", "m3").getMetadata()), is(not(pets)));
+  }
+
+  private HibernateComponent bootstrap(final String hbm2ddl) {
+    return bootstrap(hbm2ddl, "m2");
+  }
+
+  private HibernateComponent bootstrap(final String hbm2ddl,
+      final String module) {
+    Map<String, Object> properties = new HashMap<>();
+    properties.put("hibernate.hbm2ddl.auto", hbm2ddl);
+    properties.put("hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+    properties.put("hibernate.id.new_generator_mappings", "false");
+    properties.put(HibernateComponent.SCHEMA_FINGERPRINT, "true");
+    StandardEnvironment environment = new StandardEnvironment();
+    environment.getPropertySources().addFirst(
+        new MapPropertySource("test", properties));
+    ModulePersistenceRegistry registry = new ModulePersistenceRegistry(module);
+    registry.add(Pet.class);
+    HibernateComponent component = new HibernateComponent(environment,
+        dataSource, Collections.singleton(registry));
+    component.getSessionFactory().close();
+    return component;
+  }
+
+  private String query(final String sql) throws SQLException {
+    try (Connection connection = dataSource.getConnection();
+        Statement statement = connection.createStatement();
+        ResultSet result = statement.executeQuery(sql)) {
+      result.next();
+      return result.getString(1);
+    }
+  }
+
+  private void execute(final String sql) throws SQLException {
+    try (Connection connection = dataSource.getConnection();
+        Statement statement = connection.createStatement()) {
+      statement.execute(sql);
+    }
+  }
+}
@@ -0,0 +1,73 @@
+package com.base.orm;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+import javax.sql.DataSource;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import com.test.entities.EntityRepository;
+import com.test.entities.Module2Repository;
+import com.test.entities.Person;
+import com.test.entities.Pet;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(
+    classes = {
+        Module1OrmConfiguration.class,
+        Module2OrmConfiguration.class
+    }
+)
+@TestPropertySource(properties = {
+    "orm.tracing.enabled = true",
+    "orm.tracing.slow_query_millis = 0"
+})
+public class TracingDataSourceTest {
+
+  @Autowired
+  private DataSource dataSource;
+
+  @Autowired
+  @Qualifier("module1.repository")
+  private EntityRepository m1Repository;
+
+  @Autowired
+  @Qualifier("module2.repository")
+  private Module2Repository m2Repository;
+
+  @Test
+  public void fingerprint() {
+    assertThat(TracingDataSource.fingerprint("SELECT name FROM m1_persons\n"
+        + "  WHERE e_mail = 'a@b.com' AND id IN (1, 2,3) and home_code=12.5"),
+        is("select name from m1_persons where e_mail = ? and id in (?)"
+        + " and home_code=?"));
+  }
+
+  @Test
+  public void getStatistics_perModule() {
+    assertThat(dataSource, instanceOf(TracingDataSource.class));
+
+    m1Repository.save(new Person("tracing@mail.com", "tracing"));
+    m2Repository.save(new Pet("tracing"));
+
+    List<StatementStatistics> statistics =
+        ((TracingDataSource) dataSource).getStatistics();
+    assertThat(hasInsert(statistics, "m1", "insert into m1_persons"),
+        is(true));
+    assertThat(hasInsert(statistics, "m2", "insert into m2_pets"), is(true));
+  }
+
+  private boolean hasInsert(final List<StatementStatistics> statistics,
+      final String module, final String prefix) {
+    return statistics.stream().anyMatch(s -> module.equals(s.getModule())
+        && s.getFingerprint().startsWith(prefix) && s.getCount() > 0);
+  }
+}
@@ -0,0 +1,70 @@
+package com.base.orm;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Collections;
+import org.apache.tomcat.jdbc.pool.DataSourceProxy;
+import org.hibernate.stat.Statistics;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import com.test.entities.Pet;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(
+    classes = {
+        Module1OrmConfiguration.class,
+        Module2OrmConfiguration.class
+    }
+)
+@TestPropertySource(properties = {
+    "orm.warmup.enabled = true",
+    "orm.warmup.iterations = 3",
+    "datasource.initialSize = 4"
+})
+public class WarmUpTest {
+
+  @Autowired
+  private ModuleHibernateComponents components;
+
+  @Test
+  public void warmUp_onStartup() {
+    HibernateComponent component = components.get("m1");
+    Statistics statistics = component.getSessionFactory().getStatistics();
+
+    assertThat(statistics.getQueryStatistics(
+        "from Person p where p.name is not null").getExecutionCount(),
+        is(3L));
+    assertThat(statistics.getQueryStatistics("from " + Pet.class.getName())
+        .getExecutionCount(), is(3L));
+
+    DataSourceProxy pool = OrmMetrics.findPools(component.getDataSource())
+        .get(0);
+    assertThat(pool.getSize() >= 4, is(true));
+  }
+
+  @Test
+  public void warmUp_failedQueries() {
+    ModulePersistenceRegistry registry = new ModulePersistenceRegistry("m2");
+    registry.add(Pet.class);
+    registry.addWarmUpQuery("from NotAnEntity");
+    // there is no schema, every entity load fails in the database
+    HibernateComponent component = new HibernateComponent(
+        new StandardEnvironment(), new DriverManagerDataSource(
+            "jdbc:h2:mem:warmup;DB_CLOSE_DELAY=-1", "sa", ""),
+        Collections.singleton(registry));
+
+    try {
+      component.warmUp(2, 1);
+    } finally {
+      component.getSessionFactory().close();
+    }
+  }
+}
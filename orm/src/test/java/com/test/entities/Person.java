@@ -5,6 +5,7 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.ManyToOne;
 import javax.persistence.Table;
 
 @Entity
@@ -20,6 +21,9 @@ public class Person {
   @Column(nullable = false)
   private String name;
 
+  @ManyToOne
+  private Place home;
+
   protected Person() {}
 
   public Person(final String theEmail, final String theName) {
@@ -27,6 +31,12 @@ public class Person {
     name = theName;
   }
 
+  public Person(final String theEmail, final String theName,
+      final Place theHome) {
+    this(theEmail, theName);
+    home = theHome;
+  }
+
   public Long getId() {
     return id;
   }
@@ -38,4 +48,8 @@ public class Person {
   public String getName() {
     return name;
   }
+
+  public Place getHome() {
+    return home;
+  }
 }
@@ -0,0 +1,222 @@
+package com.base.web;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** A filter that limits the number of requests processed at the same time.
+ *
+ * The requests beyond the limit wait in a bounded queue for some time. When
+ * the queue is full, or the wait times out, the request is answered right
+ * away with a 503 and a Retry-After header, so overload turns into fast
+ * rejections instead of threads piling up in the connection pool and
+ * timing out.
+ * <br>
+ * The limit is meant to match the capacity of the connection pool, see
+ * {@link com.base.web.configuration.JettyBootConfiguration}. The excluded
+ * paths, like the readiness and metrics endpoints, are always served, so a
+ * node that sheds load is not taken out of rotation.
+ */
+public final class AdmissionControlFilter implements Filter {
+
+  /** The logger. */
+  private static Logger log = LoggerFactory.getLogger(
+      AdmissionControlFilter.class);
+
+  /** The greatest number of requests in process. */
+  private final int maxConcurrent;
+
+  /** The permits of the requests in process, never null. */
+  private final Semaphore permits;
+
+  /** The greatest number of waiting requests. */
+  private final int maxQueued;
+
+  /** The longest time a request waits, in milliseconds. */
+  private final long queueTimeout;
+
+  /** The value of the Retry-After header of the rejections, in seconds. */
+  private final String retryAfter;
+
+  /** The paths within the context that are never limited, never null. */
+  private final Set<String> excludedPaths;
+
+  /** The number of waiting requests, never null. */
+  private final AtomicInteger queued = new AtomicInteger();
+
+  /** The number of admitted requests, never null. */
+  private final LongAdder admitted = new LongAdder();
+
+  /** The number of rejected requests, never null. */
+  private final LongAdder rejected = new LongAdder();
+
+  /** Constructor, creates a new filter.
+   *
+   * @param theMaxConcurrent the greatest number of requests in process, it
+   * must be greater than 0.
+   * @param theMaxQueued the greatest number of waiting requests, 0 or more.
+   * @param theQueueTimeout the longest time a request waits, in
+   * milliseconds, 0 or more.
+   * @param retryAfterSeconds the seconds clients are told to wait before
+   * retrying a rejected request, 0 or more.
+   */
+  public AdmissionControlFilter(final int theMaxConcurrent,
+      final int theMaxQueued, final long theQueueTimeout,
+      final int retryAfterSeconds) {
+    this(theMaxConcurrent, theMaxQueued, theQueueTimeout, retryAfterSeconds,
+        Collections.emptySet());
+  }
+
+  /** Constructor, creates a new filter that does not limit some paths.
+   *
+   * @param theMaxConcurrent the greatest number of requests in process, it
+   * must be greater than 0.
+   * @param theMaxQueued the greatest number of waiting requests, 0 or more.
+   * @param theQueueTimeout the longest time a request waits, in
+   * milliseconds, 0 or more.
+   * @param retryAfterSeconds the seconds clients are told to wait before
+   * retrying a rejected request, 0 or more.
+   * @param theExcludedPaths the paths within the context, like '/ready',
+   * that are never limited. Cannot be null.
+   */
+  public AdmissionControlFilter(final int theMaxConcurrent,
+      final int theMaxQueued, final long theQueueTimeout,
+      final int retryAfterSeconds, final Set<String> theExcludedPaths) {
+    Validate.notNull(theExcludedPaths, "The excluded paths cannot be null.");
+    Validate.isTrue(theMaxConcurrent > 0, "The limit must be positive.");
+    Validate.isTrue(theMaxQueued >= 0, "The queue cannot be negative.");
+    Validate.isTrue(theQueueTimeout >= 0, "The timeout cannot be negative.");
+    Validate.isTrue(retryAfterSeconds >= 0,
+        "The retry after cannot be negative.");
+    maxConcurrent = theMaxConcurrent;
+    permits = new Semaphore(maxConcurrent, true);
+    maxQueued = theMaxQueued;
+    queueTimeout = theQueueTimeout;
+    retryAfter = String.valueOf(retryAfterSeconds);
+    excludedPaths = Collections.unmodifiableSet(
+        new HashSet<>(theExcludedPaths));
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void init(final FilterConfig filterConfig) {
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void doFilter(final ServletRequest request,
+      final ServletResponse response, final FilterChain chain)
+      throws IOException, ServletException {
+    if (isExcluded((HttpServletRequest) request)) {
+      chain.doFilter(request, response);
+      return;
+    }
+    if (!admit()) {
+      rejected.increment();
+      HttpServletResponse httpResponse = (HttpServletResponse) response;
+      httpResponse.setHeader("Retry-After", retryAfter);
+      httpResponse.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+      return;
+    }
+    admitted.increment();
+    try {
+      chain.doFilter(request, response);
+    } finally {
+      permits.release();
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void destroy() {
+  }
+
+  /** Returns the number of requests in process.
+   *
+   * @return the count.
+   */
+  public int getActive() {
+    return maxConcurrent - permits.availablePermits();
+  }
+
+  /** Returns the number of waiting requests.
+   *
+   * @return the count.
+   */
+  public int getQueued() {
+    return queued.get();
+  }
+
+  /** Returns the number of admitted requests since the filter was created.
+   *
+   * @return the count.
+   */
+  public long getAdmitted() {
+    return admitted.sum();
+  }
+
+  /** Returns the number of rejected requests since the filter was created.
+   *
+   * @return the count.
+   */
+  public long getRejected() {
+    return rejected.sum();
+  }
+
+  /** Checks if a request is for one of the excluded paths.
+   *
+   * @param request the request, cannot be null.
+   *
+   * @return true if the request is never limited.
+   */
+  private boolean isExcluded(final HttpServletRequest request) {
+    if (excludedPaths.isEmpty()) {
+      return false;
+    }
+    String path = request.getRequestURI().substring(
+        request.getContextPath().length());
+    return excludedPaths.contains(path);
+  }
+
+  /** Takes a permit for the current request, waiting in the queue if there
+   * are none left.
+   *
+   * @return true if the request got a permit, false if the queue is full or
+   * the wait timed out.
+   */
+  private boolean admit() {
+    // does not barge ahead of the waiting requests.
+    if (!permits.hasQueuedThreads() && permits.tryAcquire()) {
+      return true;
+    }
+    if (queued.incrementAndGet() > maxQueued) {
+      queued.decrementAndGet();
+      return false;
+    }
+    try {
+      return permits.tryAcquire(queueTimeout, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      log.debug("Interrupted while waiting for admission", e);
+      Thread.currentThread().interrupt();
+      return false;
+    } finally {
+      queued.decrementAndGet();
+    }
+  }
+}
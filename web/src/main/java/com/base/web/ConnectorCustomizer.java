@@ -0,0 +1,127 @@
+package com.base.web;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Executor;
+import org.apache.commons.lang3.Validate;
+import org.eclipse.jetty.io.ArrayByteBufferPool;
+import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.server.ConnectionFactory;
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlets.gzip.GzipHandler;
+import org.springframework.boot.context.embedded.Compression;
+import org.springframework.boot.context.embedded.jetty.JettyServerCustomizer;
+
+/** Applies a {@link ConnectorProperties} profile to the connectors and
+ * handler of a jetty server.
+ *
+ * The acceptors, selectors and buffer pool of a jetty connector can only be
+ * given when it is created, so each {@link ServerConnector} is replaced by a
+ * new one on the same host and port, with the same connection factories.
+ * The same goes for the executor that runs the requests, like the one of
+ * {@link VirtualThreads}.
+ * <br>
+ * The compression wraps the server handler in a jetty {@link GzipHandler}.
+ * The Spring Boot container factory compression is not used, it needs a
+ * newer jetty 9.2 than this one.
+ */
+public final class ConnectorCustomizer implements JettyServerCustomizer {
+
+  /** The connector profile, never null. */
+  private final ConnectorProperties properties;
+
+  /** The executor that runs the requests, null for the server thread pool.
+   */
+  private final Executor executor;
+
+  /** Constructor, creates a new customizer that runs the requests in the
+   * server thread pool.
+   *
+   * @param theProperties the connector profile, cannot be null.
+   */
+  public ConnectorCustomizer(final ConnectorProperties theProperties) {
+    this(theProperties, null);
+  }
+
+  /** Constructor, creates a new customizer.
+   *
+   * @param theProperties the connector profile, cannot be null.
+   * @param theExecutor the executor that runs the requests, and the
+   * acceptors and selectors of the connectors. Null for the server thread
+   * pool.
+   */
+  public ConnectorCustomizer(final ConnectorProperties theProperties,
+      final Executor theExecutor) {
+    Validate.notNull(theProperties, "The connector profile cannot be null.");
+    properties = theProperties;
+    executor = theExecutor;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void customize(final Server server) {
+    ByteBufferPool bufferPool = new ArrayByteBufferPool(
+        properties.getBufferPoolMinSize(),
+        properties.getBufferPoolIncrement(),
+        properties.getBufferPoolMaxSize());
+    List<Connector> connectors = new ArrayList<>();
+    for (Connector connector : server.getConnectors()) {
+      if (connector instanceof ServerConnector) {
+        connectors.add(rebuild(server, (ServerConnector) connector,
+            bufferPool));
+      } else {
+        connectors.add(connector);
+      }
+    }
+    server.setConnectors(connectors.toArray(new Connector[0]));
+
+    Compression compression = properties.getCompression();
+    if (compression.getEnabled()) {
+      GzipHandler gzip = new GzipHandler();
+      gzip.setMinGzipSize(compression.getMinResponseSize());
+      gzip.setMimeTypes(new HashSet<>(
+          Arrays.asList(compression.getMimeTypes())));
+      if (compression.getExcludedUserAgents() != null) {
+        gzip.setExcluded(new HashSet<>(
+            Arrays.asList(compression.getExcludedUserAgents())));
+      }
+      gzip.setHandler(server.getHandler());
+      server.setHandler(gzip);
+    }
+  }
+
+  /** Creates a connector like another one, but with the profile settings.
+   *
+   * @param server the jetty server, cannot be null.
+   * @param connector the connector to replace, cannot be null.
+   * @param bufferPool the buffer pool, cannot be null.
+   *
+   * @return the new connector, never null.
+   */
+  private ServerConnector rebuild(final Server server,
+      final ServerConnector connector, final ByteBufferPool bufferPool) {
+    HttpConnectionFactory http = connector.getConnectionFactory(
+        HttpConnectionFactory.class);
+    if (http != null) {
+      HttpConfiguration configuration = http.getHttpConfiguration();
+      configuration.setOutputBufferSize(properties.getOutputBufferSize());
+      configuration.setRequestHeaderSize(properties.getRequestHeaderSize());
+    }
+    ServerConnector result = new ServerConnector(server, executor, null,
+        bufferPool, properties.getAcceptors(), properties.getSelectors(),
+        connector.getConnectionFactories().toArray(
+            new ConnectionFactory[0]));
+    result.setHost(connector.getHost());
+    result.setPort(connector.getPort());
+    result.setIdleTimeout(connector.getIdleTimeout());
+    result.setReuseAddress(connector.getReuseAddress());
+    result.setAcceptQueueSize(properties.getAcceptQueueSize());
+    return result;
+  }
+}
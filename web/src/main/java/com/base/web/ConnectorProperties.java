@@ -0,0 +1,206 @@
+package com.base.web;
+
+import org.springframework.boot.context.embedded.Compression;
+
+/** The profile of the jetty http connectors.
+ *
+ * This is initialized from the properties that start with 'jetty.connector',
+ * for example jetty.connector.selectors or
+ * jetty.connector.compression.minResponseSize. The defaults are the jetty
+ * ones, so an empty profile leaves the connectors as jetty builds them.
+ *
+ * @see ConnectorCustomizer
+ */
+public class ConnectorProperties {
+
+  /** The jetty default output buffer size, in bytes. */
+  private static final int DEFAULT_OUTPUT_BUFFER_SIZE = 32 * 1024;
+
+  /** The jetty default request header size, in bytes. */
+  private static final int DEFAULT_REQUEST_HEADER_SIZE = 8 * 1024;
+
+  /** The jetty default size step of the pooled buffers, in bytes. */
+  private static final int DEFAULT_BUFFER_POOL_INCREMENT = 1024;
+
+  /** The jetty default size of the greatest pooled buffer, in bytes. */
+  private static final int DEFAULT_BUFFER_POOL_MAX_SIZE = 64 * 1024;
+
+  /** The number of threads that accept connections, -1 to let jetty pick
+   * it from the number of processors. */
+  private int acceptors = -1;
+
+  /** The number of threads that select the connections with io ready, -1 to
+   * let jetty pick it from the number of processors. */
+  private int selectors = -1;
+
+  /** The length of the queue of connections waiting to be accepted, 0 for
+   * the operating system default. */
+  private int acceptQueueSize = 0;
+
+  /** The size of the buffer of each response, in bytes. Responses that fit
+   * in it are sent with a content length instead of chunked. */
+  private int outputBufferSize = DEFAULT_OUTPUT_BUFFER_SIZE;
+
+  /** The greatest size of the request headers, in bytes. */
+  private int requestHeaderSize = DEFAULT_REQUEST_HEADER_SIZE;
+
+  /** The size of the smallest pooled buffer, in bytes. */
+  private int bufferPoolMinSize = 0;
+
+  /** The size step between the pooled buffers, in bytes. */
+  private int bufferPoolIncrement = DEFAULT_BUFFER_POOL_INCREMENT;
+
+  /** The size of the greatest pooled buffer, in bytes. Bigger buffers are
+   * allocated on each use and never kept. */
+  private int bufferPoolMaxSize = DEFAULT_BUFFER_POOL_MAX_SIZE;
+
+  /** The gzip compression of the responses, never null. */
+  private Compression compression = new Compression();
+
+  /** Returns the number of threads that accept connections.
+   *
+   * @return the acceptors, -1 to let jetty pick them.
+   */
+  public int getAcceptors() {
+    return acceptors;
+  }
+
+  /** Sets the number of threads that accept connections.
+   *
+   * @param theAcceptors the acceptors, -1 to let jetty pick them.
+   */
+  public void setAcceptors(final int theAcceptors) {
+    acceptors = theAcceptors;
+  }
+
+  /** Returns the number of threads that select the connections with io
+   * ready.
+   *
+   * @return the selectors, -1 to let jetty pick them.
+   */
+  public int getSelectors() {
+    return selectors;
+  }
+
+  /** Sets the number of threads that select the connections with io ready.
+   *
+   * @param theSelectors the selectors, -1 to let jetty pick them.
+   */
+  public void setSelectors(final int theSelectors) {
+    selectors = theSelectors;
+  }
+
+  /** Returns the length of the queue of connections waiting to be accepted.
+   *
+   * @return the queue length, 0 for the operating system default.
+   */
+  public int getAcceptQueueSize() {
+    return acceptQueueSize;
+  }
+
+  /** Sets the length of the queue of connections waiting to be accepted.
+   *
+   * @param theAcceptQueueSize the queue length, 0 for the operating system
+   * default.
+   */
+  public void setAcceptQueueSize(final int theAcceptQueueSize) {
+    acceptQueueSize = theAcceptQueueSize;
+  }
+
+  /** Returns the size of the buffer of each response.
+   *
+   * @return the size in bytes.
+   */
+  public int getOutputBufferSize() {
+    return outputBufferSize;
+  }
+
+  /** Sets the size of the buffer of each response.
+   *
+   * @param theOutputBufferSize the size in bytes.
+   */
+  public void setOutputBufferSize(final int theOutputBufferSize) {
+    outputBufferSize = theOutputBufferSize;
+  }
+
+  /** Returns the greatest size of the request headers.
+   *
+   * @return the size in bytes.
+   */
+  public int getRequestHeaderSize() {
+    return requestHeaderSize;
+  }
+
+  /** Sets the greatest size of the request headers.
+   *
+   * @param theRequestHeaderSize the size in bytes.
+   */
+  public void setRequestHeaderSize(final int theRequestHeaderSize) {
+    requestHeaderSize = theRequestHeaderSize;
+  }
+
+  /** Returns the size of the smallest pooled buffer.
+   *
+   * @return the size in bytes.
+   */
+  public int getBufferPoolMinSize() {
+    return bufferPoolMinSize;
+  }
+
+  /** Sets the size of the smallest pooled buffer.
+   *
+   * @param theBufferPoolMinSize the size in bytes.
+   */
+  public void setBufferPoolMinSize(final int theBufferPoolMinSize) {
+    bufferPoolMinSize = theBufferPoolMinSize;
+  }
+
+  /** Returns the size step between the pooled buffers.
+   *
+   * @return the size in bytes.
+   */
+  public int getBufferPoolIncrement() {
+    return bufferPoolIncrement;
+  }
+
+  /** Sets the size step between the pooled buffers.
+   *
+   * @param theBufferPoolIncrement the size in bytes, greater than 0.
+   */
+  public void setBufferPoolIncrement(final int theBufferPoolIncrement) {
+    bufferPoolIncrement = theBufferPoolIncrement;
+  }
+
+  /** Returns the size of the greatest pooled buffer.
+   *
+   * @return the size in bytes.
+   */
+  public int getBufferPoolMaxSize() {
+    return bufferPoolMaxSize;
+  }
+
+  /** Sets the size of the greatest pooled buffer. Bigger buffers are
+   * allocated on each use and never kept.
+   *
+   * @param theBufferPoolMaxSize the size in bytes.
+   */
+  public void setBufferPoolMaxSize(final int theBufferPoolMaxSize) {
+    bufferPoolMaxSize = theBufferPoolMaxSize;
+  }
+
+  /** Returns the gzip compression of the responses, disabled by default.
+   *
+   * @return the compression, never null.
+   */
+  public Compression getCompression() {
+    return compression;
+  }
+
+  /** Sets the gzip compression of the responses.
+   *
+   * @param theCompression the compression, cannot be null.
+   */
+  public void setCompression(final Compression theCompression) {
+    compression = theCompression;
+  }
+}
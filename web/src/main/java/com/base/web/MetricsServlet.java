@@ -0,0 +1,40 @@
+package com.base.web;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.apache.commons.lang3.Validate;
+
+/** Serves the {@link WebMetrics} in the prometheus text format, for a
+ * scraper to poll.
+ */
+public final class MetricsServlet extends HttpServlet {
+
+  /** The serial version. */
+  private static final long serialVersionUID = 1L;
+
+  /** The metrics, never null. */
+  private final transient WebMetrics metrics;
+
+  /** Constructor, creates a new servlet.
+   *
+   * @param theMetrics the served metrics, cannot be null.
+   */
+  public MetricsServlet(final WebMetrics theMetrics) {
+    Validate.notNull(theMetrics, "The metrics cannot be null.");
+    metrics = theMetrics;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected void doGet(final HttpServletRequest request,
+      final HttpServletResponse response) throws IOException {
+    response.setContentType("text/plain; version=0.0.4; charset=utf-8");
+    response.setHeader("Cache-Control", "no-cache");
+    PrintWriter out = response.getWriter();
+    metrics.write(out);
+    out.flush();
+  }
+}
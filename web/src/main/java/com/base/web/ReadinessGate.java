@@ -0,0 +1,46 @@
+package com.base.web;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.embedded
+    .EmbeddedServletContainerInitializedEvent;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextClosedEvent;
+
+/** Whether the application is ready to take traffic, for the load balancer
+ * to probe through the {@link ReadinessServlet}.
+ *
+ * It opens when the embedded jetty starts, that is after every singleton is
+ * created and warmed up, and closes when the application context starts to
+ * close, so the load balancer stops sending requests before the connectors
+ * do.
+ */
+public final class ReadinessGate
+    implements ApplicationListener<ApplicationEvent> {
+
+  /** The logger. */
+  private static Logger log = LoggerFactory.getLogger(ReadinessGate.class);
+
+  /** Whether the application takes traffic. */
+  private volatile boolean ready;
+
+  /** {@inheritDoc} */
+  @Override
+  public void onApplicationEvent(final ApplicationEvent event) {
+    if (event instanceof EmbeddedServletContainerInitializedEvent) {
+      ready = true;
+      log.info("Ready to take traffic");
+    } else if (event instanceof ContextClosedEvent) {
+      ready = false;
+    }
+  }
+
+  /** Checks if the application is ready to take traffic.
+   *
+   * @return true once jetty started, until the application closes.
+   */
+  public boolean isReady() {
+    return ready;
+  }
+}
@@ -0,0 +1,44 @@
+package com.base.web;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.apache.commons.lang3.Validate;
+
+/** Serves the state of a {@link ReadinessGate}: 200 when the application is
+ * ready to take traffic, 503 otherwise.
+ */
+public final class ReadinessServlet extends HttpServlet {
+
+  /** The serial version. */
+  private static final long serialVersionUID = 1L;
+
+  /** The readiness, never null. */
+  private final transient ReadinessGate gate;
+
+  /** Constructor, creates a new servlet.
+   *
+   * @param theGate the served readiness, cannot be null.
+   */
+  public ReadinessServlet(final ReadinessGate theGate) {
+    Validate.notNull(theGate, "The readiness gate cannot be null.");
+    gate = theGate;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected void doGet(final HttpServletRequest request,
+      final HttpServletResponse response) throws IOException {
+    boolean ready = gate.isReady();
+    if (!ready) {
+      response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+    }
+    response.setContentType("text/plain; charset=utf-8");
+    response.setHeader("Cache-Control", "no-cache");
+    PrintWriter out = response.getWriter();
+    out.print(ready ? "ready\n" : "not ready\n");
+    out.flush();
+  }
+}
@@ -0,0 +1,109 @@
+package com.base.web;
+
+import java.io.IOException;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+
+/** A filter that records the count, status and latency of the requests of
+ * each route in a {@link WebMetrics}.
+ *
+ * The route is the request method and the Spring MVC pattern that handled
+ * it, like 'GET /persons/{id}', or the servlet path when there is no
+ * pattern. Requests that go async are recorded when they complete.
+ */
+public final class RequestMetricsFilter implements Filter {
+
+  /** The request attribute where Spring MVC keeps the pattern that matched
+   * the request. */
+  private static final String BEST_MATCHING_PATTERN =
+      "org.springframework.web.servlet.HandlerMapping.bestMatchingPattern";
+
+  /** The metrics, never null. */
+  private final WebMetrics metrics;
+
+  /** Constructor, creates a new filter.
+   *
+   * @param theMetrics the metrics the requests are recorded in, cannot be
+   * null.
+   */
+  public RequestMetricsFilter(final WebMetrics theMetrics) {
+    Validate.notNull(theMetrics, "The metrics cannot be null.");
+    metrics = theMetrics;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void init(final FilterConfig filterConfig) {
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void doFilter(final ServletRequest request,
+      final ServletResponse response, final FilterChain chain)
+      throws IOException, ServletException {
+    long start = System.nanoTime();
+    HttpServletRequest httpRequest = (HttpServletRequest) request;
+    HttpServletResponse httpResponse = (HttpServletResponse) response;
+    metrics.started();
+    boolean async = false;
+    try {
+      chain.doFilter(request, response);
+      if (request.isAsyncStarted()) {
+        async = true;
+        request.getAsyncContext().addListener(new AsyncListener() {
+          @Override
+          public void onComplete(final AsyncEvent event) {
+            finished(httpRequest, httpResponse, start);
+          }
+
+          @Override
+          public void onTimeout(final AsyncEvent event) {
+          }
+
+          @Override
+          public void onError(final AsyncEvent event) {
+          }
+
+          @Override
+          public void onStartAsync(final AsyncEvent event) {
+          }
+        });
+      }
+    } finally {
+      if (!async) {
+        finished(httpRequest, httpResponse, start);
+      }
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void destroy() {
+  }
+
+  /** Records the end of a request.
+   *
+   * @param request the request, cannot be null.
+   * @param response the response, cannot be null.
+   * @param start when the request started, as given by System.nanoTime().
+   */
+  private void finished(final HttpServletRequest request,
+      final HttpServletResponse response, final long start) {
+    Object pattern = request.getAttribute(BEST_MATCHING_PATTERN);
+    String path = pattern == null
+        ? StringUtils.defaultIfEmpty(request.getServletPath(), "/")
+        : pattern.toString();
+    metrics.finished(request.getMethod() + " " + path, response.getStatus(),
+        System.nanoTime() - start);
+  }
+}
@@ -0,0 +1,46 @@
+package com.base.web;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Creates the executor that runs the requests in virtual threads, when the
+ * JVM has them.
+ *
+ * It is given to the jetty connectors by the {@link ConnectorCustomizer}, so
+ * jetty runs each request, and its async dispatches, in a virtual thread
+ * instead of a thread of its pool: a request blocked on jdbc only holds a
+ * cheap virtual thread. The number of requests that actually use the
+ * database is still bounded by the connection pool and the {@link
+ * AdmissionControlFilter}.
+ */
+public final class VirtualThreads {
+
+  /** The logger. */
+  private static Logger log = LoggerFactory.getLogger(VirtualThreads.class);
+
+  /** Prevents instantiation. */
+  private VirtualThreads() {
+  }
+
+  /** Creates an executor that starts a virtual thread per task.
+   *
+   * @return the executor, or null if the JVM does not support virtual
+   * threads.
+   */
+  public static ExecutorService newPerTaskExecutor() {
+    try {
+      // Executors.newVirtualThreadPerTaskExecutor() is only in java 21 on.
+      return (ExecutorService) Executors.class
+          .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (NoSuchMethodException e) {
+      return null;
+    } catch (IllegalAccessException | InvocationTargetException e) {
+      // a preview feature that is not enabled.
+      log.debug("Virtual threads are not available", e);
+      return null;
+    }
+  }
+}
@@ -0,0 +1,244 @@
+package com.base.web;
+
+import java.io.PrintWriter;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.commons.lang3.Validate;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+import com.base.metrics.LatencyHistogram;
+
+/** The request metrics of the web module: counts by route and status class,
+ * latency histograms by route, the requests in flight, and the state of the
+ * jetty thread pool, the {@link AdmissionControlFilter} and the {@link
+ * ReadinessGate}.
+ *
+ * The requests are recorded by {@link RequestMetricsFilter}, and {@link
+ * MetricsServlet} writes the metrics in the prometheus text format with
+ * {@link #write(PrintWriter)}.
+ */
+public final class WebMetrics {
+
+  /** The greatest number of routes kept, the requests of the routes beyond
+   * it are all recorded under {@link #OTHER}. */
+  private static final int MAX_ROUTES = 500;
+
+  /** The route of the requests beyond {@link #MAX_ROUTES}. */
+  private static final String OTHER = "other";
+
+  /** The number of http status classes, 1xx to 5xx. */
+  private static final int STATUS_CLASSES = 5;
+
+  /** The http status codes per status class. */
+  private static final int STATUS_CLASS_SIZE = 100;
+
+  /** The reported percentiles. */
+  private static final double[] PERCENTILES = {50, 90, 99};
+
+  /** The percentile of all the samples. */
+  private static final double ALL = 100;
+
+  /** The number of nanoseconds in a second, as a double. */
+  private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  /** The metrics of each route, by route, never null. */
+  private final Map<String, Route> routes = new ConcurrentHashMap<>();
+
+  /** The number of requests in process, never null. */
+  private final AtomicInteger inFlight = new AtomicInteger();
+
+  /** The jetty thread pool, null until the server is customized. */
+  private volatile QueuedThreadPool threadPool;
+
+  /** The admission control filter, null if there is none. */
+  private volatile AdmissionControlFilter admission;
+
+  /** The readiness gate, null if there is none. */
+  private volatile ReadinessGate readiness;
+
+  /** Sets the jetty thread pool whose state is reported.
+   *
+   * @param theThreadPool the thread pool, cannot be null.
+   */
+  public void setThreadPool(final QueuedThreadPool theThreadPool) {
+    Validate.notNull(theThreadPool, "The thread pool cannot be null.");
+    threadPool = theThreadPool;
+  }
+
+  /** Sets the admission control filter whose state is reported.
+   *
+   * @param theAdmission the filter, cannot be null.
+   */
+  public void setAdmission(final AdmissionControlFilter theAdmission) {
+    Validate.notNull(theAdmission, "The admission filter cannot be null.");
+    admission = theAdmission;
+  }
+
+  /** Sets the readiness gate whose state is reported.
+   *
+   * @param theReadiness the gate, cannot be null.
+   */
+  public void setReadiness(final ReadinessGate theReadiness) {
+    Validate.notNull(theReadiness, "The readiness gate cannot be null.");
+    readiness = theReadiness;
+  }
+
+  /** Records the start of a request. */
+  void started() {
+    inFlight.incrementAndGet();
+  }
+
+  /** Records the end of a request.
+   *
+   * @param route the request route, like 'GET /persons/{id}', cannot be
+   * null.
+   * @param status the http status of the response.
+   * @param nanos the time the request took, in nanoseconds.
+   */
+  void finished(final String route, final int status, final long nanos) {
+    inFlight.decrementAndGet();
+    Route metrics = routes.get(route);
+    if (metrics == null) {
+      String key = routes.size() < MAX_ROUTES ? route : OTHER;
+      metrics = routes.computeIfAbsent(key, k -> new Route());
+    }
+    metrics.record(status, nanos);
+  }
+
+  /** Writes the metrics in the prometheus text format.
+   *
+   * @param out the writer, cannot be null.
+   */
+  public void write(final PrintWriter out) {
+    Validate.notNull(out, "The writer cannot be null.");
+    Map<String, Route> sorted = new TreeMap<>(routes);
+
+    line(out, "# TYPE http_requests_total counter");
+    sorted.forEach((route, metrics) -> {
+      for (int i = 0; i < STATUS_CLASSES; i++) {
+        long count = metrics.statuses[i].sum();
+        if (count > 0) {
+          line(out, "http_requests_total{route=\"" + escape(route)
+              + "\",status=\"" + (i + 1) + "xx\"} " + count);
+        }
+      }
+    });
+
+    line(out, "# TYPE http_request_duration_seconds summary");
+    sorted.forEach((route, metrics) -> {
+      String label = "route=\"" + escape(route) + "\"";
+      LatencyHistogram latency = metrics.latency;
+      for (double percentile : PERCENTILES) {
+        line(out, "http_request_duration_seconds{" + label
+            + ",quantile=\"" + percentile / ALL + "\"} "
+            + seconds(latency.getPercentile(percentile)));
+      }
+      line(out, "http_request_duration_seconds_sum{" + label + "} "
+          + seconds(latency.getSum()));
+      line(out, "http_request_duration_seconds_count{" + label + "} "
+          + latency.getCount());
+      line(out, "http_request_duration_seconds_max{" + label + "} "
+          + seconds(latency.getMax()));
+    });
+
+    gauge(out, "http_requests_in_flight", inFlight.get());
+    ReadinessGate gate = readiness;
+    if (gate != null) {
+      gauge(out, "web_ready", gate.isReady() ? 1 : 0);
+    }
+    QueuedThreadPool pool = threadPool;
+    if (pool != null) {
+      gauge(out, "jetty_threads", pool.getThreads());
+      gauge(out, "jetty_threads_busy", pool.getThreads()
+          - pool.getIdleThreads());
+      gauge(out, "jetty_threads_idle", pool.getIdleThreads());
+      gauge(out, "jetty_threads_max", pool.getMaxThreads());
+      gauge(out, "jetty_queue_size", pool.getQueueSize());
+    }
+    AdmissionControlFilter filter = admission;
+    if (filter != null) {
+      gauge(out, "admission_active", filter.getActive());
+      gauge(out, "admission_queued", filter.getQueued());
+      line(out, "# TYPE admission_admitted_total counter");
+      line(out, "admission_admitted_total " + filter.getAdmitted());
+      line(out, "# TYPE admission_rejected_total counter");
+      line(out, "admission_rejected_total " + filter.getRejected());
+    }
+  }
+
+  /** Writes a line, ended in '\n' whatever the platform.
+   *
+   * @param out the writer, cannot be null.
+   * @param text the line, cannot be null.
+   */
+  private static void line(final PrintWriter out, final String text) {
+    out.print(text);
+    out.print('\n');
+  }
+
+  /** Writes a gauge.
+   *
+   * @param out the writer, cannot be null.
+   * @param name the gauge name, cannot be null.
+   * @param value the gauge value.
+   */
+  private static void gauge(final PrintWriter out, final String name,
+      final long value) {
+    line(out, "# TYPE " + name + " gauge");
+    line(out, name + " " + value);
+  }
+
+  /** Converts nanoseconds to seconds.
+   *
+   * @param nanos the nanoseconds.
+   *
+   * @return the seconds.
+   */
+  private static double seconds(final long nanos) {
+    return nanos / NANOS_PER_SECOND;
+  }
+
+  /** Escapes a prometheus label value.
+   *
+   * @param value the value, cannot be null.
+   *
+   * @return the escaped value, never null.
+   */
+  private static String escape(final String value) {
+    return value.replace("\\", "\\\\").replace("\"", "\\\"")
+        .replace("\n", "\\n");
+  }
+
+  /** The metrics of a route. */
+  private static final class Route {
+
+    /** The number of responses of each status class, never null. */
+    private final LongAdder[] statuses = new LongAdder[STATUS_CLASSES];
+
+    /** The latencies of the requests, never null. */
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    /** Constructor, creates the metrics of a new route. */
+    private Route() {
+      for (int i = 0; i < STATUS_CLASSES; i++) {
+        statuses[i] = new LongAdder();
+      }
+    }
+
+    /** Records a request.
+     *
+     * @param status the http status of the response.
+     * @param nanos the time the request took, in nanoseconds.
+     */
+    private void record(final int status, final long nanos) {
+      int statusClass = status / STATUS_CLASS_SIZE - 1;
+      statuses[Math.max(0, Math.min(statusClass, STATUS_CLASSES - 1))]
+          .increment();
+      latency.record(nanos);
+    }
+  }
+}
@@ -1,26 +1,61 @@
 package com.base.web.configuration;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.ExecutorService;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.embedded.FilterRegistrationBean;
+import org.springframework.boot.context.embedded.ServletRegistrationBean;
 import org.springframework.boot.context.embedded.jetty
     .JettyEmbeddedServletContainerFactory;
 import org.springframework.boot.context.embedded.jetty.JettyServerCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties
+    .EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import com.base.web.AdmissionControlFilter;
+import com.base.web.ConnectorCustomizer;
+import com.base.web.ConnectorProperties;
+import com.base.web.MetricsServlet;
+import com.base.web.ReadinessGate;
+import com.base.web.ReadinessServlet;
+import com.base.web.RequestMetricsFilter;
+import com.base.web.VirtualThreads;
+import com.base.web.WebMetrics;
 
 /** This class provides an entry point to configure Jetty when used with
  * Spring Boot.
  * @author diego.
  */
 @Configuration
+@EnableConfigurationProperties
 public class JettyBootConfiguration {
 
+  /** The logger. */
+  private static Logger log = LoggerFactory.getLogger(
+      JettyBootConfiguration.class);
+
+  /** The jetty.threadMode value that runs the requests in virtual threads.
+   */
+  private static final String VIRTUAL = "virtual";
+
   /** Retrieves the Jetty Factory. This factory can be used to configure the
    * Jetty Server.
    * @param port the port to initialize the server.
    * @param path the servlet context path.
+   * @param threadMode 'platform' to run the requests in the jetty threads,
+   * or 'virtual' to run them in virtual threads. On JVMs without virtual
+   * threads it logs a warning and the requests keep running in the jetty
+   * threads.
    * @param serverCustomizer the server customizer.
+   * @param connectorProperties the connector profile.
    * @return the factory.
    */
   @Bean
@@ -30,13 +65,38 @@ public class JettyBootConfiguration {
       final String port,
       @Value("${server.contextPath://*}")
       final String path,
-      final JettyServerCustomizer serverCustomizer) {
+      @Value("${jetty.threadMode:platform}")
+      final String threadMode,
+      final JettyServerCustomizer serverCustomizer,
+      final ConnectorProperties connectorProperties) {
+    ExecutorService executor = null;
+    if (VIRTUAL.equals(threadMode)) {
+      executor = VirtualThreads.newPerTaskExecutor();
+      if (executor == null) {
+        log.warn("Virtual threads need java 21, using the jetty threads");
+      } else {
+        log.info("Running the requests in virtual threads");
+      }
+    }
     final JettyEmbeddedServletContainerFactory factory =
         new JettyEmbeddedServletContainerFactory(path, Integer.valueOf(port));
-    factory.addServerCustomizers(serverCustomizer);
+    factory.addServerCustomizers(serverCustomizer,
+        new ConnectorCustomizer(connectorProperties, executor));
     return factory;
   }
 
+  /** The profile of the jetty http connectors.
+   *
+   * This is initialized from properties that start with 'jetty.connector'.
+   *
+   * @return the connector profile, never null.
+   */
+  @Bean
+  @ConfigurationProperties(prefix = "jetty.connector")
+  public ConnectorProperties connectorProperties() {
+    return new ConnectorProperties();
+  }
+
   /** Jetty server customizer.
    *
    * @param minThreads the minimum number of active threads.
@@ -44,6 +104,7 @@ public class JettyBootConfiguration {
    * @param idleTimeOut Set the maximum thread idle time. Threads that are idle
    * for longer than this period may be stopped. Delegated to the named or
    * anonymous Pool.
+   * @param webMetrics the web metrics, that report the thread pool state.
    *
    * @return a JettyServerCustomizer instance, never null.
    */
@@ -51,7 +112,8 @@ public class JettyBootConfiguration {
   public JettyServerCustomizer serverCustomizer(
       @Value("${jetty.minThreads:50}") final String minThreads,
       @Value("${jetty.maxThreads:300}") final String maxThreads,
-      @Value("${jetty.idleTime:60000}") final String idleTimeOut) {
+      @Value("${jetty.idleTime:60000}") final String idleTimeOut,
+      final WebMetrics webMetrics) {
     JettyServerCustomizer customizer = new JettyServerCustomizer() {
       @Override
       public void customize(final Server pServer) {
@@ -59,8 +121,141 @@ public class JettyBootConfiguration {
         pool.setMinThreads(Integer.valueOf(minThreads));
         pool.setMaxThreads(Integer.valueOf(maxThreads));
         pool.setIdleTimeout(Integer.valueOf(idleTimeOut));
+        webMetrics.setThreadPool(pool);
       }
     };
     return customizer;
   }
+
+  /** Registers the {@link AdmissionControlFilter}, that limits the number of
+   * requests in process to what the connection pool can serve.
+   *
+   * It is opt in: the limit only fits the requests that use the database,
+   * so the application enables it with admission.enabled and lists their
+   * urls in admission.urlPatterns.
+   *
+   * @param enabled whether the filter is registered, false by default.
+   * @param maxConcurrent the greatest number of requests in process, by
+   * default the datasource.maxActive pool property.
+   * @param maxQueued the greatest number of requests waiting for admission.
+   * They hold jetty threads, so it should stay well below
+   * jetty.maxThreads.
+   * @param queueTimeout the longest time a request waits for admission, in
+   * milliseconds.
+   * @param retryAfter the Retry-After seconds of the rejected requests.
+   * @param urlPatterns the comma separated url patterns of the requests
+   * that use the database, all of them by default.
+   * @param excludedPaths the comma separated paths that are never limited,
+   * by default the readiness and metrics endpoints, so the load balancer
+   * probes and the scraper still get an answer under overload.
+   * @param webMetrics the web metrics, that report the admission state.
+   *
+   * @return the filter registration, never null.
+   */
+  @Bean
+  public FilterRegistrationBean admissionControlFilter(
+      @Value("${admission.enabled:false}") final String enabled,
+      @Value("${admission.maxConcurrent:${datasource.maxActive:100}}")
+      final String maxConcurrent,
+      @Value("${admission.maxQueued:100}") final String maxQueued,
+      @Value("${admission.queueTimeout:1000}") final String queueTimeout,
+      @Value("${admission.retryAfter:1}") final String retryAfter,
+      @Value("${admission.urlPatterns:/*}") final String urlPatterns,
+      @Value("${admission.excludedPaths:"
+          + "${web.readiness.path:/ready},${web.metrics.path:/metrics}}")
+      final String excludedPaths,
+      final WebMetrics webMetrics) {
+    AdmissionControlFilter filter = new AdmissionControlFilter(
+        Integer.valueOf(maxConcurrent), Integer.valueOf(maxQueued),
+        Long.valueOf(queueTimeout), Integer.valueOf(retryAfter),
+        new HashSet<>(Arrays.asList(excludedPaths.split("\\s*,\\s*"))));
+    FilterRegistrationBean registration = new FilterRegistrationBean(filter);
+    registration.setEnabled(Boolean.valueOf(enabled));
+    if (registration.isEnabled()) {
+      webMetrics.setAdmission(filter);
+    }
+    registration.addUrlPatterns(urlPatterns.split("\\s*,\\s*"));
+    // rejects before any other filter does work for the request, but after
+    // the request metrics, so the rejections are counted.
+    registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 2);
+    return registration;
+  }
+
+  /** The request and thread pool metrics of the web module.
+   *
+   * @return the metrics, never null.
+   */
+  @Bean
+  public WebMetrics webMetrics() {
+    return new WebMetrics();
+  }
+
+  /** Registers the {@link RequestMetricsFilter}, that records the count,
+   * status and latency of the requests of each route.
+   *
+   * @param enabled whether the request metrics are recorded and served.
+   * @param webMetrics the web metrics.
+   *
+   * @return the filter registration, never null.
+   */
+  @Bean
+  public FilterRegistrationBean requestMetricsFilter(
+      @Value("${web.metrics.enabled:true}") final String enabled,
+      final WebMetrics webMetrics) {
+    FilterRegistrationBean registration = new FilterRegistrationBean(
+        new RequestMetricsFilter(webMetrics));
+    registration.setEnabled(Boolean.valueOf(enabled));
+    registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+    return registration;
+  }
+
+  /** Registers the {@link MetricsServlet}, that serves the web metrics in
+   * plain text for a scraper.
+   *
+   * @param enabled whether the request metrics are recorded and served.
+   * @param path the path of the metrics endpoint.
+   * @param webMetrics the web metrics.
+   *
+   * @return the servlet registration, never null.
+   */
+  @Bean
+  public ServletRegistrationBean metricsServlet(
+      @Value("${web.metrics.enabled:true}") final String enabled,
+      @Value("${web.metrics.path:/metrics}") final String path,
+      final WebMetrics webMetrics) {
+    ServletRegistrationBean registration = new ServletRegistrationBean(
+        new MetricsServlet(webMetrics), path);
+    registration.setEnabled(Boolean.valueOf(enabled));
+    return registration;
+  }
+
+  /** Whether the application is ready to take traffic. It opens when jetty
+   * starts, after the singletons are created and warmed up.
+   *
+   * @param webMetrics the web metrics, that report the readiness.
+   *
+   * @return the readiness gate, never null.
+   */
+  @Bean
+  public ReadinessGate readinessGate(final WebMetrics webMetrics) {
+    ReadinessGate gate = new ReadinessGate();
+    webMetrics.setReadiness(gate);
+    return gate;
+  }
+
+  /** Registers the {@link ReadinessServlet}, that answers 503 until the
+   * application is ready to take traffic, for the load balancer probes.
+   *
+   * @param path the path of the readiness endpoint.
+   * @param readinessGate the readiness gate.
+   *
+   * @return the servlet registration, never null.
+   */
+  @Bean
+  public ServletRegistrationBean readinessServlet(
+      @Value("${web.readiness.path:/ready}") final String path,
+      final ReadinessGate readinessGate) {
+    return new ServletRegistrationBean(new ReadinessServlet(readinessGate),
+        path);
+  }
 }
@@ -0,0 +1,144 @@
+package com.base.web;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+public class AdmissionControlFilterTest {
+
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+
+  private final CountDownLatch entered = new CountDownLatch(1);
+
+  private final CountDownLatch release = new CountDownLatch(1);
+
+  /** Holds the permit until the release latch opens. */
+  private final FilterChain blocking = (request, response) -> {
+    entered.countDown();
+    try {
+      release.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  };
+
+  @After
+  public void tearDown() {
+    release.countDown();
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void doFilter_queueFull() throws Exception {
+    AdmissionControlFilter filter = new AdmissionControlFilter(1, 0, 1000, 3);
+    Future<?> first = block(filter);
+
+    MockHttpServletResponse rejected = filter(filter, "/persons");
+
+    assertThat(rejected.getStatus(), is(503));
+    assertThat(rejected.getHeader("Retry-After"), is("3"));
+    assertThat(filter.getActive(), is(1));
+    assertThat(filter.getQueued(), is(0));
+
+    release.countDown();
+    first.get(1, TimeUnit.SECONDS);
+    assertThat(filter.getActive(), is(0));
+    assertThat(filter.getAdmitted(), is(1L));
+    assertThat(filter.getRejected(), is(1L));
+  }
+
+  @Test
+  public void doFilter_queueTimeout() throws Exception {
+    AdmissionControlFilter filter = new AdmissionControlFilter(1, 1, 50, 1);
+    block(filter);
+
+    long start = System.nanoTime();
+    MockHttpServletResponse rejected = filter(filter, "/persons");
+
+    assertThat(rejected.getStatus(), is(503));
+    assertThat(rejected.getHeader("Retry-After"), is("1"));
+    assertThat(System.nanoTime() - start
+        >= TimeUnit.MILLISECONDS.toNanos(50), is(true));
+    assertThat(filter.getQueued(), is(0));
+    assertThat(filter.getRejected(), is(1L));
+  }
+
+  @Test
+  public void doFilter_queuedUntilReleased() throws Exception {
+    AdmissionControlFilter filter = new AdmissionControlFilter(1, 1, 5000, 1);
+    block(filter);
+
+    Future<MockHttpServletResponse> queued = executor.submit(
+        () -> filter(filter, "/persons"));
+    while (filter.getQueued() == 0) {
+      Thread.sleep(1);
+    }
+    release.countDown();
+
+    assertThat(queued.get(1, TimeUnit.SECONDS).getStatus(), is(200));
+    assertThat(filter.getAdmitted(), is(2L));
+    assertThat(filter.getRejected(), is(0L));
+  }
+
+  @Test
+  public void doFilter_releasesOnException() throws Exception {
+    AdmissionControlFilter filter = new AdmissionControlFilter(1, 0, 0, 1);
+
+    try {
+      filter.doFilter(new MockHttpServletRequest("GET", "/persons"),
+          new MockHttpServletResponse(), (request, response) -> {
+            throw new ServletException("handler failed");
+          });
+      fail("The handler exception should have been thrown");
+    } catch (ServletException e) {
+      assertThat(filter.getActive(), is(0));
+    }
+
+    assertThat(filter(filter, "/persons").getStatus(), is(200));
+    assertThat(filter.getAdmitted(), is(2L));
+  }
+
+  @Test
+  public void doFilter_excludedPath() throws Exception {
+    AdmissionControlFilter filter = new AdmissionControlFilter(1, 0, 0, 1,
+        Collections.singleton("/ready"));
+    block(filter);
+
+    assertThat(filter(filter, "/ready").getStatus(), is(200));
+    assertThat(filter(filter, "/persons").getStatus(), is(503));
+    assertThat(filter.getAdmitted(), is(1L));
+  }
+
+  /** Takes the only permit of the filter in another thread. */
+  private Future<?> block(final AdmissionControlFilter filter)
+      throws InterruptedException {
+    Future<?> future = executor.submit(() -> {
+      filter.doFilter(new MockHttpServletRequest("GET", "/persons"),
+          new MockHttpServletResponse(), blocking);
+      return null;
+    });
+    assertThat(entered.await(1, TimeUnit.SECONDS), is(true));
+    return future;
+  }
+
+  private MockHttpServletResponse filter(final AdmissionControlFilter filter,
+      final String uri) throws Exception {
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    filter.doFilter(new MockHttpServletRequest("GET", uri), response,
+        (request, theResponse) -> { });
+    return response;
+  }
+}
@@ -0,0 +1,149 @@
+package com.base.web;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.Executor;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.apache.commons.lang3.StringUtils;
+import org.eclipse.jetty.io.ArrayByteBufferPool;
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.eclipse.jetty.servlets.gzip.GzipHandler;
+import org.junit.After;
+import org.junit.Test;
+
+public class ConnectorCustomizerTest {
+
+  private final Server server = new Server(0);
+
+  @After
+  public void tearDown() throws Exception {
+    server.stop();
+  }
+
+  @Test
+  public void defaults_jetty() {
+    ConnectorProperties properties = new ConnectorProperties();
+    HttpConfiguration jetty = new HttpConfiguration();
+
+    assertThat(properties.getOutputBufferSize(),
+        is(jetty.getOutputBufferSize()));
+    assertThat(properties.getRequestHeaderSize(),
+        is(jetty.getRequestHeaderSize()));
+    assertThat(properties.getCompression().getEnabled(), is(false));
+  }
+
+  @Test
+  public void customize_connector() {
+    ConnectorProperties properties = new ConnectorProperties();
+    properties.setAcceptors(1);
+    properties.setSelectors(2);
+    properties.setAcceptQueueSize(128);
+    properties.setOutputBufferSize(16 * 1024);
+    properties.setRequestHeaderSize(4 * 1024);
+    ServerConnector original = (ServerConnector) server.getConnectors()[0];
+    original.setHost("localhost");
+
+    new ConnectorCustomizer(properties).customize(server);
+
+    assertThat(server.getConnectors().length, is(1));
+    ServerConnector connector = (ServerConnector) server.getConnectors()[0];
+    assertThat(connector == original, is(false));
+    assertThat(connector.getHost(), is("localhost"));
+    assertThat(connector.getPort(), is(0));
+    assertThat(connector.getProtocols(), is(original.getProtocols()));
+    assertThat(connector.getAcceptors(), is(1));
+    assertThat(connector.getSelectorManager().getSelectorCount(), is(2));
+    assertThat(connector.getAcceptQueueSize(), is(128));
+    assertThat(connector.getByteBufferPool(),
+        instanceOf(ArrayByteBufferPool.class));
+    assertThat(connector.getExecutor(),
+        sameInstance((Executor) server.getThreadPool()));
+    HttpConfiguration configuration = connector.getConnectionFactory(
+        HttpConnectionFactory.class).getHttpConfiguration();
+    assertThat(configuration.getOutputBufferSize(), is(16 * 1024));
+    assertThat(configuration.getRequestHeaderSize(), is(4 * 1024));
+    // no compression, the handler is left alone.
+    assertThat(server.getHandler(), nullValue());
+  }
+
+  @Test
+  public void customize_executor() {
+    Executor executor = Runnable::run;
+
+    new ConnectorCustomizer(new ConnectorProperties(), executor)
+        .customize(server);
+
+    ServerConnector connector = (ServerConnector) server.getConnectors()[0];
+    assertThat(connector.getExecutor(), sameInstance(executor));
+  }
+
+  @Test
+  public void customize_compression() throws Exception {
+    ServletContextHandler context = new ServletContextHandler();
+    context.addServlet(new ServletHolder(new HttpServlet() {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected void doGet(final HttpServletRequest request,
+          final HttpServletResponse response) throws IOException {
+        response.setContentType("text/plain");
+        int size = Integer.parseInt(request.getParameter("size"));
+        // the jetty 9.2 gzip handler only knows the size of a response with
+        // a content length.
+        response.setContentLength(size);
+        response.getWriter().print(StringUtils.repeat('a', size));
+      }
+    }), "/text");
+    server.setHandler(context);
+    ConnectorProperties properties = new ConnectorProperties();
+    properties.getCompression().setEnabled(true);
+    properties.getCompression().setMinResponseSize(1024);
+    properties.getCompression().setMimeTypes(new String[] {"text/plain"});
+
+    new ConnectorCustomizer(properties).customize(server);
+
+    Handler handler = server.getHandler();
+    assertThat(handler, instanceOf(GzipHandler.class));
+    GzipHandler gzip = (GzipHandler) handler;
+    assertThat(gzip.getHandler(), sameInstance((Handler) context));
+    assertThat(gzip.getMinGzipSize(), is(1024));
+    assertThat(gzip.getMimeTypes(),
+        is(new HashSet<>(Arrays.asList("text/plain"))));
+
+    server.start();
+    assertThat(contentEncoding(4096), is("gzip"));
+    assertThat(contentEncoding(10), nullValue());
+  }
+
+  private String contentEncoding(final int size) throws IOException {
+    int port = ((ServerConnector) server.getConnectors()[0]).getLocalPort();
+    HttpURLConnection connection = (HttpURLConnection) new URL(
+        "http://localhost:" + port + "/text?size=" + size).openConnection();
+    connection.setRequestProperty("Accept-Encoding", "gzip");
+    assertThat(connection.getResponseCode(), is(200));
+    try (InputStream in = connection.getInputStream()) {
+      while (in.read() != -1) {
+        // reads the whole response.
+      }
+    }
+    return connection.getHeaderField("Content-Encoding");
+  }
+}
@@ -0,0 +1,91 @@
+package com.base.web;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import javax.servlet.AsyncContext;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+public class RequestMetricsFilterTest {
+
+  private static final String BEST_MATCHING_PATTERN =
+      "org.springframework.web.servlet.HandlerMapping.bestMatchingPattern";
+
+  private final WebMetrics metrics = new WebMetrics();
+
+  private final RequestMetricsFilter filter = new RequestMetricsFilter(
+      metrics);
+
+  @Test
+  public void doFilter_routeAndStatusClass() throws Exception {
+    request("/persons/1", "/persons/{id}", 200);
+    request("/persons/2", "/persons/{id}", 200);
+    request("/persons/3", "/persons/{id}", 404);
+
+    String written = write();
+    assertThat(written, containsString(
+        "http_requests_total{route=\"GET /persons/{id}\",status=\"2xx\"} 2"));
+    assertThat(written, containsString(
+        "http_requests_total{route=\"GET /persons/{id}\",status=\"4xx\"} 1"));
+    assertThat(written, containsString("http_request_duration_seconds_count"
+        + "{route=\"GET /persons/{id}\"} 3"));
+    assertThat(written, containsString("http_request_duration_seconds_sum"
+        + "{route=\"GET /persons/{id}\"} "));
+    assertThat(written, containsString("http_requests_in_flight 0"));
+  }
+
+  @Test
+  public void doFilter_servletPath() throws Exception {
+    request("/health", null, 503);
+
+    assertThat(write(), containsString(
+        "http_requests_total{route=\"GET /health\",status=\"5xx\"} 1"));
+  }
+
+  @Test
+  public void doFilter_async() throws Exception {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET",
+        "/async");
+    request.setServletPath("/async");
+    request.setAsyncSupported(true);
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    AsyncContext[] context = new AsyncContext[1];
+
+    filter.doFilter(request, response, (theRequest, theResponse) ->
+        context[0] = theRequest.startAsync());
+
+    assertThat(write(), containsString("http_requests_in_flight 1"));
+    assertThat(write(), not(containsString("GET /async")));
+
+    context[0].complete();
+    assertThat(write(), containsString(
+        "http_requests_total{route=\"GET /async\",status=\"2xx\"} 1"));
+    assertThat(write(), containsString("http_requests_in_flight 0"));
+  }
+
+  private void request(final String uri, final String pattern,
+      final int status) throws Exception {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+    request.setServletPath(uri);
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    filter.doFilter(request, response, (theRequest, theResponse) -> {
+      if (pattern != null) {
+        theRequest.setAttribute(BEST_MATCHING_PATTERN, pattern);
+      }
+      response.setStatus(status);
+    });
+    assertThat(response.getStatus(), is(status));
+  }
+
+  private String write() {
+    StringWriter out = new StringWriter();
+    metrics.write(new PrintWriter(out));
+    return out.toString();
+  }
+}
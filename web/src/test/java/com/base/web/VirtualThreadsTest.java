@@ -0,0 +1,192 @@
+package com.base.web;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.junit.After;
+import org.junit.Test;
+
+public class VirtualThreadsTest {
+
+  /** Marks the threads running a task of the request executor. */
+  private static final ThreadLocal<Boolean> IN_EXECUTOR = new ThreadLocal<>();
+
+  private ExecutorService threads;
+
+  private Server server;
+
+  @After
+  public void tearDown() throws Exception {
+    if (server != null) {
+      server.stop();
+    }
+    if (threads != null) {
+      threads.shutdown();
+    }
+  }
+
+  @Test
+  public void newPerTaskExecutor_fallback() {
+    boolean supported;
+    try {
+      Thread.class.getMethod("ofVirtual");
+      supported = true;
+    } catch (NoSuchMethodException e) {
+      supported = false;
+    }
+
+    ExecutorService executor = VirtualThreads.newPerTaskExecutor();
+
+    assertThat(executor != null, is(supported));
+    if (executor != null) {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void jetty_synchronous() throws Exception {
+    start(new HttpServlet() {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected void doGet(final HttpServletRequest request,
+          final HttpServletResponse response) throws IOException {
+        response.getWriter().print(request.getContextPath()
+            + request.getServletPath() + " " + IN_EXECUTOR.get());
+      }
+    });
+
+    assertThat(get(), is("/app/test true"));
+  }
+
+  /** Like a Spring MVC Callable: it starts async processing with its own
+   * wrappers, computes the result in another thread and dispatches the
+   * request to render it.
+   */
+  @Test
+  public void jetty_callable() throws Exception {
+    start(new HttpServlet() {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected void doGet(final HttpServletRequest request,
+          final HttpServletResponse response) throws IOException {
+        if (request.getDispatcherType() == DispatcherType.ASYNC) {
+          response.getWriter().print(request.getAttribute("result") + " "
+              + IN_EXECUTOR.get());
+          return;
+        }
+        HttpServletRequestWrapper requestWrapper =
+            new HttpServletRequestWrapper(request);
+        AsyncContext context = request.startAsync(requestWrapper,
+            new HttpServletResponseWrapper(response));
+        boolean wrapped = context.getRequest() == requestWrapper
+            && !context.hasOriginalRequestAndResponse();
+        Boolean inExecutor = IN_EXECUTOR.get();
+        new Thread(() -> {
+          request.setAttribute("result", wrapped + " " + inExecutor);
+          context.dispatch();
+        }).start();
+      }
+    });
+
+    assertThat(get(), is("true true true"));
+  }
+
+  /** Like a Spring MVC DeferredResult that is never set: its timeout
+   * listener writes the timeout result.
+   */
+  @Test
+  public void jetty_deferredResultTimeout() throws Exception {
+    start(new HttpServlet() {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected void doGet(final HttpServletRequest request,
+          final HttpServletResponse response) {
+        AsyncContext context = request.startAsync();
+        context.setTimeout(100);
+        context.addListener(new AsyncListener() {
+          @Override
+          public void onTimeout(final AsyncEvent event) throws IOException {
+            event.getSuppliedResponse().getWriter().print("timed out");
+            event.getAsyncContext().complete();
+          }
+
+          @Override
+          public void onComplete(final AsyncEvent event) {
+          }
+
+          @Override
+          public void onError(final AsyncEvent event) {
+          }
+
+          @Override
+          public void onStartAsync(final AsyncEvent event) {
+          }
+        });
+      }
+    });
+
+    assertThat(get(), is("timed out"));
+  }
+
+  private void start(final HttpServlet servlet) throws Exception {
+    threads = VirtualThreads.newPerTaskExecutor();
+    if (threads == null) {
+      threads = Executors.newCachedThreadPool();
+    }
+    Executor executor = task -> threads.execute(() -> {
+      IN_EXECUTOR.set(true);
+      task.run();
+    });
+    ServletContextHandler context = new ServletContextHandler();
+    context.setContextPath("/app");
+    ServletHolder holder = new ServletHolder(servlet);
+    holder.setAsyncSupported(true);
+    context.addServlet(holder, "/test");
+    server = new Server(0);
+    server.setHandler(context);
+    new ConnectorCustomizer(new ConnectorProperties(), executor)
+        .customize(server);
+    server.start();
+  }
+
+  private String get() throws IOException {
+    int port = ((ServerConnector) server.getConnectors()[0]).getLocalPort();
+    HttpURLConnection connection = (HttpURLConnection) new URL(
+        "http://localhost:" + port + "/app/test").openConnection();
+    connection.setReadTimeout(5000);
+    assertThat(connection.getResponseCode(), is(200));
+    try (InputStream in = connection.getInputStream()) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buffer = new byte[1024];
+      for (int read = in.read(buffer); read != -1; read = in.read(buffer)) {
+        out.write(buffer, 0, read);
+      }
+      return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+  }
+}
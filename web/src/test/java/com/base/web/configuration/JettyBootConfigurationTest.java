@@ -0,0 +1,199 @@
+package com.base.web.configuration;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.embedded
+    .EmbeddedWebApplicationContext;
+import org.springframework.boot.context.embedded.FilterRegistrationBean;
+import org.springframework.boot.context.embedded.ServletRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.support
+    .PropertySourcesPlaceholderConfigurer;
+
+import com.base.web.VirtualThreads;
+
+public class JettyBootConfigurationTest {
+
+  private EmbeddedWebApplicationContext context;
+
+  @After
+  public void tearDown() {
+    if (context != null) {
+      context.close();
+    }
+  }
+
+  @Test
+  public void virtualThreadMode_callable() throws Exception {
+    start("jetty.threadMode=virtual");
+
+    // falls back to the jetty threads without virtual threads.
+    assertThat(get("/callable"), is("called " + hasVirtualThreads()));
+  }
+
+  @Test
+  public void virtualThreadMode_deferredResultTimeout() throws Exception {
+    start("jetty.threadMode=virtual");
+
+    assertThat(get("/deferred"), is("timed out " + hasVirtualThreads()));
+  }
+
+  @Test
+  public void platformThreadMode_callable() throws Exception {
+    start("jetty.threadMode=platform");
+
+    assertThat(get("/callable"), is("called false"));
+  }
+
+  @Test
+  public void admissionControl_optIn() {
+    start("admission.maxConcurrent=1");
+
+    assertThat(context.getBean("admissionControlFilter",
+        FilterRegistrationBean.class).isEnabled(), is(false));
+    context.close();
+
+    start("admission.enabled=true");
+
+    assertThat(context.getBean("admissionControlFilter",
+        FilterRegistrationBean.class).isEnabled(), is(true));
+  }
+
+  private void start(final String property) {
+    context = (EmbeddedWebApplicationContext) new SpringApplicationBuilder(
+        JettyBootConfiguration.class, Handlers.class)
+        .properties("server.port=0", property)
+        .run();
+  }
+
+  private String get(final String path) throws IOException {
+    int port = context.getEmbeddedServletContainer().getPort();
+    HttpURLConnection connection = (HttpURLConnection) new URL(
+        "http://localhost:" + port + path).openConnection();
+    connection.setReadTimeout(5000);
+    assertThat(connection.getResponseCode(), is(200));
+    try (InputStream in = connection.getInputStream()) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buffer = new byte[1024];
+      for (int read = in.read(buffer); read != -1; read = in.read(buffer)) {
+        out.write(buffer, 0, read);
+      }
+      return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+  }
+
+  private static boolean hasVirtualThreads() {
+    ExecutorService executor = VirtualThreads.newPerTaskExecutor();
+    if (executor == null) {
+      return false;
+    }
+    executor.shutdown();
+    return true;
+  }
+
+  private static boolean isVirtual() {
+    try {
+      return (Boolean) Thread.class.getMethod("isVirtual")
+          .invoke(Thread.currentThread());
+    } catch (ReflectiveOperationException e) {
+      return false;
+    }
+  }
+
+  @Configuration
+  static class Handlers {
+
+    @Bean
+    public static PropertySourcesPlaceholderConfigurer placeholders() {
+      return new PropertySourcesPlaceholderConfigurer();
+    }
+
+    /** Like a Spring MVC Callable: computes the result in another thread and
+     * dispatches the request to render it.
+     */
+    @Bean
+    public ServletRegistrationBean callable() {
+      ServletRegistrationBean registration;
+      registration = new ServletRegistrationBean(new HttpServlet() {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void doGet(final HttpServletRequest request,
+            final HttpServletResponse response) throws IOException {
+          if (request.getDispatcherType() == DispatcherType.ASYNC) {
+            response.getWriter().print(request.getAttribute("result"));
+            return;
+          }
+          AsyncContext async = request.startAsync();
+          boolean virtual = isVirtual();
+          new Thread(() -> {
+            request.setAttribute("result", "called " + virtual);
+            async.dispatch();
+          }).start();
+        }
+      }, "/callable");
+      registration.setName("callable");
+      return registration;
+    }
+
+    /** Like a Spring MVC DeferredResult that is never set: its timeout
+     * listener writes the timeout result.
+     */
+    @Bean
+    public ServletRegistrationBean deferred() {
+      ServletRegistrationBean registration;
+      registration = new ServletRegistrationBean(new HttpServlet() {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void doGet(final HttpServletRequest request,
+            final HttpServletResponse response) {
+          AsyncContext async = request.startAsync();
+          async.setTimeout(100);
+          boolean virtual = isVirtual();
+          async.addListener(new AsyncListener() {
+            @Override
+            public void onTimeout(final AsyncEvent event) throws IOException {
+              event.getSuppliedResponse().getWriter().print(
+                  "timed out " + virtual);
+              event.getAsyncContext().complete();
+            }
+
+            @Override
+            public void onComplete(final AsyncEvent event) {
+            }
+
+            @Override
+            public void onError(final AsyncEvent event) {
+            }
+
+            @Override
+            public void onStartAsync(final AsyncEvent event) {
+            }
+          });
+        }
+      }, "/deferred");
+      registration.setName("deferred");
+      return registration;
+    }
+  }
+}